@@ -0,0 +1,82 @@
+package com.example.benchmark;
+
+import com.example.shop.BatchPricingEngine;
+import com.example.shop.Cart;
+import com.example.shop.DiscountRule;
+import com.example.shop.PricingPipeline;
+import com.example.shop.ShoppingCart;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nightly repricing of many saved carts. {@code sequentialPrice} runs the
+ * discount pipeline one cart at a time on the calling thread;
+ * {@code priceAll} spreads it over a fork-join pool. Divide the cart count by
+ * the score to get carts per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchPricingBenchmark {
+
+    @Param({"100000"})
+    int carts;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    private List<Cart> cartList;
+    private PricingPipeline pipeline;
+    private BatchPricingEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        cartList = new ArrayList<>(carts);
+        for (int i = 0; i < carts; i++) {
+            ShoppingCart cart = new ShoppingCart();
+            for (int line = 1 + random.nextInt(20); line > 0; line--) {
+                String productId = "product-" + random.nextInt(500);
+                cart.addItem(productId, 100 + random.nextInt(1_000));
+                cart.updateQuantity(productId, 1 + random.nextInt(10));
+            }
+            cart.applyPercentageDiscount(10);
+            cartList.add(cart);
+        }
+        pipeline = PricingPipeline.builder()
+                .add(DiscountRule.productPercentage("product-1", 20))
+                .add(DiscountRule.quantityTiers("product-2", Map.of(3, 10, 6, 20)))
+                .add(DiscountRule.productFixed("product-3", 50))
+                .add(DiscountRule.percentage(10))
+                .add(DiscountRule.fixed(100))
+                .build();
+        engine = BatchPricingEngine.builder(pipeline).parallelism(parallelism).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public long sequentialPrice() {
+        long sum = 0;
+        for (Cart cart : cartList) {
+            sum += pipeline.price(cart);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long priceAll() {
+        return engine.priceAll(cartList).getTotal(0);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.benchmark;
+
+import com.example.AvailabilityPage;
+import com.example.AvailableSlot;
+import com.example.BookingRequest;
+import com.example.BookingResult;
+import com.example.BookingSystem;
+import com.example.Room;
+import com.example.RoomRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingBenchmark {
+
+    @Param({"100", "1000"})
+    int rooms;
+
+    @Param({"10", "1000"})
+    int bookingsPerRoom;
+
+    private BookingSystem system;
+    private BookingSystem epochSystem;
+    private long[] bookedSlotMillis;
+    private String[] roomIds;
+
+    /** Egen räknare per tråd så att trådarna inte delar en osynkroniserad {@code next++}. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        // Trådarna börjar långt ifrån varandra så att de sällan bokar samma tid
+        int next = THREADS.getAndIncrement() * 7919;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RoomRepository repository = BookingFixture.rooms(rooms, bookingsPerRoom);
+        system = BookingFixture.system(repository);
+        epochSystem = BookingFixture.epochSystem(repository);
+        bookedSlotMillis = new long[bookingsPerRoom];
+        for (int i = 0; i < bookingsPerRoom; i++) {
+            bookedSlotMillis[i] = BookingFixture.epochMillis(BookingFixture.bookedSlot(i));
+        }
+        roomIds = new String[rooms];
+        for (int i = 0; i < rooms; i++) {
+            roomIds[i] = BookingFixture.roomId(i);
+        }
+    }
+
+    @Benchmark
+    public boolean bookRoomConflict(Cursor cursor) {
+        int n = cursor.next++;
+        LocalDateTime start = BookingFixture.bookedSlot(n % bookingsPerRoom);
+        return system.bookRoom(BookingFixture.roomId(n % rooms), start, start.plusMinutes(30));
+    }
+
+    /** Samma avslag som {@link #bookRoomConflict} via epoktidsvägen; kör med -prof gc för allokeringar. */
+    @Benchmark
+    public boolean bookRoomConflictEpochMillis(Cursor cursor) {
+        int n = cursor.next++;
+        long start = bookedSlotMillis[n % bookingsPerRoom];
+        return epochSystem.bookRoom(roomIds[n % rooms], start, start + 30 * 60_000);
+    }
+
+    @Benchmark
+    public boolean bookAndCancelRoom(Cursor cursor) {
+        int n = cursor.next++;
+        LocalDateTime start = BookingFixture.freeSlot(n % bookingsPerRoom);
+        List<BookingResult> results = system.bookRooms(List.of(
+                new BookingRequest(BookingFixture.roomId(n % rooms), start, start.plusMinutes(30))));
+        BookingResult result = results.get(0);
+        // En annan tråd kan ha hunnit boka samma tid
+        return result.getStatus() == BookingResult.Status.BOOKED
+                && system.cancelBooking(result.getBooking().getId());
+    }
+
+    @Benchmark
+    public boolean cancelMissingBooking(Cursor cursor) {
+        return system.cancelBooking("missing-" + (cursor.next++ & 1023));
+    }
+
+    @Benchmark
+    public List<Room> getAvailableRooms(Cursor cursor) {
+        int n = cursor.next++;
+        LocalDateTime start = BookingFixture.freeSlot(n % bookingsPerRoom);
+        return system.getAvailableRooms(start, start.plusMinutes(30));
+    }
+
+    /** Första sidan om 20 rum; jämför med {@link #getAvailableRooms} som prövar alla rum. */
+    @Benchmark
+    public AvailabilityPage getAvailableRoomsFirstPage(Cursor cursor) {
+        int n = cursor.next++;
+        LocalDateTime start = BookingFixture.freeSlot(n % bookingsPerRoom);
+        return system.getAvailableRooms(start, start.plusMinutes(30), 20, null);
+    }
+
+    /** Fem förslag i ett dygnsfönster över alla rum, i stället för upprepade getAvailableRooms. */
+    @Benchmark
+    public List<AvailableSlot> findNextAvailableSlots(Cursor cursor) {
+        int n = cursor.next++;
+        LocalDateTime from = BookingFixture.bookedSlot(n % bookingsPerRoom);
+        return system.findNextAvailableSlots(Duration.ofMinutes(30), from, from.plusDays(1), null, 5);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.benchmark;
+
+import com.example.Booking;
+import com.example.BookingSystem;
+import com.example.EpochTimeProvider;
+import com.example.InMemoryRoomRepository;
+import com.example.Room;
+import com.example.RoomRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/** Bygger upp ett reproducerbart rumsbestånd med förbokade tider. */
+final class BookingFixture {
+    static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 0, 0);
+    static final LocalDateTime FIRST_BOOKING = NOW.plusDays(1);
+
+    private BookingFixture() {
+    }
+
+    static RoomRepository rooms(int rooms, int bookingsPerRoom) {
+        RoomRepository repository = new InMemoryRoomRepository();
+        for (int r = 0; r < rooms; r++) {
+            String roomId = roomId(r);
+            Room room = new Room(roomId, "Rum " + r);
+            for (int b = 0; b < bookingsPerRoom; b++) {
+                LocalDateTime start = bookedSlot(b);
+                room.addBooking(new Booking(UUID.randomUUID().toString(), roomId, start, start.plusHours(1)));
+            }
+            repository.save(room);
+        }
+        return repository;
+    }
+
+    static BookingSystem system(RoomRepository repository) {
+        return new BookingSystem(() -> NOW, repository, new NoOpNotificationService());
+    }
+
+    /** Som {@link #system} men med en tidskälla som ger epoktid utan att skapa objekt. */
+    static BookingSystem epochSystem(RoomRepository repository) {
+        long nowMillis = epochMillis(NOW);
+        EpochTimeProvider timeProvider = new EpochTimeProvider() {
+            @Override
+            public long currentEpochMillis() {
+                return nowMillis;
+            }
+
+            @Override
+            public LocalDateTime getCurrentTime() {
+                return NOW;
+            }
+        };
+        return new BookingSystem(timeProvider, repository, new NoOpNotificationService());
+    }
+
+    static long epochMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    static String roomId(int index) {
+        return "room" + index;
+    }
+
+    /** Förbokade tider ligger varannan timme; luckan efter varje bokning är ledig. */
+    static LocalDateTime bookedSlot(int index) {
+        return FIRST_BOOKING.plusHours(2L * index);
+    }
+
+    static LocalDateTime freeSlot(int index) {
+        return bookedSlot(index).plusMinutes(70);
+    }
+}
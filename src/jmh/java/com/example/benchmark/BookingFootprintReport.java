@@ -0,0 +1,83 @@
+package com.example.benchmark;
+
+import com.example.Booking;
+import com.example.BookingStorage;
+import com.example.Room;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Mäter ungefärligt heap-minne per bokning för en {@code HashSet<Booking>}
+ * (den ursprungliga lagringen) och för {@link BookingStorage#TREE} respektive
+ * {@link BookingStorage#COMPACT}. Kör med:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Djmh.main=com.example.benchmark.BookingFootprintReport -Djmh.args=1000000
+ * </pre>
+ */
+public final class BookingFootprintReport {
+    private static final int ROOMS = 100;
+
+    private BookingFootprintReport() {
+    }
+
+    public static void main(String[] args) {
+        int bookings = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int perRoom = bookings / ROOMS;
+
+        report("HashSet<Booking>", bookings, ignored -> {
+            List<Set<Booking>> rooms = new ArrayList<>();
+            for (int r = 0; r < ROOMS; r++) {
+                Set<Booking> set = new HashSet<>();
+                for (int b = 0; b < perRoom; b++) {
+                    set.add(booking(r, b));
+                }
+                rooms.add(set);
+            }
+            return rooms;
+        });
+        for (BookingStorage storage : BookingStorage.values()) {
+            report("Room " + storage, bookings, ignored -> {
+                List<Room> rooms = new ArrayList<>();
+                for (int r = 0; r < ROOMS; r++) {
+                    Room room = new Room(BookingFixture.roomId(r), "Rum " + r, storage);
+                    for (int b = 0; b < perRoom; b++) {
+                        room.addBooking(booking(r, b));
+                    }
+                    rooms.add(room);
+                }
+                return rooms;
+            });
+        }
+    }
+
+    private static void report(String label, int bookings, IntFunction<Object> build) {
+        long before = usedHeap();
+        Object retained = build.apply(bookings);
+        long after = usedHeap();
+        System.out.printf("%-20s %,12d bokningar %,14d byte %8.1f byte/bokning%n",
+                label, bookings, after - before, (after - before) / (double) bookings);
+        if (retained.hashCode() == 42) {
+            System.out.println();
+        }
+    }
+
+    private static Booking booking(int room, int index) {
+        LocalDateTime start = BookingFixture.bookedSlot(index);
+        return new Booking(UUID.randomUUID().toString(), BookingFixture.roomId(room), start, start.plusHours(1));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.benchmark;
+
+import com.example.shop.CartSnapshotReader;
+import com.example.shop.CartSnapshotWriter;
+import com.example.shop.ShoppingCart;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of cart snapshots for the session store, compared
+ * with Java serialization of the same lines as a {@code HashMap<String, int[]>}.
+ * Snapshot sizes are printed by {@link CartSnapshotSizeReport}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartSnapshotBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int lines;
+
+    private ShoppingCart cart;
+    private String[] productIds;
+    private CartSnapshotWriter deltaWriter;
+    private ByteBuffer fullSnapshot;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        cart = CartSnapshotSizeReport.cart(lines);
+        productIds = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            productIds[i] = CartSnapshotSizeReport.productId(i);
+        }
+        deltaWriter = new CartSnapshotWriter();
+        deltaWriter.writeFull(cart);
+        fullSnapshot = ByteBuffer.wrap(new CartSnapshotWriter().writeFull(cart));
+    }
+
+    @Benchmark
+    public byte[] encodeFull() {
+        return new CartSnapshotWriter().writeFull(cart);
+    }
+
+    @Benchmark
+    public byte[] encodeDeltaAfterOneEdit() {
+        cart.updateQuantity(productIds[next++ % lines], 1 + (next & 7));
+        return deltaWriter.writeDelta(cart);
+    }
+
+    @Benchmark
+    public ShoppingCart decodeFull() {
+        CartSnapshotReader reader = new CartSnapshotReader();
+        reader.apply(fullSnapshot.duplicate());
+        return reader.toCart();
+    }
+
+    @Benchmark
+    public int decodeFullWithoutCart() {
+        CartSnapshotReader reader = new CartSnapshotReader();
+        reader.apply(fullSnapshot.duplicate());
+        return reader.getLineCount();
+    }
+
+    @Benchmark
+    public byte[] javaSerialization() throws IOException {
+        return CartSnapshotSizeReport.serialize(cart);
+    }
+
+    static HashMap<String, int[]> linesOf(ShoppingCart cart) {
+        HashMap<String, int[]> lines = new HashMap<>();
+        cart.forEachLine((productId, price, quantity) -> lines.put(productId, new int[] {price, quantity}));
+        return lines;
+    }
+
+    static byte[] serializeLines(HashMap<String, int[]> lines, ShoppingCart cart) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(lines);
+            out.writeInt(cart.getPercentageDiscount());
+            out.writeInt(cart.getFixedDiscount());
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.benchmark;
+
+import com.example.shop.CartSnapshotWriter;
+import com.example.shop.ShoppingCart;
+
+import java.io.IOException;
+
+/**
+ * Prints snapshot sizes for carts of different sizes: Java serialization,
+ * a full snapshot and a delta after one edit. Run with:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Djmh.main=com.example.benchmark.CartSnapshotSizeReport
+ * </pre>
+ */
+public final class CartSnapshotSizeReport {
+
+    private CartSnapshotSizeReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        for (int lines : new int[] {10, 100, 1_000}) {
+            ShoppingCart cart = cart(lines);
+            CartSnapshotWriter writer = new CartSnapshotWriter();
+            int full = writer.writeFull(cart).length;
+            cart.updateQuantity(productId(lines / 2), 5);
+            int delta = writer.writeDelta(cart).length;
+            System.out.printf("%,6d lines  java serialization %,8d bytes  full %,7d bytes  delta %,4d bytes%n",
+                    lines, serialize(cart).length, full, delta);
+        }
+    }
+
+    static ShoppingCart cart(int lines) {
+        ShoppingCart cart = new ShoppingCart();
+        for (int i = 0; i < lines; i++) {
+            cart.addItem(productId(i), 99 + i * 10);
+            cart.updateQuantity(productId(i), 1 + i % 3);
+        }
+        cart.applyPercentageDiscount(10);
+        return cart;
+    }
+
+    static String productId(int index) {
+        return "sku-" + (100_000 + index);
+    }
+
+    static byte[] serialize(ShoppingCart cart) throws IOException {
+        return CartSnapshotBenchmark.serializeLines(CartSnapshotBenchmark.linesOf(cart), cart);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.benchmark;
+
+import com.example.BookingRequest;
+import com.example.BookingResult;
+import com.example.BookingSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bokning och avbokning från flera trådar mot ett delat system. Kör med olika
+ * trådantal för att se hur genomströmningen skalar, t.ex.
+ * {@code -Djmh.args="ConcurrentBookingBenchmark -t 1"} och {@code -t 8}.
+ * Med få rum krockar trådarna på samma rumslås.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBookingBenchmark {
+
+    @Param({"4", "1000"})
+    int rooms;
+
+    @Param({"100"})
+    int bookingsPerRoom;
+
+    private BookingSystem system;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        system = BookingFixture.system(BookingFixture.rooms(rooms, bookingsPerRoom));
+    }
+
+    @Benchmark
+    public boolean bookAndCancelRoom(ThreadState state) {
+        String roomId = BookingFixture.roomId(state.random.nextInt(rooms));
+        LocalDateTime start = BookingFixture.freeSlot(state.random.nextInt(bookingsPerRoom));
+        List<BookingResult> results = system.bookRooms(List.of(
+                new BookingRequest(roomId, start, start.plusMinutes(30))));
+        BookingResult result = results.get(0);
+        return result.getStatus() == BookingResult.Status.BOOKED
+                && system.cancelBooking(result.getBooking().getId());
+    }
+}
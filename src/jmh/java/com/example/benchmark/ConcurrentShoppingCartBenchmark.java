@@ -0,0 +1,108 @@
+package com.example.benchmark;
+
+import com.example.shop.Cart;
+import com.example.shop.ConcurrentShoppingCart;
+import com.example.shop.ShoppingCart;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Edits of one shared cart from several threads. The {@code synchronized}
+ * variant wraps {@link ShoppingCart} in a single monitor as a baseline. Run
+ * with different thread counts, e.g.
+ * {@code -Djmh.args="ConcurrentShoppingCartBenchmark -t 1"} and {@code -t 8}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentShoppingCartBenchmark {
+
+    @Param({"synchronized", "concurrent"})
+    String implementation;
+
+    @Param({"1000"})
+    int lines;
+
+    private Cart cart;
+    private String[] productIds;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cart = implementation.equals("concurrent") ? new ConcurrentShoppingCart() : new SynchronizedCart();
+        productIds = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            productIds[i] = "product-" + i;
+            cart.addItem(productIds[i], 100 + i);
+        }
+    }
+
+    @Benchmark
+    public void addItem(ThreadState state) {
+        cart.addItem(productIds[state.random.nextInt(lines)], 100);
+    }
+
+    @Benchmark
+    public int updateQuantityAndGetTotal(ThreadState state) {
+        cart.updateQuantity(productIds[state.random.nextInt(lines)], 1 + state.random.nextInt(8));
+        return cart.getTotal();
+    }
+
+    private static final class SynchronizedCart implements Cart {
+        private final ShoppingCart delegate = new ShoppingCart();
+
+        @Override
+        public synchronized int getTotal() {
+            return delegate.getTotal();
+        }
+
+        @Override
+        public synchronized void addItem(String productId, int price) {
+            delegate.addItem(productId, price);
+        }
+
+        @Override
+        public synchronized void updateQuantity(String productId, int quantity) {
+            delegate.updateQuantity(productId, quantity);
+        }
+
+        @Override
+        public synchronized void removeItem(String productId) {
+            delegate.removeItem(productId);
+        }
+
+        @Override
+        public synchronized void applyPercentageDiscount(int discount) {
+            delegate.applyPercentageDiscount(discount);
+        }
+
+        @Override
+        public synchronized void applyFixedDiscount(int discountAmount) {
+            delegate.applyFixedDiscount(discountAmount);
+        }
+
+        @Override
+        public synchronized int getPercentageDiscount() {
+            return delegate.getPercentageDiscount();
+        }
+
+        @Override
+        public synchronized int getFixedDiscount() {
+            return delegate.getFixedDiscount();
+        }
+
+        @Override
+        public synchronized void forEachLine(LineConsumer consumer) {
+            delegate.forEachLine(consumer);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.benchmark;
+
+import com.example.payment.GroupCommitLedger;
+import com.example.payment.PaymentRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Genomströmning mot latens för {@link GroupCommitLedger} med olika
+ * satsstorlekar och väntetider. {@code appendBurst} skriver {@code burst}
+ * poster och väntar in alla (genomströmning); {@code appendAndWait} väntar på
+ * varje post för sig (latens per post, kör med flera {@code -t} för att se
+ * hur samtidiga skrivare delar på fsync).
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GroupCommitLedgerBenchmark {
+
+    @Param({"1", "16", "256"})
+    int maxBatchSize;
+
+    @Param({"0", "1"})
+    int maxBatchDelayMillis;
+
+    @Param({"1000"})
+    int burst;
+
+    private Path file;
+    private GroupCommitLedger ledger;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("payments", ".ledger");
+        Files.delete(file);
+        ledger = GroupCommitLedger.builder(file)
+                .maxBatchSize(maxBatchSize)
+                .maxBatchDelay(Duration.ofMillis(maxBatchDelayMillis))
+                .open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void appendBurst() {
+        CompletableFuture<?>[] acknowledgements = new CompletableFuture<?>[burst];
+        for (int i = 0; i < burst; i++) {
+            acknowledgements[i] = ledger.append(record());
+        }
+        CompletableFuture.allOf(acknowledgements).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void appendAndWait() {
+        ledger.append(record()).join();
+    }
+
+    private PaymentRecord record() {
+        long id = sequence.incrementAndGet();
+        return new PaymentRecord("order-" + id, "tx-" + id, 100);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.benchmark;
+
+import com.example.Booking;
+import com.example.JournalRoomRepository;
+import com.example.Room;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sparningar per sekund mot {@link JournalRoomRepository} (kör med olika
+ * {@code -t} för att se effekten av group commit) samt återställningstid för
+ * en journal med upp till en miljon bokningar.
+ */
+@Fork(1)
+public class JournalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SaveState {
+        @Param({"1000"})
+        int rooms;
+
+        Path journal;
+        JournalRoomRepository repository;
+        Room[] roomArray;
+        final AtomicLong sequence = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            journal = Files.createTempFile("rooms", ".journal");
+            repository = JournalRoomRepository.open(journal);
+            roomArray = new Room[rooms];
+            for (int i = 0; i < rooms; i++) {
+                roomArray[i] = new Room(BookingFixture.roomId(i), "Rum " + i);
+                repository.save(roomArray[i]);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            repository.close();
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @State(Scope.Benchmark)
+    public static class RecoveryState {
+        @Param({"100000", "1000000"})
+        int bookings;
+
+        Path journal;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            journal = Files.createTempFile("recovery", ".journal");
+            int rooms = 1000;
+            int perRoom = bookings / rooms;
+            try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+                for (int r = 0; r < rooms; r++) {
+                    String roomId = BookingFixture.roomId(r);
+                    Room room = new Room(roomId, "Rum " + r);
+                    for (int b = 0; b < perRoom; b++) {
+                        LocalDateTime start = BookingFixture.bookedSlot(b);
+                        room.addBooking(new Booking(roomId + "-" + b, roomId, start, start.plusHours(1)));
+                    }
+                    repository.save(room);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void save(SaveState state, ThreadState thread) {
+        Room room = state.roomArray[thread.random.nextInt(state.rooms)];
+        long n = state.sequence.incrementAndGet();
+        LocalDateTime start = BookingFixture.FIRST_BOOKING.plusMinutes(n);
+        room.addBooking(new Booking("b" + n, room.getId(), start, start));
+        state.repository.save(room);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int recover(RecoveryState state) throws IOException {
+        try (JournalRoomRepository repository = JournalRoomRepository.open(state.journal)) {
+            return repository.findAll().size();
+        }
+    }
+}
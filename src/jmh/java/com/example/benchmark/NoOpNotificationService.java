@@ -0,0 +1,15 @@
+package com.example.benchmark;
+
+import com.example.Booking;
+import com.example.NotificationService;
+
+class NoOpNotificationService implements NotificationService {
+
+    @Override
+    public void sendBookingConfirmation(Booking booking) {
+    }
+
+    @Override
+    public void sendCancellationConfirmation(Booking booking) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.benchmark;
+
+import com.example.payment.ChargeResponse;
+import com.example.payment.InMemoryPaymentLedger;
+import com.example.payment.PaymentGateway;
+import com.example.payment.PaymentProcessor;
+import com.example.payment.PaymentRequest;
+import com.example.payment.PaymentResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lasttest av hela betalningsflödet mot lokala ersättare: en betaltjänst med
+ * fast svarstid per anrop, en minnesjournal och en notifiering som inte gör
+ * något. Varje operation skickar {@code payments} betalningar och väntar in
+ * alla; genomströmningen är {@code payments} delat med tiden.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentProcessorBenchmark {
+
+    @Param({"1", "50"})
+    int batchSize;
+
+    @Param({"2000"})
+    int payments;
+
+    private PaymentProcessor processor;
+    private long next;
+
+    /** Svarar efter en fast fördröjning per anrop, oavsett satsens storlek. */
+    static final class SimulatedGateway implements PaymentGateway {
+        private final long latencyNanos;
+
+        SimulatedGateway(Duration latency) {
+            this.latencyNanos = latency.toNanos();
+        }
+
+        @Override
+        public List<ChargeResponse> charge(List<PaymentRequest> batch) {
+            LockSupport.parkNanos(latencyNanos);
+            List<ChargeResponse> responses = new ArrayList<>(batch.size());
+            for (PaymentRequest request : batch) {
+                responses.add(ChargeResponse.approved("tx-" + request.getIdempotencyKey()));
+            }
+            return responses;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        processor = PaymentProcessor.builder(new SimulatedGateway(Duration.ofMillis(2)),
+                        new InMemoryPaymentLedger(), (email, amount) -> { })
+                .batchSize(batchSize)
+                .maxBatchDelay(Duration.ofMillis(1))
+                .maxInFlight(16)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        processor.close();
+    }
+
+    @Benchmark
+    public int processPayments() {
+        List<CompletableFuture<PaymentResult>> results = new ArrayList<>(payments);
+        for (int i = 0; i < payments; i++) {
+            results.add(processor.submit(new PaymentRequest("order-" + next++, "user@example.com", 100)));
+        }
+        int succeeded = 0;
+        for (CompletableFuture<PaymentResult> result : results) {
+            if (result.join().isSuccess()) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+}
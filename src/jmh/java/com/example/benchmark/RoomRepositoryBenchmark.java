@@ -0,0 +1,63 @@
+package com.example.benchmark;
+
+import com.example.InMemoryRoomRepository;
+import com.example.Room;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Läsningar mot {@link InMemoryRoomRepository} medan en skrivtråd sparar rum.
+ * Kör med olika {@code -t} för att se hur läsningarna skalar med antalet kärnor.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomRepositoryBenchmark {
+
+    @Param({"1000", "20000"})
+    int rooms;
+
+    private InMemoryRoomRepository repository;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryRoomRepository();
+        for (int i = 0; i < rooms; i++) {
+            repository.save(new Room(BookingFixture.roomId(i), "Rum " + i));
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(2)
+    public Optional<Room> findById(ThreadState state) {
+        return repository.findById(BookingFixture.roomId(state.random.nextInt(rooms)));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void save(ThreadState state) {
+        int index = state.random.nextInt(rooms);
+        repository.save(new Room(BookingFixture.roomId(index), "Rum " + index));
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(2)
+    public List<Room> findAll() {
+        return repository.findAll();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.benchmark;
+
+import com.example.BookingRequest;
+import com.example.BookingResult;
+import com.example.ShardedBookingSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samma bokning och avbokning som {@link ConcurrentBookingBenchmark} men mot
+ * ett {@link ShardedBookingSystem}. Jämför de två med samma trådantal, t.ex.
+ * {@code -Djmh.args="ShardedBookingBenchmark.bookAndCancelRoom -t 8"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedBookingBenchmark {
+
+    @Param({"4", "1000"})
+    int rooms;
+
+    @Param({"100"})
+    int bookingsPerRoom;
+
+    @Param({"1", "4"})
+    int shards;
+
+    private ShardedBookingSystem system;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        system = ShardedBookingSystem.builder(() -> BookingFixture.NOW, new NoOpNotificationService())
+                .shards(shards)
+                .build();
+        BookingFixture.rooms(rooms, bookingsPerRoom).findAll().forEach(system::addRoom);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        system.close();
+    }
+
+    @Benchmark
+    public boolean bookAndCancelRoom(ThreadState state) {
+        String roomId = BookingFixture.roomId(state.random.nextInt(rooms));
+        LocalDateTime start = BookingFixture.freeSlot(state.random.nextInt(bookingsPerRoom));
+        List<BookingResult> results = system.bookRooms(List.of(
+                new BookingRequest(roomId, start, start.plusMinutes(30))));
+        BookingResult result = results.get(0);
+        return result.getStatus() == BookingResult.Status.BOOKED
+                && system.cancelBooking(result.getBooking().getId());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.benchmark;
+
+import com.example.shop.ShoppingCart;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShoppingCartBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int lines;
+
+    private ShoppingCart cart;
+    private String[] productIds;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        cart = new ShoppingCart();
+        productIds = new String[lines];
+        for (int i = 0; i < lines; i++) {
+            productIds[i] = "product-" + i;
+            cart.addItem(productIds[i], 100 + i);
+        }
+        cart.applyPercentageDiscount(10);
+    }
+
+    @Benchmark
+    public int getTotal() {
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public void addItem() {
+        cart.addItem(productIds[next++ % lines], 100);
+    }
+
+    @Benchmark
+    public int addItemAndGetTotal() {
+        cart.addItem(productIds[next++ % lines], 100);
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public int updateQuantityAndGetTotal() {
+        cart.updateQuantity(productIds[next++ % lines], 1 + (next & 7));
+        return cart.getTotal();
+    }
+}
@@ -0,0 +1,279 @@
+package com.example;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynkron {@link NotificationService} som lägger notifieringar i en begränsad
+ * kö och skickar dem via den underliggande tjänsten på virtuella trådar.
+ * Kön töms i satser om högst {@code batchSize}, men den underliggande
+ * tjänsten har inget satsanrop, så varje notifiering skickas för sig;
+ * satserna minskar bara hur ofta kötråden väcks. Misslyckade utskick görs om
+ * med exponentiell backoff, som växer till högst en minut eller den
+ * inledande väntetiden om den är längre, och en full kö hanteras enligt vald
+ * {@link BackpressurePolicy}.
+ */
+public class AsyncNotificationDispatcher implements NotificationService, AutoCloseable {
+
+    public enum BackpressurePolicy {
+        /** Anroparen väntar tills det finns plats i kön. */
+        BLOCK,
+        /** Den nya notifieringen kastas. */
+        DROP_NEWEST,
+        /** Den äldsta notifieringen i kön kastas för att ge plats åt den nya. */
+        DROP_OLDEST,
+        /** Anroparen skickar notifieringen själv, synkront. */
+        CALLER_RUNS
+    }
+
+    private enum Kind { BOOKING, CANCELLATION }
+
+    private static final long MAX_BACKOFF_MILLIS = Duration.ofMinutes(1).toMillis();
+
+    private static final class Task {
+        final Kind kind;
+        final Booking booking;
+
+        Task(Kind kind, Booking booking) {
+            this.kind = kind;
+            this.booking = booking;
+        }
+    }
+
+    private final NotificationService delegate;
+    private final BlockingQueue<Task> queue;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final BackpressurePolicy backpressurePolicy;
+    private final Semaphore inFlight;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread drainer;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+
+    private AsyncNotificationDispatcher(Builder builder) {
+        this.delegate = builder.delegate;
+        this.queue = new ArrayBlockingQueue<>(builder.capacity);
+        this.batchSize = builder.batchSize;
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffMillis = builder.initialBackoff.toMillis();
+        this.maxBackoffMillis = Math.max(initialBackoffMillis, MAX_BACKOFF_MILLIS);
+        this.backpressurePolicy = builder.backpressurePolicy;
+        this.inFlight = new Semaphore(builder.maxInFlight);
+        this.drainer = Thread.ofVirtual().name("notification-dispatcher").start(this::drain);
+    }
+
+    public static Builder builder(NotificationService delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public void sendBookingConfirmation(Booking booking) throws NotificationException {
+        enqueue(new Task(Kind.BOOKING, booking));
+    }
+
+    @Override
+    public void sendCancellationConfirmation(Booking booking) throws NotificationException {
+        enqueue(new Task(Kind.CANCELLATION, booking));
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Slutar ta emot notifieringar, skickar det som redan ligger i kön och
+     * väntar in pågående utskick.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        senders.close();
+    }
+
+    private void enqueue(Task task) throws NotificationException {
+        if (!running) {
+            throw new NotificationException("Notifieringskön är stängd");
+        }
+        switch (backpressurePolicy) {
+            case BLOCK -> {
+                try {
+                    queue.put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new NotificationException("Avbröts i väntan på plats i notifieringskön");
+                }
+            }
+            case DROP_NEWEST -> {
+                if (!queue.offer(task)) {
+                    dropped.incrementAndGet();
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(task)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+            }
+            case CALLER_RUNS -> {
+                if (!queue.offer(task)) {
+                    deliver(task);
+                }
+            }
+        }
+        // Kötråden kan ha slutat medan notifieringen lades i kön
+        if (!running && queue.remove(task)) {
+            throw new NotificationException("Notifieringskön är stängd");
+        }
+    }
+
+    private void drain() {
+        List<Task> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Task first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (Task task : batch) {
+                    inFlight.acquire();
+                    senders.execute(() -> {
+                        try {
+                            deliver(task);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(Task task) {
+        long backoffMillis = initialBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (task.kind == Kind.BOOKING) {
+                    delegate.sendBookingConfirmation(task.booking);
+                } else {
+                    delegate.sendCancellationConfirmation(task.booking);
+                }
+                sent.incrementAndGet();
+                return;
+            } catch (NotificationException | RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    failed.incrementAndGet();
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.incrementAndGet();
+                return;
+            }
+            backoffMillis = nextBackoffMillis(backoffMillis, maxBackoffMillis);
+        }
+    }
+
+    /** Dubblar väntetiden utan att gå över taket, även när en dubblering skulle flöda över. */
+    static long nextBackoffMillis(long backoffMillis, long maxBackoffMillis) {
+        return backoffMillis > maxBackoffMillis / 2 ? maxBackoffMillis : backoffMillis * 2;
+    }
+
+    public static final class Builder {
+        private final NotificationService delegate;
+        private int capacity = 10_000;
+        private int batchSize = 64;
+        private int maxInFlight = 64;
+        private int maxAttempts = 3;
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+
+        private Builder(NotificationService delegate) {
+            this.delegate = delegate;
+        }
+
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /** Högsta antal notifieringar som kötråden hämtar åt gången; de skickas ändå en och en. */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /** Högsta antal utskick som får pågå mot den underliggande tjänsten samtidigt. */
+        public Builder maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder initialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+            return this;
+        }
+
+        public Builder backpressurePolicy(BackpressurePolicy backpressurePolicy) {
+            this.backpressurePolicy = backpressurePolicy;
+            return this;
+        }
+
+        public AsyncNotificationDispatcher build() {
+            if (delegate == null) {
+                throw new IllegalArgumentException("Notifieringstjänst måste anges");
+            }
+            if (capacity < 1 || batchSize < 1 || maxInFlight < 1 || maxAttempts < 1) {
+                throw new IllegalArgumentException("Kapacitet, satsstorlek, samtidighet och antal försök måste vara minst 1");
+            }
+            if (initialBackoff == null || initialBackoff.isNegative()) {
+                throw new IllegalArgumentException("Väntetid mellan försök måste anges och kan inte vara negativ");
+            }
+            if (backpressurePolicy == null) {
+                throw new IllegalArgumentException("Hantering av full kö måste anges");
+            }
+            return new AsyncNotificationDispatcher(this);
+        }
+    }
+}
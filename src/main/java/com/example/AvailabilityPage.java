@@ -0,0 +1,30 @@
+package com.example;
+
+import java.util.List;
+
+/**
+ * En sida lediga rum i id-ordning. Fortsättningstoken skickas med i nästa
+ * anrop för att hämta följande sida och är {@code null} när inga fler rum
+ * finns att pröva.
+ */
+public class AvailabilityPage {
+    private final List<Room> rooms;
+    private final String continuationToken;
+
+    AvailabilityPage(List<Room> rooms, String continuationToken) {
+        this.rooms = rooms;
+        this.continuationToken = continuationToken;
+    }
+
+    public List<Room> getRooms() {
+        return rooms;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public boolean hasMore() {
+        return continuationToken != null;
+    }
+}
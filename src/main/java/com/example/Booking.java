@@ -7,16 +7,38 @@ public class Booking {
     private final String roomId;
     private final LocalDateTime startTime;
     private final LocalDateTime endTime;
+    // Avrundade så att jämförelser mot hela millisekunder blir exakta
+    private final long startMillisCeil;
+    private final long endMillisFloor;
 
     public Booking(String id, String roomId, LocalDateTime startTime, LocalDateTime endTime) {
         this.id = id;
         this.roomId = roomId;
         this.startTime = startTime;
         this.endTime = endTime;
+        // Saknade tider tolkas som obegränsade, så att bokningen aldrig ser ledig ut
+        this.startMillisCeil = startTime == null ? Long.MIN_VALUE : EpochMillis.ceil(startTime);
+        this.endMillisFloor = endTime == null ? Long.MAX_VALUE : EpochMillis.floor(endTime);
     }
 
     public boolean overlaps(LocalDateTime start, LocalDateTime end) {
-        return !endTime.isBefore(start) && !startTime.isAfter(end);
+        return (endTime == null || !endTime.isBefore(start)) && (startTime == null || !startTime.isAfter(end));
+    }
+
+    /**
+     * Samma kontroll som {@link #overlaps(LocalDateTime, LocalDateTime)} men med
+     * lokal epoktid i millisekunder, utan att skapa några objekt.
+     */
+    public boolean overlaps(long startEpochMillis, long endEpochMillis) {
+        return endMillisFloor >= startEpochMillis && startMillisCeil <= endEpochMillis;
+    }
+
+    long getStartMillisCeil() {
+        return startMillisCeil;
+    }
+
+    long getEndMillisFloor() {
+        return endMillisFloor;
     }
 
     public String getId() {
@@ -0,0 +1,32 @@
+package com.example;
+
+import java.util.OptionalInt;
+import java.util.UUID;
+
+/**
+ * Skapar id:n för nya bokningar. En generator som kodar in en nyckel för
+ * bokningens rum i id:t låter {@link BookingSystem} hitta rätt rum vid
+ * avbokning utan att indexera varje bokning.
+ */
+public interface BookingIdGenerator {
+
+    /** Slumpmässiga UUID:n, som före tidsordnade id:n. Bär ingen rumsnyckel. */
+    BookingIdGenerator RANDOM_UUID = roomId -> UUID.randomUUID().toString();
+
+    String nextId(String roomId);
+
+    /** @return {@code true} om id:n från {@link #nextId(String)} bär rummets nyckel */
+    default boolean encodesRoomKey() {
+        return false;
+    }
+
+    /** @return rumsnyckeln i id:t, eller tomt om id:t inte kommer från den här generatorn */
+    default OptionalInt roomKeyOf(String bookingId) {
+        return OptionalInt.empty();
+    }
+
+    /** Nyckeln som rummets id:n bär. Olika rum kan dela nyckel. */
+    default int roomKeyFor(String roomId) {
+        return roomId == null ? 0 : roomId.hashCode();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example;
+
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global uppslagning från boknings-id till rum-id så att avbokningar kan gå
+ * direkt till rätt rum i stället för att söka igenom alla rum. Id:n som bär
+ * sitt rums nyckel slås upp via nyckeln och behöver ingen egen post.
+ */
+class BookingIndex {
+    // Markerar en nyckel som flera rum delar; sådana id:n får sökas fram
+    private static final String AMBIGUOUS = new String("flera rum");
+
+    private final BookingIdGenerator idGenerator;
+    private final Map<String, String> roomIdByBookingId = new ConcurrentHashMap<>();
+    private final Map<Integer, String> roomIdByKey = new ConcurrentHashMap<>();
+
+    BookingIndex(BookingIdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    public String roomIdFor(String bookingId) {
+        String roomId = roomIdByBookingId.get(bookingId);
+        if (roomId != null) {
+            return roomId;
+        }
+        OptionalInt roomKey = idGenerator.roomKeyOf(bookingId);
+        if (roomKey.isEmpty()) {
+            return null;
+        }
+        roomId = roomIdByKey.get(roomKey.getAsInt());
+        return roomId == AMBIGUOUS ? null : roomId;
+    }
+
+    /** @return {@code true} om id:t bär en rumsnyckel men rummet inte är känt än */
+    public boolean hasUnknownRoomKey(String bookingId) {
+        OptionalInt roomKey = idGenerator.roomKeyOf(bookingId);
+        return roomKey.isPresent() && !roomIdByKey.containsKey(roomKey.getAsInt());
+    }
+
+    /** Indexerar en bokning vars id skapats av generatorn. */
+    public void put(Booking booking) {
+        put(booking.getId(), booking.getRoomId());
+    }
+
+    /** Indexerar en bokning eller bokningsserie vars id skapats av generatorn. */
+    public void put(String bookingId, String roomId) {
+        if (idGenerator.encodesRoomKey()) {
+            putRoom(roomId);
+        } else {
+            roomIdByBookingId.put(bookingId, roomId);
+        }
+    }
+
+    /** Indexerar alla rummets bokningar, även sådana som skapats utanför systemet. */
+    public void putAll(Room room) {
+        putRoom(room.getId());
+        for (Booking booking : room.getBookings()) {
+            roomIdByBookingId.put(booking.getId(), room.getId());
+        }
+    }
+
+    public void putRoom(String roomId) {
+        if (roomId != null && idGenerator.encodesRoomKey()) {
+            roomIdByKey.merge(idGenerator.roomKeyFor(roomId), roomId,
+                    (known, added) -> known.equals(added) ? known : AMBIGUOUS);
+        }
+    }
+
+    public void remove(String bookingId) {
+        roomIdByBookingId.remove(bookingId);
+    }
+}
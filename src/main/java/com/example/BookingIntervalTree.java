@@ -0,0 +1,297 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Balanserat intervallträd (AVL) över bokningar, sorterat på starttid och id.
+ * Varje nod håller den senaste sluttiden i sitt delträd så att
+ * överlappskontroller, insättning och borttagning går i O(log n).
+ */
+class BookingIntervalTree implements BookingStore {
+
+    // Saknad starttid sorteras först, som den obegränsade tid den står för
+    private static final Comparator<Booking> ORDER = Comparator
+            .comparing(Booking::getStartTime, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(Booking::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final class Node {
+        Booking booking;
+        Node left;
+        Node right;
+        int height = 1;
+        LocalDateTime maxEnd;
+        long maxEndMillis;
+
+        Node(Booking booking) {
+            this.booking = booking;
+            this.maxEnd = endOf(booking);
+            this.maxEndMillis = booking.getEndMillisFloor();
+        }
+    }
+
+    private final Map<String, Booking> bookingsById = new HashMap<>();
+    private Node root;
+    private int size;
+
+    @Override
+    public void add(Booking booking) {
+        Booking previous = bookingsById.put(booking.getId(), booking);
+        if (previous != null) {
+            root = delete(root, previous);
+        }
+        root = insert(root, booking);
+    }
+
+    @Override
+    public Booking remove(String bookingId) {
+        Booking booking = bookingsById.remove(bookingId);
+        if (booking != null) {
+            root = delete(root, booking);
+        }
+        return booking;
+    }
+
+    @Override
+    public Booking get(String bookingId) {
+        return bookingsById.get(bookingId);
+    }
+
+    @Override
+    public boolean contains(String bookingId) {
+        return bookingsById.containsKey(bookingId);
+    }
+
+    @Override
+    public boolean overlapsAny(LocalDateTime startTime, LocalDateTime endTime) {
+        Node node = root;
+        while (node != null) {
+            if (node.maxEnd.isBefore(startTime)) {
+                return false;
+            }
+            if (node.booking.overlaps(startTime, endTime)) {
+                return true;
+            }
+            if (node.left != null && !node.left.maxEnd.isBefore(startTime)) {
+                node = node.left;
+            } else if (startOf(node.booking).isAfter(endTime)) {
+                return false;
+            } else {
+                node = node.right;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean overlapsAny(long startEpochMillis, long endEpochMillis) {
+        Node node = root;
+        while (node != null) {
+            if (node.maxEndMillis < startEpochMillis) {
+                return false;
+            }
+            if (node.booking.overlaps(startEpochMillis, endEpochMillis)) {
+                return true;
+            }
+            if (node.left != null && node.left.maxEndMillis >= startEpochMillis) {
+                node = node.left;
+            } else if (node.booking.getStartMillisCeil() > endEpochMillis) {
+                return false;
+            } else {
+                node = node.right;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<Booking> findOverlapping(LocalDateTime startTime, LocalDateTime endTime) {
+        List<Booking> result = new ArrayList<>();
+        collectOverlapping(root, startTime, endTime, result);
+        return result;
+    }
+
+    @Override
+    public List<Booking> removeEndedBefore(LocalDateTime time) {
+        List<Booking> ended = new ArrayList<>();
+        collectEndedBefore(root, time, ended);
+        for (Booking booking : ended) {
+            bookingsById.remove(booking.getId());
+            root = delete(root, booking);
+        }
+        return ended;
+    }
+
+    @Override
+    public List<Booking> toList() {
+        List<Booking> result = new ArrayList<>(size);
+        collect(root, result);
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void collect(Node node, List<Booking> result) {
+        if (node == null) {
+            return;
+        }
+        collect(node.left, result);
+        result.add(node.booking);
+        collect(node.right, result);
+    }
+
+    private void collectEndedBefore(Node node, LocalDateTime time, List<Booking> result) {
+        if (node == null) {
+            return;
+        }
+        collectEndedBefore(node.left, time, result);
+        if (!startOf(node.booking).isBefore(time)) {
+            // Noden och hela högra delträdet börjar för sent för att ha slutat
+            return;
+        }
+        if (endOf(node.booking).isBefore(time)) {
+            result.add(node.booking);
+        }
+        collectEndedBefore(node.right, time, result);
+    }
+
+    private void collectOverlapping(Node node, LocalDateTime startTime, LocalDateTime endTime, List<Booking> result) {
+        if (node == null || node.maxEnd.isBefore(startTime)) {
+            return;
+        }
+        collectOverlapping(node.left, startTime, endTime, result);
+        if (startOf(node.booking).isAfter(endTime)) {
+            return;
+        }
+        if (node.booking.overlaps(startTime, endTime)) {
+            result.add(node.booking);
+        }
+        collectOverlapping(node.right, startTime, endTime, result);
+    }
+
+    private Node insert(Node node, Booking booking) {
+        if (node == null) {
+            size++;
+            return new Node(booking);
+        }
+        int cmp = ORDER.compare(booking, node.booking);
+        if (cmp < 0) {
+            node.left = insert(node.left, booking);
+        } else if (cmp > 0) {
+            node.right = insert(node.right, booking);
+        } else {
+            node.booking = booking;
+        }
+        return rebalance(node);
+    }
+
+    private Node delete(Node node, Booking booking) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = ORDER.compare(booking, node.booking);
+        if (cmp < 0) {
+            node.left = delete(node.left, booking);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, booking);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.booking = successor.booking;
+            node.right = deleteMin(node.right);
+        }
+        return rebalance(node);
+    }
+
+    private Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return rebalance(node);
+    }
+
+    private Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime maxEnd = endOf(node.booking);
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+        long maxEndMillis = node.booking.getEndMillisFloor();
+        if (node.left != null) {
+            maxEndMillis = Math.max(maxEndMillis, node.left.maxEndMillis);
+        }
+        if (node.right != null) {
+            maxEndMillis = Math.max(maxEndMillis, node.right.maxEndMillis);
+        }
+        node.maxEndMillis = maxEndMillis;
+    }
+
+    private static LocalDateTime startOf(Booking booking) {
+        return booking.getStartTime() == null ? LocalDateTime.MIN : booking.getStartTime();
+    }
+
+    private static LocalDateTime endOf(Booking booking) {
+        return booking.getEndTime() == null ? LocalDateTime.MAX : booking.getEndTime();
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link BookingMetricsListener} som samlar latens per operation i
+ * {@link LatencyHistogram}er och räknar utfall per operation med
+ * {@link LongAdder}, så att många trådar kan rapportera utan att trängas om
+ * samma räknare.
+ */
+public class BookingMetrics implements BookingMetricsListener {
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder[]> outcomes = new EnumMap<>(Operation.class);
+    private final LatencyHistogram lockWaits = new LatencyHistogram();
+    private final LongAdder notificationFailures = new LongAdder();
+
+    public BookingMetrics() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            LongAdder[] counters = new LongAdder[Outcome.values().length];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = new LongAdder();
+            }
+            outcomes.put(operation, counters);
+        }
+    }
+
+    @Override
+    public void operationCompleted(Operation operation, Outcome outcome, long durationNanos) {
+        latencies.get(operation).record(durationNanos);
+        outcomes.get(operation)[outcome.ordinal()].increment();
+    }
+
+    @Override
+    public void lockContended(long waitNanos) {
+        lockWaits.record(waitNanos);
+    }
+
+    @Override
+    public void notificationFailed(NotificationException exception) {
+        notificationFailures.increment();
+    }
+
+    public long getCount(Operation operation, Outcome outcome) {
+        return outcomes.get(operation)[outcome.ordinal()].sum();
+    }
+
+    /** Latens i nanosekunder för alla utfall av operationen. */
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /** Väntetid i nanosekunder för rumslås som var upptagna. */
+    public LatencyHistogram getLockWaits() {
+        return lockWaits;
+    }
+
+    public long getNotificationFailureCount() {
+        return notificationFailures.sum();
+    }
+}
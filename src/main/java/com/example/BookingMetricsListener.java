@@ -0,0 +1,41 @@
+package com.example;
+
+/**
+ * Tar emot mätvärden från {@link BookingSystem}. Alla metoder är tomma som
+ * standard; med {@link #NOOP} hoppar bokningssystemet över tidtagningen helt.
+ * Implementationer anropas på anroparens tråd och bör vara snabba och trådsäkra.
+ */
+public interface BookingMetricsListener {
+
+    BookingMetricsListener NOOP = new BookingMetricsListener() {
+    };
+
+    enum Operation {
+        BOOK_ROOM,
+        BOOK_ROOMS,
+        CANCEL_BOOKING,
+        GET_AVAILABLE_ROOMS,
+        FIND_AVAILABLE_SLOTS
+    }
+
+    enum Outcome {
+        SUCCESS,
+        /** Rummet var upptaget, eller bokningen som skulle avbokas fanns inte. */
+        REJECTED,
+        /** Ogiltig förfrågan, till exempel en tid i dåtid. */
+        INVALID,
+        /** Oväntat fel, till exempel från repositoryt. */
+        FAILED
+    }
+
+    default void operationCompleted(Operation operation, Outcome outcome, long durationNanos) {
+    }
+
+    /** Anropas när ett rumslås var upptaget, med tiden det tog att få låset. */
+    default void lockContended(long waitNanos) {
+    }
+
+    /** Anropas när en notifiering misslyckades och bokningen ändå genomfördes. */
+    default void notificationFailed(NotificationException exception) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.example;
+
+public class BookingResult {
+
+    public enum Status {
+        BOOKED,
+        UNAVAILABLE,
+        INVALID
+    }
+
+    private final BookingRequest request;
+    private final Status status;
+    private final Booking booking;
+    private final String message;
+
+    private BookingResult(BookingRequest request, Status status, Booking booking, String message) {
+        this.request = request;
+        this.status = status;
+        this.booking = booking;
+        this.message = message;
+    }
+
+    static BookingResult booked(BookingRequest request, Booking booking) {
+        return new BookingResult(request, Status.BOOKED, booking, null);
+    }
+
+    static BookingResult unavailable(BookingRequest request) {
+        return new BookingResult(request, Status.UNAVAILABLE, null, "Rummet är upptaget");
+    }
+
+    static BookingResult invalid(BookingRequest request, String message) {
+        return new BookingResult(request, Status.INVALID, null, message);
+    }
+
+    public BookingRequest getRequest() {
+        return request;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Booking getBooking() {
+        return booking;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example;
+
+/** Hur ett {@link Room} lagrar sina bokningar. */
+public enum BookingStorage {
+    /**
+     * Intervallträd med id-uppslag i en hashtabell. Alla operationer går i
+     * O(log n) eller bättre; förvalt.
+     */
+    TREE,
+    /**
+     * Primitiva parallella arrayer sorterade på starttid. Tar en bråkdel av
+     * minnet men insättning, borttagning och id-uppslag går i O(n);
+     * {@link Booking}-objekt skapas först när de lämnas ut.
+     */
+    COMPACT
+}
@@ -0,0 +1,39 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Lagring av ett rums bokningar. Bokningar identifieras på id; en ny bokning
+ * med ett befintligt id ersätter den gamla.
+ */
+interface BookingStore {
+
+    void add(Booking booking);
+
+    /** @return den borttagna bokningen, eller {@code null} om id:t saknas */
+    Booking remove(String bookingId);
+
+    /** @return bokningen, eller {@code null} om id:t saknas */
+    Booking get(String bookingId);
+
+    boolean contains(String bookingId);
+
+    boolean overlapsAny(LocalDateTime startTime, LocalDateTime endTime);
+
+    /** Som {@link #overlapsAny(LocalDateTime, LocalDateTime)} med lokal epoktid i millisekunder. */
+    boolean overlapsAny(long startEpochMillis, long endEpochMillis);
+
+    /** @return bokningar som överlappar intervallet, sorterade på starttid */
+    List<Booking> findOverlapping(LocalDateTime startTime, LocalDateTime endTime);
+
+    /**
+     * Tar bort och returnerar alla bokningar som slutar före den givna tiden.
+     */
+    List<Booking> removeEndedBefore(LocalDateTime time);
+
+    /** @return alla bokningar sorterade på starttid */
+    List<Booking> toList();
+
+    int size();
+}
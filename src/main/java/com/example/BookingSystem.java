@@ -1,62 +1,255 @@
 package com.example;
 
+import com.example.BookingMetricsListener.Operation;
+import com.example.BookingMetricsListener.Outcome;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class BookingSystem {
+    private static final Comparator<AvailableSlot> SLOT_ORDER = Comparator
+            .comparing(AvailableSlot::getStartTime)
+            .thenComparing(AvailableSlot::getRoomId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    // Delad instans som bara används för att fråga JFR om utskicken spelas in
+    private static final NotificationSendEvent NOTIFICATION_EVENTS = new NotificationSendEvent();
+
     private final TimeProvider timeProvider;
     private final RoomRepository roomRepository;
     private final NotificationService notificationService;
+    private final BookingIdGenerator idGenerator;
+    private final BookingIndex bookingIndex;
+    private final OccupancyIndex occupancyIndex;
+    private final RoomLocks roomLocks;
+    private final BookingMetricsListener metrics;
+    private final boolean metricsEnabled;
+    private final long slotGranularityNanos;
+    private volatile boolean occupancyIndexLoaded;
 
     public BookingSystem(TimeProvider timeProvider,
                          RoomRepository roomRepository,
                          NotificationService notificationService) {
-        this.timeProvider = timeProvider;
-        this.roomRepository = roomRepository;
-        this.notificationService = notificationService;
+        this(builder(timeProvider, roomRepository, notificationService));
+    }
+
+    private BookingSystem(Builder builder) {
+        this.timeProvider = builder.timeProvider;
+        this.roomRepository = builder.jfrRepositoryEvents
+                ? new JfrRoomRepository(builder.roomRepository)
+                : builder.roomRepository;
+        this.notificationService = builder.notificationService;
+        this.occupancyIndex = builder.occupancyIndex;
+        // En ensam skrivare äger sina rum och behöver inga rumslås
+        this.roomLocks = builder.singleWriter ? null : new RoomLocks(builder.lockStripes);
+        this.idGenerator = builder.bookingIdGenerator;
+        this.bookingIndex = new BookingIndex(builder.bookingIdGenerator);
+        this.metrics = builder.metricsListener;
+        this.metricsEnabled = builder.metricsListener != BookingMetricsListener.NOOP;
+        this.slotGranularityNanos = builder.slotGranularity.toNanos();
+    }
+
+    public static Builder builder(TimeProvider timeProvider,
+                                  RoomRepository roomRepository,
+                                  NotificationService notificationService) {
+        return new Builder(timeProvider, roomRepository, notificationService);
     }
 
     public boolean bookRoom(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
-        if (startTime == null || endTime == null || roomId == null) {
-            throw new IllegalArgumentException("Bokning kräver giltiga start- och sluttider samt rum-id");
+        long started = startTimer();
+        try {
+            boolean booked = book(roomId, startTime, endTime);
+            record(Operation.BOOK_ROOM, booked ? Outcome.SUCCESS : Outcome.REJECTED, started);
+            return booked;
+        } catch (RuntimeException e) {
+            record(Operation.BOOK_ROOM, outcomeOf(e), started);
+            throw e;
         }
+    }
 
-        if (startTime.isBefore(timeProvider.getCurrentTime())) {
-            throw new IllegalArgumentException("Kan inte boka tid i dåtid");
+    private boolean book(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        validateBooking(roomId, startTime, endTime);
+
+        Booking booking;
+        Lock lock = lockRoom(roomId);
+        try {
+            Room room = roomRepository.findById(roomId)
+                    .orElseThrow(() -> new IllegalArgumentException("Rummet existerar inte"));
+            room.archiveEndedIfDue(currentEpochMillis());
+
+            if (!room.isAvailable(startTime, endTime)) {
+                return false;
+            }
+
+            booking = addBooking(room, roomId, startTime, endTime);
+        } finally {
+            unlock(lock);
         }
 
-        if (endTime.isBefore(startTime)) {
+        notifyBooked(booking);
+        return true;
+    }
+
+    /**
+     * Som {@link #bookRoom(String, LocalDateTime, LocalDateTime)} men med lokal
+     * epoktid i millisekunder. Validering och tillgänglighetskontroll skapar
+     * inga objekt när tidskällan är en {@link EpochTimeProvider}, så avslag
+     * blir allokeringsfria; bara en lyckad bokning skapar sin {@link Booking}.
+     */
+    public boolean bookRoom(String roomId, long startEpochMillis, long endEpochMillis) {
+        long started = startTimer();
+        try {
+            boolean booked = book(roomId, startEpochMillis, endEpochMillis);
+            record(Operation.BOOK_ROOM, booked ? Outcome.SUCCESS : Outcome.REJECTED, started);
+            return booked;
+        } catch (RuntimeException e) {
+            record(Operation.BOOK_ROOM, outcomeOf(e), started);
+            throw e;
+        }
+    }
+
+    private boolean book(String roomId, long startEpochMillis, long endEpochMillis) {
+        if (roomId == null) {
+            throw new IllegalArgumentException("Bokning kräver giltiga start- och sluttider samt rum-id");
+        }
+        long now = currentEpochMillis();
+        if (startEpochMillis < now) {
+            throw new IllegalArgumentException("Kan inte boka tid i dåtid");
+        }
+        if (endEpochMillis < startEpochMillis) {
             throw new IllegalArgumentException("Sluttid måste vara efter starttid");
         }
 
-        Room room = roomRepository.findById(roomId)
-                .orElseThrow(() -> new IllegalArgumentException("Rummet existerar inte"));
+        Booking booking;
+        Lock lock = lockRoom(roomId);
+        try {
+            Room room = roomRepository.findById(roomId)
+                    .orElseThrow(() -> new IllegalArgumentException("Rummet existerar inte"));
+            room.archiveEndedIfDue(now);
 
-        if (!room.isAvailable(startTime, endTime)) {
-            return false;
+            if (!room.isAvailable(startEpochMillis, endEpochMillis)) {
+                return false;
+            }
+
+            booking = addBooking(room, roomId, EpochMillis.toLocalDateTime(startEpochMillis),
+                    EpochMillis.toLocalDateTime(endEpochMillis));
+        } finally {
+            unlock(lock);
         }
 
-        Booking booking = new Booking(UUID.randomUUID().toString(), roomId, startTime, endTime);
-        room.addBooking(booking);
-        roomRepository.save(room);
+        notifyBooked(booking);
+        return true;
+    }
 
+    /**
+     * Bokar många tider på en gång. Förfrågningarna grupperas per rum och varje
+     * rum hämtas och sparas en gång, så antalet repository-anrop styrs av antalet
+     * rum och inte antalet bokningar. Förfrågningar kontrolleras både mot
+     * befintliga bokningar och mot tidigare förfrågningar i samma anrop.
+     *
+     * @return ett resultat per förfrågan, i samma ordning som förfrågningarna
+     */
+    public List<BookingResult> bookRooms(List<BookingRequest> requests) {
+        long started = startTimer();
         try {
-            notificationService.sendBookingConfirmation(booking);
-        } catch (NotificationException e) {
-            // Fortsätt även om notifieringen misslyckas
+            List<BookingResult> results = bookAll(requests);
+            record(Operation.BOOK_ROOMS, Outcome.SUCCESS, started);
+            return results;
+        } catch (RuntimeException e) {
+            record(Operation.BOOK_ROOMS, outcomeOf(e), started);
+            throw e;
+        }
+    }
+
+    private List<BookingResult> bookAll(List<BookingRequest> requests) {
+        if (requests == null) {
+            throw new IllegalArgumentException("Bokningsförfrågningar kan inte vara null");
         }
 
-        return true;
+        BookingResult[] results = new BookingResult[requests.size()];
+        Map<String, List<Integer>> requestsByRoom = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = BookingResult.invalid(null, "Bokningsförfrågan kan inte vara null");
+                continue;
+            }
+            try {
+                validateBooking(request.getRoomId(), request.getStartTime(), request.getEndTime());
+                requestsByRoom.computeIfAbsent(request.getRoomId(), id -> new ArrayList<>()).add(i);
+            } catch (IllegalArgumentException e) {
+                results[i] = BookingResult.invalid(request, e.getMessage());
+            }
+        }
+
+        List<Booking> booked = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> entry : requestsByRoom.entrySet()) {
+            String roomId = entry.getKey();
+            Lock lock = lockRoom(roomId);
+            try {
+                Optional<Room> found = roomRepository.findById(roomId);
+                if (found.isEmpty()) {
+                    for (int i : entry.getValue()) {
+                        results[i] = BookingResult.invalid(requests.get(i), "Rummet existerar inte");
+                    }
+                    continue;
+                }
+
+                Room room = found.get();
+                room.archiveEndedIfDue(currentEpochMillis());
+                List<Booking> bookedInRoom = new ArrayList<>();
+                for (int i : entry.getValue()) {
+                    BookingRequest request = requests.get(i);
+                    if (!room.isAvailable(request.getStartTime(), request.getEndTime())) {
+                        results[i] = BookingResult.unavailable(request);
+                        continue;
+                    }
+                    Booking booking = new Booking(idGenerator.nextId(roomId), roomId,
+                            request.getStartTime(), request.getEndTime());
+                    room.addBooking(booking);
+                    bookedInRoom.add(booking);
+                    results[i] = BookingResult.booked(request, booking);
+                }
+
+                if (!bookedInRoom.isEmpty()) {
+                    roomRepository.save(room);
+                    for (Booking booking : bookedInRoom) {
+                        bookingIndex.put(booking);
+                        if (occupancyIndex != null) {
+                            occupancyIndex.bookingAdded(room, booking);
+                        }
+                    }
+                    booked.addAll(bookedInRoom);
+                }
+            } finally {
+                unlock(lock);
+            }
+        }
+
+        booked.forEach(this::notifyBooked);
+        return Arrays.asList(results);
     }
 
     public List<Room> getAvailableRooms(LocalDateTime startTime, LocalDateTime endTime) {
-        if (startTime == null || endTime == null) {
-            throw new IllegalArgumentException("Måste ange både start- och sluttid");
+        long started = startTimer();
+        try {
+            List<Room> rooms = findAvailableRooms(startTime, endTime);
+            record(Operation.GET_AVAILABLE_ROOMS, Outcome.SUCCESS, started);
+            return rooms;
+        } catch (RuntimeException e) {
+            record(Operation.GET_AVAILABLE_ROOMS, outcomeOf(e), started);
+            throw e;
         }
+    }
 
-        if (endTime.isBefore(startTime)) {
-            throw new IllegalArgumentException("Sluttid måste vara efter starttid");
+    private List<Room> findAvailableRooms(LocalDateTime startTime, LocalDateTime endTime) {
+        validateInterval(startTime, endTime);
+
+        if (occupancyIndex != null) {
+            loadOccupancyIndex();
+            return occupancyIndex.findAvailable(startTime, endTime);
         }
 
         return roomRepository.findAll().stream()
@@ -64,36 +257,646 @@ public class BookingSystem {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Lediga rum som en lat ström i id-ordning. Rummen prövas först när
+     * strömmen läses, så till exempel {@code limit(20)} slutar kontrollera
+     * tillgänglighet så fort tjugo lediga rum hittats.
+     */
+    public Stream<Room> streamAvailableRooms(LocalDateTime startTime, LocalDateTime endTime) {
+        validateInterval(startTime, endTime);
+        return roomRepository.findAllSortedById().stream()
+                .filter(room -> room.isAvailable(startTime, endTime));
+    }
+
+    /**
+     * Hämtar högst {@code limit} lediga rum i id-ordning, med start efter det
+     * rum som fortsättningstoken pekar på ({@code null} för första sidan).
+     * Ordningen är stabil mellan anrop även om rum läggs till under tiden.
+     */
+    public AvailabilityPage getAvailableRooms(LocalDateTime startTime, LocalDateTime endTime,
+                                              int limit, String continuationToken) {
+        long started = startTimer();
+        try {
+            AvailabilityPage page = findAvailableRooms(startTime, endTime, limit, continuationToken);
+            record(Operation.GET_AVAILABLE_ROOMS, Outcome.SUCCESS, started);
+            return page;
+        } catch (RuntimeException e) {
+            record(Operation.GET_AVAILABLE_ROOMS, outcomeOf(e), started);
+            throw e;
+        }
+    }
+
+    private AvailabilityPage findAvailableRooms(LocalDateTime startTime, LocalDateTime endTime,
+                                                int limit, String continuationToken) {
+        validateInterval(startTime, endTime);
+        if (limit < 1) {
+            throw new IllegalArgumentException("Sidstorleken måste vara minst 1");
+        }
+
+        List<Room> rooms = roomRepository.findAllSortedById();
+        int index = continuationToken == null ? 0 : firstIndexAfter(rooms, continuationToken);
+        List<Room> page = new ArrayList<>(Math.min(limit, rooms.size() - index));
+        for (; index < rooms.size() && page.size() < limit; index++) {
+            Room room = rooms.get(index);
+            if (room.isAvailable(startTime, endTime)) {
+                page.add(room);
+            }
+        }
+
+        String nextToken = index < rooms.size() ? rooms.get(index - 1).getId() : null;
+        return new AvailabilityPage(Collections.unmodifiableList(page), nextToken);
+    }
+
+    /** Tidigaste lediga tid av given längd i något rum, se {@link #findNextAvailableSlots}. */
+    public Optional<AvailableSlot> findNextAvailableSlot(Duration duration,
+                                                         LocalDateTime earliestStart, LocalDateTime latestEnd) {
+        List<AvailableSlot> slots = findNextAvailableSlots(duration, earliestStart, latestEnd, null, 1);
+        return slots.isEmpty() ? Optional.empty() : Optional.of(slots.get(0));
+    }
+
+    /**
+     * Hittar de {@code maxResults} tidigaste lediga tiderna av given längd
+     * inom fönstret. Varje rums bokningar i fönstret gås igenom i startordning
+     * och luckorna mellan dem blir kandidater; kandidaterna från alla rum slås
+     * ihop med en prioritetskö. Ett rum kan ge flera förslag, ett per lucka.
+     * Förslag efter en bokning börjar på första jämna steg av
+     * {@link Builder#slotGranularity} efter sluttiden, som standard nästa hela minut.
+     *
+     * @param roomIds rummen att söka i, eller {@code null} för alla rum
+     */
+    public List<AvailableSlot> findNextAvailableSlots(Duration duration, LocalDateTime earliestStart,
+                                                      LocalDateTime latestEnd, Collection<String> roomIds,
+                                                      int maxResults) {
+        long started = startTimer();
+        try {
+            List<AvailableSlot> slots = findSlots(duration, earliestStart, latestEnd, roomIds, maxResults);
+            record(Operation.FIND_AVAILABLE_SLOTS, Outcome.SUCCESS, started);
+            return slots;
+        } catch (RuntimeException e) {
+            record(Operation.FIND_AVAILABLE_SLOTS, outcomeOf(e), started);
+            throw e;
+        }
+    }
+
+    private List<AvailableSlot> findSlots(Duration duration, LocalDateTime earliestStart,
+                                          LocalDateTime latestEnd, Collection<String> roomIds, int maxResults) {
+        validateInterval(earliestStart, latestEnd);
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Längden måste vara positiv");
+        }
+        if (maxResults < 1) {
+            throw new IllegalArgumentException("Antal förslag måste vara minst 1");
+        }
+        LocalDateTime now = timeProvider.getCurrentTime();
+        LocalDateTime from = now != null && earliestStart.isBefore(now) ? now : earliestStart;
+
+        List<Room> rooms;
+        if (roomIds == null) {
+            rooms = roomRepository.findAll();
+        } else {
+            rooms = new ArrayList<>(roomIds.size());
+            for (String roomId : roomIds) {
+                rooms.add(roomRepository.findById(roomId)
+                        .orElseThrow(() -> new IllegalArgumentException("Rummet existerar inte")));
+            }
+        }
+
+        // Maxheap med de hittills tidigaste förslagen; toppen är det senaste av dem
+        PriorityQueue<AvailableSlot> earliest = new PriorityQueue<>(SLOT_ORDER.reversed());
+        for (Room room : rooms) {
+            collectFreeSlots(room, duration, from, latestEnd, maxResults, earliest);
+        }
+
+        List<AvailableSlot> result = new ArrayList<>(earliest);
+        result.sort(SLOT_ORDER);
+        return result;
+    }
+
     public boolean cancelBooking(String bookingId) {
+        long started = startTimer();
+        try {
+            boolean cancelled = cancel(bookingId);
+            record(Operation.CANCEL_BOOKING, cancelled ? Outcome.SUCCESS : Outcome.REJECTED, started);
+            return cancelled;
+        } catch (RuntimeException e) {
+            record(Operation.CANCEL_BOOKING, outcomeOf(e), started);
+            throw e;
+        }
+    }
+
+    private boolean cancel(String bookingId) {
         if (bookingId == null) {
             throw new IllegalArgumentException("Boknings-id kan inte vara null");
         }
 
-        Optional<Room> roomWithBooking = roomRepository.findAll().stream()
-                .filter(room -> room.hasBooking(bookingId))
-                .findFirst();
+        String roomId = bookingIndex.roomIdFor(bookingId);
+        if (roomId == null && bookingIndex.hasUnknownRoomKey(bookingId)) {
+            // Lär in rummens nycklar en gång i stället för att leta i varje rums bokningar
+            roomRepository.findAll().forEach(room -> bookingIndex.putRoom(room.getId()));
+            roomId = bookingIndex.roomIdFor(bookingId);
+        }
+        if (roomId == null) {
+            Optional<Room> scanned = scanForBooking(bookingId);
+            if (scanned.isEmpty()) {
+                return false;
+            }
+            roomId = scanned.get().getId();
+        }
+
+        Booking booking = null;
+        while (booking == null) {
+            Lock lock = lockRoom(roomId);
+            try {
+                // Slå upp igen under låset så att en samtidig avbokning eller bokning syns
+                Optional<Room> roomWithBooking = findRoomWithBooking(bookingId);
+
+                if (roomWithBooking.isEmpty()) {
+                    return false;
+                }
+
+                Room room = roomWithBooking.get();
+                if (!Objects.equals(room.getId(), roomId)) {
+                    // Bokningen låg i ett annat rum än det vi låste; försök igen med det rummets lås
+                    roomId = room.getId();
+                    continue;
+                }
+                Booking found = room.getBooking(bookingId);
+
+                if (isBeforeNow(found.getStartTime())) {
+                    throw new IllegalStateException("Kan inte avboka påbörjad eller avslutad bokning");
+                }
+
+                room.removeBooking(bookingId);
+                roomRepository.save(room);
+                bookingIndex.remove(bookingId);
+                if (occupancyIndex != null) {
+                    occupancyIndex.bookingRemoved(room, found);
+                }
+                booking = found;
+            } finally {
+                unlock(lock);
+            }
+        }
+
+        notify(booking, true);
+        return true;
+    }
+
+    /**
+     * Bokar en serie som lagras som en regel i rummet. Serien krockar om något
+     * av dess tillfällen överlappar en befintlig bokning eller serie; då bokas
+     * ingenting. Med ett beläggningsindex markeras tillfällena fram till
+     * indexets horisont.
+     *
+     * @return serien, eller tomt om rummet är upptaget vid något tillfälle
+     */
+    public Optional<RecurringBooking> bookRecurring(String roomId, LocalDateTime firstStart,
+                                                    LocalDateTime firstEnd, RecurrenceRule rule) {
+        validateBooking(roomId, firstStart, firstEnd);
+        if (rule == null) {
+            throw new IllegalArgumentException("Upprepningsregel måste anges");
+        }
+
+        RecurringBooking series;
+        Lock lock = lockRoom(roomId);
+        try {
+            Room room = roomRepository.findById(roomId)
+                    .orElseThrow(() -> new IllegalArgumentException("Rummet existerar inte"));
+            room.archiveEndedIfDue(currentEpochMillis());
+
+            series = new RecurringBooking(idGenerator.nextId(roomId), roomId, firstStart, firstEnd, rule);
+            if (!room.isAvailable(series)) {
+                return Optional.empty();
+            }
+
+            room.addRecurringBooking(series);
+            roomRepository.save(room);
+            bookingIndex.put(series.getId(), roomId);
+            if (occupancyIndex != null) {
+                occupancyIndex.recurringBookingAdded(room, series);
+            }
+        } finally {
+            unlock(lock);
+        }
+
+        notifyBooked(series.occurrence(0));
+        return Optional.of(series);
+    }
 
-        if (roomWithBooking.isEmpty()) {
+    /**
+     * Avslutar en serie. Tillfällen som redan har börjat ligger kvar; alla
+     * kommande tillfällen tas bort.
+     *
+     * @return {@code false} om serien inte finns
+     */
+    public boolean cancelRecurringBooking(String seriesId) {
+        if (seriesId == null) {
+            throw new IllegalArgumentException("Boknings-id kan inte vara null");
+        }
+
+        String roomId = bookingIndex.roomIdFor(seriesId);
+        if (roomId == null && bookingIndex.hasUnknownRoomKey(seriesId)) {
+            roomRepository.findAll().forEach(room -> bookingIndex.putRoom(room.getId()));
+            roomId = bookingIndex.roomIdFor(seriesId);
+        }
+        if (roomId == null) {
+            Optional<Room> scanned = roomRepository.findAll().stream()
+                    .filter(room -> room.hasRecurringBooking(seriesId))
+                    .findFirst();
+            if (scanned.isEmpty()) {
+                return false;
+            }
+            roomId = scanned.get().getId();
+        }
+
+        Booking firstCancelled;
+        Lock lock = lockRoom(roomId);
+        try {
+            Optional<Room> found = roomRepository.findById(roomId)
+                    .filter(room -> room.hasRecurringBooking(seriesId));
+            if (found.isEmpty()) {
+                return false;
+            }
+            Room room = found.get();
+            RecurringBooking series = room.getRecurringBooking(seriesId);
+            RecurringBooking kept = series.endingBefore(timeProvider.getCurrentTime());
+            if (kept == series) {
+                throw new IllegalStateException("Kan inte avboka påbörjad eller avslutad bokning");
+            }
+
+            room.removeRecurringBooking(seriesId);
+            if (kept != null) {
+                room.addRecurringBooking(kept);
+            } else {
+                bookingIndex.remove(seriesId);
+            }
+            roomRepository.save(room);
+
+            int firstRemoved = kept == null ? 0 : kept.getOccurrenceCount();
+            firstCancelled = series.occurrence(firstRemoved);
+            if (occupancyIndex != null) {
+                occupancyIndex.recurringBookingRemoved(room, series, firstRemoved);
+            }
+        } finally {
+            unlock(lock);
+        }
+
+        notify(firstCancelled, true);
+        return true;
+    }
+
+    /**
+     * Arkiverar avslutade bokningar i alla rum. Rum som bokas arkiveras också
+     * löpande, högst en gång per minut och rum; det här anropet kan
+     * schemaläggas för att hålla även rum utan nya bokningar små. Ett
+     * beläggningsindex släpper samtidigt sina luckor före nu.
+     *
+     * @return antal bokningar som arkiverades
+     */
+    public int archiveEndedBookings() {
+        LocalDateTime now = timeProvider.getCurrentTime();
+        int archived = 0;
+        for (Room room : roomRepository.findAll()) {
+            Lock lock = lockRoom(room.getId());
+            try {
+                archived += room.archiveEndedBefore(now);
+            } finally {
+                unlock(lock);
+            }
+        }
+        if (occupancyIndex != null) {
+            occupancyIndex.discardBefore(now);
+        }
+        return archived;
+    }
+
+    /**
+     * Går igenom rummets bokningar i fönstret i startordning och erbjuder varje
+     * lucka till heapen. En bokning upptar sitt intervall inklusive gränserna,
+     * så en lucka börjar på första hela {@code slotGranularity} efter
+     * föregående boknings slut och måste sluta före nästa boknings start. Genomgången avbryts när rummets luckor
+     * inte längre kan slå de förslag som redan finns.
+     */
+    private void collectFreeSlots(Room room, Duration duration, LocalDateTime from, LocalDateTime to,
+                                  int max, PriorityQueue<AvailableSlot> earliest) {
+        LocalDateTime candidate = from;
+        for (Booking booking : room.getBookingsOverlapping(from, to)) {
+            LocalDateTime candidateEnd = candidate.plus(duration);
+            if (candidateEnd.isAfter(to)) {
+                return;
+            }
+            if (candidateEnd.isBefore(booking.getStartTime())
+                    && !offer(earliest, new AvailableSlot(room.getId(), candidate, candidateEnd), max)) {
+                return;
+            }
+            LocalDateTime afterBooking = firstSlotStartAfter(booking.getEndTime());
+            if (afterBooking.isAfter(candidate)) {
+                candidate = afterBooking;
+            }
+        }
+        LocalDateTime candidateEnd = candidate.plus(duration);
+        if (!candidateEnd.isAfter(to)) {
+            offer(earliest, new AvailableSlot(room.getId(), candidate, candidateEnd), max);
+        }
+    }
+
+    /** @return första jämna {@code slotGranularity} efter {@code end}, som själv är upptagen */
+    private LocalDateTime firstSlotStartAfter(LocalDateTime end) {
+        long nanoOfDay = end.toLocalTime().toNanoOfDay();
+        return end.toLocalDate().atStartOfDay()
+                .plusNanos((nanoOfDay / slotGranularityNanos + 1) * slotGranularityNanos);
+    }
+
+    /** @return {@code false} om förslaget var för sent för att få plats bland de {@code max} tidigaste */
+    private static boolean offer(PriorityQueue<AvailableSlot> earliest, AvailableSlot slot, int max) {
+        if (earliest.size() < max) {
+            earliest.add(slot);
+            return true;
+        }
+        if (SLOT_ORDER.compare(slot, earliest.peek()) >= 0) {
             return false;
         }
+        earliest.poll();
+        earliest.add(slot);
+        return true;
+    }
 
-        Room room = roomWithBooking.get();
-        Booking booking = room.getBooking(bookingId);
+    private void validateInterval(LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime == null || endTime == null) {
+            throw new IllegalArgumentException("Måste ange både start- och sluttid");
+        }
+
+        if (endTime.isBefore(startTime)) {
+            throw new IllegalArgumentException("Sluttid måste vara efter starttid");
+        }
+    }
+
+    /** Index för första rummet vars id sorteras efter det givna, i en lista sorterad på id. */
+    private static int firstIndexAfter(List<Room> roomsSortedById, String roomId) {
+        int low = 0;
+        int high = roomsSortedById.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            String midId = roomsSortedById.get(mid).getId();
+            if (midId == null || midId.compareTo(roomId) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void validateBooking(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime == null || endTime == null || roomId == null) {
+            throw new IllegalArgumentException("Bokning kräver giltiga start- och sluttider samt rum-id");
+        }
 
-        if (booking.getStartTime().isBefore(timeProvider.getCurrentTime())) {
-            throw new IllegalStateException("Kan inte avboka påbörjad eller avslutad bokning");
+        if (isBeforeNow(startTime)) {
+            throw new IllegalArgumentException("Kan inte boka tid i dåtid");
         }
 
-        room.removeBooking(bookingId);
+        if (endTime.isBefore(startTime)) {
+            throw new IllegalArgumentException("Sluttid måste vara efter starttid");
+        }
+    }
+
+    // Anropas med rummets lås taget
+    private Booking addBooking(Room room, String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        Booking booking = new Booking(idGenerator.nextId(roomId), roomId, startTime, endTime);
+        room.addBooking(booking);
         roomRepository.save(room);
+        bookingIndex.put(booking);
+        if (occupancyIndex != null) {
+            occupancyIndex.bookingAdded(room, booking);
+        }
+        return booking;
+    }
+
+    private long currentEpochMillis() {
+        if (timeProvider instanceof EpochTimeProvider epochTimeProvider) {
+            return epochTimeProvider.currentEpochMillis();
+        }
+        // Avrunda uppåt så att "före nu" blir exakt även med delar av millisekunder
+        return EpochMillis.ceil(timeProvider.getCurrentTime());
+    }
+
+    private boolean isBeforeNow(LocalDateTime time) {
+        if (timeProvider instanceof EpochTimeProvider epochTimeProvider) {
+            return EpochMillis.floor(time) < epochTimeProvider.currentEpochMillis();
+        }
+        return time.isBefore(timeProvider.getCurrentTime());
+    }
 
+    private void notifyBooked(Booking booking) {
+        notify(booking, false);
+    }
+
+    private void notify(Booking booking, boolean cancellation) {
+        // Händelsen skapas bara när JFR spelar in den, annars kostar utskicket ingen allokering
+        NotificationSendEvent event = NOTIFICATION_EVENTS.isEnabled() ? new NotificationSendEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        boolean success = false;
         try {
-            notificationService.sendCancellationConfirmation(booking);
+            if (cancellation) {
+                notificationService.sendCancellationConfirmation(booking);
+            } else {
+                notificationService.sendBookingConfirmation(booking);
+            }
+            success = true;
         } catch (NotificationException e) {
             // Fortsätt även om notifieringen misslyckas
+            metrics.notificationFailed(e);
+        } finally {
+            if (event != null && event.shouldCommit()) {
+                event.kind = cancellation ? "cancellation" : "booking";
+                event.bookingId = booking.getId();
+                event.success = success;
+                event.commit();
+            }
         }
+    }
 
-        return true;
+    /** @return rummets lås, eller {@code null} för en ensam skrivare */
+    private Lock lockRoom(String roomId) {
+        if (roomLocks == null) {
+            return null;
+        }
+        Lock lock = roomLocks.lockFor(roomId);
+        if (!lock.tryLock()) {
+            long waitStarted = System.nanoTime();
+            lock.lock();
+            metrics.lockContended(System.nanoTime() - waitStarted);
+        }
+        return lock;
+    }
+
+    private static void unlock(Lock lock) {
+        if (lock != null) {
+            lock.unlock();
+        }
+    }
+
+    private long startTimer() {
+        return metricsEnabled ? System.nanoTime() : 0;
+    }
+
+    private void record(Operation operation, Outcome outcome, long started) {
+        if (metricsEnabled) {
+            metrics.operationCompleted(operation, outcome, System.nanoTime() - started);
+        }
+    }
+
+    private static Outcome outcomeOf(RuntimeException e) {
+        return e instanceof IllegalArgumentException || e instanceof IllegalStateException
+                ? Outcome.INVALID
+                : Outcome.FAILED;
+    }
+
+    private Optional<Room> findRoomWithBooking(String bookingId) {
+        String roomId = bookingIndex.roomIdFor(bookingId);
+        if (roomId != null) {
+            Optional<Room> indexed = roomRepository.findById(roomId)
+                    .filter(room -> room.hasBooking(bookingId));
+            if (indexed.isPresent()) {
+                return indexed;
+            }
+            bookingIndex.remove(bookingId);
+        }
+
+        return scanForBooking(bookingId);
+    }
+
+    private Optional<Room> scanForBooking(String bookingId) {
+        // Bokningar som sparats utanför systemet finns inte i indexet ännu
+        Optional<Room> scanned = roomRepository.findAll().stream()
+                .filter(room -> room.hasBooking(bookingId))
+                .findFirst();
+        scanned.ifPresent(bookingIndex::putAll);
+        return scanned;
+    }
+
+    private void loadOccupancyIndex() {
+        if (occupancyIndexLoaded) {
+            return;
+        }
+        synchronized (occupancyIndex) {
+            if (!occupancyIndexLoaded) {
+                LocalDateTime now = timeProvider.getCurrentTime();
+                if (now != null) {
+                    // Historiken behövs inte för frågor om framtiden
+                    occupancyIndex.discardBefore(now);
+                }
+                roomRepository.findAll().forEach(occupancyIndex::register);
+                occupancyIndexLoaded = true;
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final TimeProvider timeProvider;
+        private final RoomRepository roomRepository;
+        private final NotificationService notificationService;
+        private OccupancyIndex occupancyIndex;
+        private int lockStripes = 256;
+        private BookingMetricsListener metricsListener = BookingMetricsListener.NOOP;
+        private BookingIdGenerator bookingIdGenerator = new TimeOrderedBookingIdGenerator();
+        private boolean jfrRepositoryEvents;
+        private boolean singleWriter;
+        private Duration slotGranularity = Duration.ofMinutes(1);
+
+        private Builder(TimeProvider timeProvider,
+                        RoomRepository roomRepository,
+                        NotificationService notificationService) {
+            this.timeProvider = timeProvider;
+            this.roomRepository = roomRepository;
+            this.notificationService = notificationService;
+        }
+
+        /**
+         * Besvarar getAvailableRooms från ett beläggningsindex. Indexet fylls
+         * från repositoryt vid första frågan och uppdateras sedan vid varje
+         * bokning och avbokning; rum som skapas senare måste registreras via
+         * {@link OccupancyIndex#register(Room)} eller bokas via systemet.
+         */
+        public Builder occupancyIndex(OccupancyIndex occupancyIndex) {
+            this.occupancyIndex = occupancyIndex;
+            return this;
+        }
+
+        /**
+         * Antal randade lås som skyddar kontroll-och-bokning per rum. Fler lås
+         * minskar risken att olika rum delar lås under hög samtidighet.
+         */
+        public Builder lockStripes(int lockStripes) {
+            this.lockStripes = lockStripes;
+            return this;
+        }
+
+        /**
+         * Anger att alla anrop görs från en och samma tråd, som i en shard i
+         * {@link ShardedBookingSystem}. Rumslåsen stängs då av.
+         */
+        public Builder singleWriter(boolean singleWriter) {
+            this.singleWriter = singleWriter;
+            return this;
+        }
+
+        /**
+         * Tar emot latens per operation och utfall, väntetid på upptagna
+         * rumslås och misslyckade notifieringar, till exempel en {@link BookingMetrics}.
+         */
+        public Builder metricsListener(BookingMetricsListener metricsListener) {
+            this.metricsListener = metricsListener;
+            return this;
+        }
+
+        /**
+         * Registrerar varje repository-anrop som en JFR-händelse
+         * ({@code com.example.RepositoryCall}). Avstängt som standard eftersom
+         * händelseobjektet inte alltid optimeras bort på de snabbaste vägarna.
+         * Utskick av notifieringar registreras alltid.
+         */
+        public Builder jfrRepositoryEvents(boolean jfrRepositoryEvents) {
+            this.jfrRepositoryEvents = jfrRepositoryEvents;
+            return this;
+        }
+
+        /**
+         * Skapar id:n för nya bokningar. Standard är tidsordnade id:n som bär
+         * rummets nyckel, så att avbokningar hittar rummet utan ett index per bokning.
+         */
+        public Builder bookingIdGenerator(BookingIdGenerator bookingIdGenerator) {
+            this.bookingIdGenerator = bookingIdGenerator;
+            return this;
+        }
+
+        /**
+         * Tidsupplösning för förslag från {@link #findNextAvailableSlots}. Eftersom
+         * en boknings sluttid räknas som upptagen börjar ett förslag efter en
+         * bokning på nästa jämna steg; ett mindre steg ger mindre spill per lucka.
+         * Steget måste gå jämnt upp i ett dygn. Standard är en minut.
+         */
+        public Builder slotGranularity(Duration slotGranularity) {
+            this.slotGranularity = slotGranularity;
+            return this;
+        }
+
+        public BookingSystem build() {
+            if (slotGranularity == null || slotGranularity.isNegative() || slotGranularity.isZero()
+                    || Duration.ofDays(1).toNanos() % slotGranularity.toNanos() != 0) {
+                throw new IllegalArgumentException("Tidsupplösningen måste vara positiv och gå jämnt upp i ett dygn");
+            }
+            if (metricsListener == null) {
+                throw new IllegalArgumentException("Mätlyssnare kan inte vara null");
+            }
+            if (bookingIdGenerator == null) {
+                throw new IllegalArgumentException("Id-generator kan inte vara null");
+            }
+            return new BookingSystem(this);
+        }
     }
 }
 
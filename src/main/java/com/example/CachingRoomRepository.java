@@ -0,0 +1,309 @@
+package com.example;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache framför ett långsamt {@link RoomRepository}, till exempel ett som
+ * ligger i en annan tjänst. Rum hålls i en storleksbegränsad LRU-cache,
+ * {@link #save(Room)} skriver igenom till det underliggande repositoryt och
+ * samtidiga missar för samma rum ger bara ett anrop bakåt; de andra väntar
+ * på samma laddning. {@link #findAll()} läses bakåt en gång och hålls
+ * sedan som en egen lista som {@link #save(Room)} håller aktuell; listan
+ * räknas inte mot {@code maximumSize}, eftersom den ändå måste hålla alla rum.
+ */
+public class CachingRoomRepository implements RoomRepository {
+
+    private static final class Entry {
+        final Room room;
+        final long loadedAt;
+
+        Entry(Room room, long loadedAt) {
+            this.room = room;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final RoomRepository delegate;
+    private final long expireAfterWriteNanos;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<Optional<Room>>> loading = new ConcurrentHashMap<>();
+    // Listan från findAll och var varje rum ligger i den; byts ut, ändras aldrig på plats
+    private final Object allRoomsLock = new Object();
+    private List<Room> allRooms;
+    private Map<String, Integer> allRoomPositions;
+    private long allRoomsLoadedAt;
+    // Räknas upp vid varje skrivning så att en laddning som pågick under den inte sparas
+    private long allRoomsVersion;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private CachingRoomRepository(Builder builder) {
+        this.delegate = builder.delegate;
+        this.expireAfterWriteNanos = builder.expireAfterWrite == null
+                ? Long.MAX_VALUE
+                : builder.expireAfterWrite.toNanos();
+        int maximumSize = builder.maximumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static Builder builder(RoomRepository delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public Optional<Room> findById(String id) {
+        if (id == null) {
+            return delegate.findById(null);
+        }
+        Room cached = cached(id);
+        if (cached == null) {
+            cached = fromAllRooms(id);
+        }
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+
+        CompletableFuture<Optional<Room>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<Room>> ongoing = loading.putIfAbsent(id, load);
+        if (ongoing != null) {
+            return join(ongoing);
+        }
+        try {
+            loads.increment();
+            Optional<Room> room = delegate.findById(id);
+            // En sparning under laddningen är nyare än det som lästes
+            room.ifPresent(loaded -> cacheIfAbsent(id, loaded));
+            load.complete(room);
+            return room;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(id, load);
+        }
+    }
+
+    /**
+     * Läser alla rum från det underliggande repositoryt första gången och när
+     * listan har gått ut, annars ges den sparade listan. Rum som redan finns i
+     * cachen lämnas ut som samma objekt som {@link #findById(String)} ger;
+     * övriga läggs inte in i LRU-cachen, så att en genomläsning inte tränger
+     * undan de rum som används mest.
+     */
+    @Override
+    public List<Room> findAll() {
+        long version;
+        synchronized (allRoomsLock) {
+            if (allRooms != null && isFresh(allRoomsLoadedAt)) {
+                hits.increment();
+                return allRooms;
+            }
+            version = allRoomsVersion;
+        }
+        misses.increment();
+        loads.increment();
+        List<Room> rooms = new ArrayList<>(delegate.findAll());
+        Map<String, Room> cached = new HashMap<>();
+        synchronized (entries) {
+            // Genomgången ändrar inte LRU-ordningen, till skillnad från get
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (isFresh(entry.getValue().loadedAt)) {
+                    cached.put(entry.getKey(), entry.getValue().room);
+                }
+            }
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            Room room = cached.get(rooms.get(i).getId());
+            if (room != null) {
+                rooms.set(i, room);
+            }
+            positions.put(rooms.get(i).getId(), i);
+        }
+        List<Room> result = Collections.unmodifiableList(rooms);
+        synchronized (allRoomsLock) {
+            if (allRoomsVersion == version) {
+                allRooms = result;
+                allRoomPositions = positions;
+                allRoomsLoadedAt = System.nanoTime();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void save(Room room) {
+        delegate.save(room);
+        if (room == null || room.getId() == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(room.getId(), new Entry(room, System.nanoTime()));
+        }
+        synchronized (allRoomsLock) {
+            allRoomsVersion++;
+            if (allRooms != null) {
+                replaceOrAdd(room);
+            }
+        }
+    }
+
+    /** Tömmer cachen; nästa anrop läser från det underliggande repositoryt. */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        synchronized (allRoomsLock) {
+            allRoomsVersion++;
+            allRooms = null;
+            allRoomPositions = null;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** Antal anrop till det underliggande repositoryt för att läsa rum. */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int getCachedRoomCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Room cached(String id) {
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return null;
+            }
+            if (!isFresh(entry.loadedAt)) {
+                entries.remove(id);
+                return null;
+            }
+            return entry.room;
+        }
+    }
+
+    private Room fromAllRooms(String id) {
+        synchronized (allRoomsLock) {
+            if (allRooms == null || !isFresh(allRoomsLoadedAt)) {
+                return null;
+            }
+            Integer position = allRoomPositions.get(id);
+            return position == null ? null : allRooms.get(position);
+        }
+    }
+
+    /** Kopierar listan så att den som redan har fått den inte ser ändringen; anropas under allRoomsLock. */
+    private void replaceOrAdd(Room room) {
+        Integer position = allRoomPositions.get(room.getId());
+        if (position != null && allRooms.get(position) == room) {
+            return;
+        }
+        List<Room> rooms = new ArrayList<>(allRooms);
+        if (position != null) {
+            rooms.set(position, room);
+        } else {
+            allRoomPositions = new HashMap<>(allRoomPositions);
+            allRoomPositions.put(room.getId(), rooms.size());
+            rooms.add(room);
+        }
+        allRooms = Collections.unmodifiableList(rooms);
+    }
+
+    private void cacheIfAbsent(String id, Room room) {
+        synchronized (entries) {
+            entries.putIfAbsent(id, new Entry(room, System.nanoTime()));
+        }
+    }
+
+    private boolean isFresh(long loadedAt) {
+        return expireAfterWriteNanos == Long.MAX_VALUE || System.nanoTime() - loadedAt < expireAfterWriteNanos;
+    }
+
+    private static <T> T join(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public static final class Builder {
+        private final RoomRepository delegate;
+        private int maximumSize = 10_000;
+        private Duration expireAfterWrite;
+
+        private Builder(RoomRepository delegate) {
+            this.delegate = delegate;
+        }
+
+        /** Högsta antal rum i cachen; det minst nyligen använda rummet tas bort först. */
+        public Builder maximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Hur länge ett rum får användas efter att det lästes eller sparades. Utan värde gäller cachen tills den töms,
+         * vilket bara passar när alla skrivningar går via den här cachen.
+         */
+        public Builder expireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+            return this;
+        }
+
+        public CachingRoomRepository build() {
+            if (delegate == null) {
+                throw new IllegalArgumentException("Underliggande repository måste anges");
+            }
+            if (maximumSize < 1) {
+                throw new IllegalArgumentException("Cachens storlek måste vara minst 1");
+            }
+            if (expireAfterWrite != null && (expireAfterWrite.isNegative() || expireAfterWrite.isZero())) {
+                throw new IllegalArgumentException("Giltighetstiden måste vara positiv");
+            }
+            return new CachingRoomRepository(this);
+        }
+    }
+}
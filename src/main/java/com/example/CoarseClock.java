@@ -0,0 +1,78 @@
+package com.example;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Grov klocka där en bakgrundstråd uppdaterar en cachad lokal epoktid med
+ * given upplösning. {@link #currentEpochMillis()} läser bara ett fält och
+ * skapar inga objekt. Tidszonens förskjutning räknas om en gång per sekund så
+ * att övergångar till och från sommartid slår igenom.
+ */
+public class CoarseClock implements EpochTimeProvider, AutoCloseable {
+    private static final long OFFSET_REFRESH_MILLIS = 1_000;
+
+    private final ZoneId zone;
+    private final long resolutionNanos;
+    private final Thread ticker;
+    private volatile long currentMillis;
+    private volatile boolean running = true;
+    private long offsetMillis;
+    private long nextOffsetRefresh = Long.MIN_VALUE;
+
+    public CoarseClock() {
+        this(ZoneId.systemDefault(), Duration.ofMillis(1));
+    }
+
+    public CoarseClock(ZoneId zone, Duration resolution) {
+        if (zone == null || resolution == null || resolution.isNegative() || resolution.isZero()) {
+            throw new IllegalArgumentException("Tidszon och en positiv upplösning måste anges");
+        }
+        this.zone = zone;
+        this.resolutionNanos = resolution.toNanos();
+        tick();
+        this.ticker = Thread.ofPlatform().daemon().name("coarse-clock").start(this::run);
+    }
+
+    @Override
+    public long currentEpochMillis() {
+        return currentMillis;
+    }
+
+    @Override
+    public LocalDateTime getCurrentTime() {
+        return EpochMillis.toLocalDateTime(currentMillis);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(resolutionNanos);
+            tick();
+        }
+    }
+
+    // Anropas bara från konstruktorn och därefter från bakgrundstråden
+    private void tick() {
+        long now = System.currentTimeMillis();
+        if (now >= nextOffsetRefresh) {
+            offsetMillis = zone.getRules().getOffset(Instant.ofEpochMilli(now)).getTotalSeconds() * 1000L;
+            nextOffsetRefresh = now + OFFSET_REFRESH_MILLIS;
+        }
+        currentMillis = now + offsetMillis;
+    }
+}
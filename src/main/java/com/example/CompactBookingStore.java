@@ -0,0 +1,372 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Kompakt bokningslagring i parallella primitiva arrayer sorterade på
+ * starttid. Tider lagras som epoksekunder och nanosekunder, id:n i UUID-form
+ * som två {@code long}; övriga id:n sparas som strängar. En löpande maxsluttid
+ * gör att överlappskontroller går i O(log n) med binärsökning.
+ */
+class CompactBookingStore implements BookingStore {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final String roomId;
+    private long[] startSeconds = new long[INITIAL_CAPACITY];
+    private int[] startNanos = new int[INITIAL_CAPACITY];
+    private long[] endSeconds = new long[INITIAL_CAPACITY];
+    private int[] endNanos = new int[INITIAL_CAPACITY];
+    private long[] maxEndSeconds = new long[INITIAL_CAPACITY];
+    private int[] maxEndNanos = new int[INITIAL_CAPACITY];
+    private long[] idHigh = new long[INITIAL_CAPACITY];
+    private long[] idLow = new long[INITIAL_CAPACITY];
+    private String[] otherIds = new String[INITIAL_CAPACITY];
+    private int size;
+
+    CompactBookingStore(String roomId) {
+        this.roomId = roomId;
+    }
+
+    @Override
+    public void add(Booking booking) {
+        if (booking.getId() == null) {
+            throw new IllegalArgumentException("Boknings-id kan inte vara null");
+        }
+        int existing = indexOf(booking.getId());
+        if (existing >= 0) {
+            removeAt(existing);
+        }
+        insert(booking);
+    }
+
+    /**
+     * Lägger till en bokning vars id anroparen vet är nytt, utan dubblettkontroll.
+     * Bokningar som läggs till i stigande starttid hamnar sist utan att något flyttas.
+     */
+    void addNew(Booking booking) {
+        if (booking.getId() == null) {
+            throw new IllegalArgumentException("Boknings-id kan inte vara null");
+        }
+        insert(booking);
+    }
+
+    private void insert(Booking booking) {
+        ensureCapacity(size + 1);
+
+        // Saknade tider lagras som obegränsade och läses tillbaka som MIN respektive MAX
+        LocalDateTime start = booking.getStartTime() == null ? LocalDateTime.MIN : booking.getStartTime();
+        LocalDateTime end = booking.getEndTime() == null ? LocalDateTime.MAX : booking.getEndTime();
+        long startSecond = start.toEpochSecond(ZoneOffset.UTC);
+        int position = upperBound(startSecond, start.getNano());
+        shiftRight(position);
+
+        startSeconds[position] = startSecond;
+        startNanos[position] = start.getNano();
+        endSeconds[position] = end.toEpochSecond(ZoneOffset.UTC);
+        endNanos[position] = end.getNano();
+        UUID uuid = canonicalUuid(booking.getId());
+        if (uuid != null) {
+            idHigh[position] = uuid.getMostSignificantBits();
+            idLow[position] = uuid.getLeastSignificantBits();
+            otherIds[position] = null;
+        } else {
+            idHigh[position] = 0;
+            idLow[position] = 0;
+            otherIds[position] = booking.getId();
+        }
+        size++;
+        updateMaxEnd(position);
+    }
+
+    @Override
+    public Booking remove(String bookingId) {
+        int index = indexOf(bookingId);
+        if (index < 0) {
+            return null;
+        }
+        Booking booking = materialize(index);
+        removeAt(index);
+        return booking;
+    }
+
+    @Override
+    public Booking get(String bookingId) {
+        int index = indexOf(bookingId);
+        return index < 0 ? null : materialize(index);
+    }
+
+    /** Som {@link #get(String)} men letar bara bland bokningar med den givna starttiden. */
+    Booking get(String bookingId, LocalDateTime startTime) {
+        int index = indexOf(bookingId, startTime);
+        return index < 0 ? null : materialize(index);
+    }
+
+    /** Som {@link #remove(String)} men letar bara bland bokningar med den givna starttiden. */
+    Booking remove(String bookingId, LocalDateTime startTime) {
+        int index = indexOf(bookingId, startTime);
+        if (index < 0) {
+            return null;
+        }
+        Booking booking = materialize(index);
+        removeAt(index);
+        return booking;
+    }
+
+    @Override
+    public boolean contains(String bookingId) {
+        return indexOf(bookingId) >= 0;
+    }
+
+    @Override
+    public boolean overlapsAny(LocalDateTime startTime, LocalDateTime endTime) {
+        int last = upperBound(endTime.toEpochSecond(ZoneOffset.UTC), endTime.getNano()) - 1;
+        if (last < 0) {
+            return false;
+        }
+        return compare(maxEndSeconds[last], maxEndNanos[last],
+                startTime.toEpochSecond(ZoneOffset.UTC), startTime.getNano()) >= 0;
+    }
+
+    @Override
+    public boolean overlapsAny(long startEpochMillis, long endEpochMillis) {
+        int last = upperBound(Math.floorDiv(endEpochMillis, 1000), nanosOf(endEpochMillis)) - 1;
+        if (last < 0) {
+            return false;
+        }
+        return compare(maxEndSeconds[last], maxEndNanos[last],
+                Math.floorDiv(startEpochMillis, 1000), nanosOf(startEpochMillis)) >= 0;
+    }
+
+    @Override
+    public List<Booking> findOverlapping(LocalDateTime startTime, LocalDateTime endTime) {
+        long startSecond = startTime.toEpochSecond(ZoneOffset.UTC);
+        int startNano = startTime.getNano();
+        int last = upperBound(endTime.toEpochSecond(ZoneOffset.UTC), endTime.getNano());
+        List<Booking> result = new ArrayList<>();
+        // Den löpande maxsluttiden är stigande, så allt före first slutar före intervallet
+        for (int i = firstMaxEndAtOrAfter(startSecond, startNano); i < last; i++) {
+            if (compare(endSeconds[i], endNanos[i], startSecond, startNano) >= 0) {
+                result.add(materialize(i));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Booking> removeEndedBefore(LocalDateTime time) {
+        long second = time.toEpochSecond(ZoneOffset.UTC);
+        int nano = time.getNano();
+        int candidates = lowerBound(second, nano);
+        List<Booking> ended = new ArrayList<>();
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            if (read < candidates && compare(endSeconds[read], endNanos[read], second, nano) < 0) {
+                ended.add(materialize(read));
+                continue;
+            }
+            if (write != read) {
+                startSeconds[write] = startSeconds[read];
+                startNanos[write] = startNanos[read];
+                endSeconds[write] = endSeconds[read];
+                endNanos[write] = endNanos[read];
+                idHigh[write] = idHigh[read];
+                idLow[write] = idLow[read];
+                otherIds[write] = otherIds[read];
+            }
+            write++;
+        }
+        if (!ended.isEmpty()) {
+            Arrays.fill(otherIds, write, size, null);
+            size = write;
+            updateMaxEnd(0);
+        }
+        return ended;
+    }
+
+    @Override
+    public List<Booking> toList() {
+        List<Booking> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(materialize(i));
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int indexOf(String bookingId) {
+        if (bookingId == null) {
+            return -1;
+        }
+        UUID uuid = canonicalUuid(bookingId);
+        for (int i = 0; i < size; i++) {
+            if (matches(i, bookingId, uuid)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Binärsökning på starttiden, sedan bara bokningarna som börjar samtidigt
+    private int indexOf(String bookingId, LocalDateTime startTime) {
+        if (bookingId == null) {
+            return -1;
+        }
+        UUID uuid = canonicalUuid(bookingId);
+        LocalDateTime start = startTime == null ? LocalDateTime.MIN : startTime;
+        long second = start.toEpochSecond(ZoneOffset.UTC);
+        int nano = start.getNano();
+        for (int i = lowerBound(second, nano); i < size && startSeconds[i] == second && startNanos[i] == nano; i++) {
+            if (matches(i, bookingId, uuid)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(int index, String bookingId, UUID uuid) {
+        if (uuid != null) {
+            return idLow[index] == uuid.getLeastSignificantBits()
+                    && idHigh[index] == uuid.getMostSignificantBits()
+                    && otherIds[index] == null;
+        }
+        return bookingId.equals(otherIds[index]);
+    }
+
+    private Booking materialize(int index) {
+        String id = otherIds[index] != null
+                ? otherIds[index]
+                : new UUID(idHigh[index], idLow[index]).toString();
+        return new Booking(id, roomId,
+                LocalDateTime.ofEpochSecond(startSeconds[index], startNanos[index], ZoneOffset.UTC),
+                LocalDateTime.ofEpochSecond(endSeconds[index], endNanos[index], ZoneOffset.UTC));
+    }
+
+    /** Första index vars starttid är senare än den givna. */
+    private int upperBound(long second, int nano) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(startSeconds[mid], startNanos[mid], second, nano) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Första index vars starttid är samma som eller senare än den givna. */
+    private int lowerBound(long second, int nano) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(startSeconds[mid], startNanos[mid], second, nano) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int firstMaxEndAtOrAfter(long second, int nano) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(maxEndSeconds[mid], maxEndNanos[mid], second, nano) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void updateMaxEnd(int from) {
+        for (int i = from; i < size; i++) {
+            if (i > 0 && compare(maxEndSeconds[i - 1], maxEndNanos[i - 1], endSeconds[i], endNanos[i]) > 0) {
+                maxEndSeconds[i] = maxEndSeconds[i - 1];
+                maxEndNanos[i] = maxEndNanos[i - 1];
+            } else {
+                maxEndSeconds[i] = endSeconds[i];
+                maxEndNanos[i] = endNanos[i];
+            }
+        }
+    }
+
+    private void shiftRight(int position) {
+        int count = size - position;
+        System.arraycopy(startSeconds, position, startSeconds, position + 1, count);
+        System.arraycopy(startNanos, position, startNanos, position + 1, count);
+        System.arraycopy(endSeconds, position, endSeconds, position + 1, count);
+        System.arraycopy(endNanos, position, endNanos, position + 1, count);
+        System.arraycopy(idHigh, position, idHigh, position + 1, count);
+        System.arraycopy(idLow, position, idLow, position + 1, count);
+        System.arraycopy(otherIds, position, otherIds, position + 1, count);
+    }
+
+    private void removeAt(int index) {
+        int count = size - index - 1;
+        System.arraycopy(startSeconds, index + 1, startSeconds, index, count);
+        System.arraycopy(startNanos, index + 1, startNanos, index, count);
+        System.arraycopy(endSeconds, index + 1, endSeconds, index, count);
+        System.arraycopy(endNanos, index + 1, endNanos, index, count);
+        System.arraycopy(idHigh, index + 1, idHigh, index, count);
+        System.arraycopy(idLow, index + 1, idLow, index, count);
+        System.arraycopy(otherIds, index + 1, otherIds, index, count);
+        size--;
+        otherIds[size] = null;
+        updateMaxEnd(index);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= startSeconds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, startSeconds.length + (startSeconds.length >> 1));
+        startSeconds = Arrays.copyOf(startSeconds, newCapacity);
+        startNanos = Arrays.copyOf(startNanos, newCapacity);
+        endSeconds = Arrays.copyOf(endSeconds, newCapacity);
+        endNanos = Arrays.copyOf(endNanos, newCapacity);
+        maxEndSeconds = Arrays.copyOf(maxEndSeconds, newCapacity);
+        maxEndNanos = Arrays.copyOf(maxEndNanos, newCapacity);
+        idHigh = Arrays.copyOf(idHigh, newCapacity);
+        idLow = Arrays.copyOf(idLow, newCapacity);
+        otherIds = Arrays.copyOf(otherIds, newCapacity);
+    }
+
+    private static int nanosOf(long epochMillis) {
+        return Math.floorMod(epochMillis, 1000) * 1_000_000;
+    }
+
+    private static int compare(long secondA, int nanoA, long secondB, int nanoB) {
+        int bySecond = Long.compare(secondA, secondB);
+        return bySecond != 0 ? bySecond : Integer.compare(nanoA, nanoB);
+    }
+
+    /** Tolkar id:t som UUID bara om det står i kanonisk form, så att det kan återskapas exakt. */
+    static UUID canonicalUuid(String id) {
+        if (id.length() != 36 || id.charAt(8) != '-' || id.charAt(13) != '-'
+                || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
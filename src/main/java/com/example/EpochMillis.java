@@ -0,0 +1,38 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Omvandling mellan {@link LocalDateTime} och lokal epoktid i millisekunder,
+ * det vill säga millisekunder sedan 1970-01-01T00:00 i samma lokala tid som
+ * bokningarna. Värden utanför {@code long} mättas till min- respektive maxvärdet.
+ */
+final class EpochMillis {
+    private static final long MAX_SECONDS = Long.MAX_VALUE / 1000 - 1;
+    private static final long MIN_SECONDS = Long.MIN_VALUE / 1000 + 1;
+
+    private EpochMillis() {
+    }
+
+    static long floor(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        if (seconds > MAX_SECONDS) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds < MIN_SECONDS) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * 1000 + time.getNano() / 1_000_000;
+    }
+
+    static long ceil(LocalDateTime time) {
+        long millis = floor(time);
+        return time.getNano() % 1_000_000 != 0 && millis != Long.MAX_VALUE ? millis + 1 : millis;
+    }
+
+    static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+                Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
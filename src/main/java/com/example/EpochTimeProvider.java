@@ -0,0 +1,11 @@
+package com.example;
+
+/**
+ * {@link TimeProvider} som även kan ge aktuell tid som lokal epoktid i
+ * millisekunder, det vill säga millisekunder sedan 1970-01-01T00:00 i samma
+ * lokala tid som {@link #getCurrentTime()}. Används av bokningsvägar som
+ * inte ska skapa objekt per anrop.
+ */
+public interface EpochTimeProvider extends TimeProvider {
+    long currentEpochMillis();
+}
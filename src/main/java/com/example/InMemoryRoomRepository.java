@@ -0,0 +1,81 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Minnesbaserad {@link RoomRepository} med copy-on-write. Läsningar går mot en
+ * oföränderlig ögonblicksbild utan lås och utan att listan kopieras per anrop;
+ * en {@link #save(Room)} av ett nytt rum publicerar en ny ögonblicksbild.
+ * <p>
+ * Ögonblicksbilden gäller bara vilka rum som finns. Rummen själva ändras på
+ * plats av {@link BookingSystem}, så en läsare kan se en bokning av flera rum
+ * halvvägs. {@link Room#snapshot()} ger ett enskilt rums bokningar i ett fast
+ * läge, men över flera rum finns ingen gemensam tidpunkt.
+ */
+public class InMemoryRoomRepository implements RoomRepository {
+
+    private static final class Snapshot {
+        final Map<String, Room> roomsById;
+        final List<Room> rooms;
+        final List<Room> roomsSortedById;
+
+        Snapshot(Map<String, Room> roomsById, List<Room> rooms, List<Room> roomsSortedById) {
+            this.roomsById = roomsById;
+            this.rooms = rooms;
+            this.roomsSortedById = roomsSortedById;
+        }
+    }
+
+    private static final Comparator<Room> BY_ID = Comparator.comparing(Room::getId);
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), List.of(), List.of());
+
+    @Override
+    public Optional<Room> findById(String id) {
+        return Optional.ofNullable(snapshot.roomsById.get(id));
+    }
+
+    @Override
+    public List<Room> findAll() {
+        return snapshot.rooms;
+    }
+
+    /** Den sorterade listan hålls i ögonblicksbilden och kopieras inte per anrop. */
+    @Override
+    public List<Room> findAllSortedById() {
+        return snapshot.roomsSortedById;
+    }
+
+    @Override
+    public synchronized void save(Room room) {
+        if (room == null || room.getId() == null) {
+            throw new IllegalArgumentException("Rum och rum-id kan inte vara null");
+        }
+        Snapshot current = snapshot;
+        Room existing = current.roomsById.get(room.getId());
+        if (existing == room) {
+            // Rummet är redan publicerat; bokningar ändras direkt på objektet
+            return;
+        }
+
+        Map<String, Room> roomsById = new HashMap<>(current.roomsById);
+        roomsById.put(room.getId(), room);
+        List<Room> rooms = new ArrayList<>(current.rooms);
+        List<Room> sorted = new ArrayList<>(current.roomsSortedById);
+        if (existing == null) {
+            rooms.add(room);
+            sorted.add(-Collections.binarySearch(sorted, room, BY_ID) - 1, room);
+        } else {
+            rooms.set(rooms.indexOf(existing), room);
+            sorted.set(Collections.binarySearch(sorted, room, BY_ID), room);
+        }
+        snapshot = new Snapshot(Collections.unmodifiableMap(roomsById),
+                Collections.unmodifiableList(rooms), Collections.unmodifiableList(sorted));
+    }
+}
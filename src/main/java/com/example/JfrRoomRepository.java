@@ -0,0 +1,69 @@
+package com.example;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Skickar vidare till ett annat {@link RoomRepository} och registrerar varje
+ * anrop som en {@link RepositoryCallEvent}. Utan en aktiv JFR-inspelning
+ * kostar händelserna i stort sett ingenting.
+ */
+final class JfrRoomRepository implements RoomRepository {
+    private final RoomRepository delegate;
+
+    JfrRoomRepository(RoomRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Optional<Room> findById(String id) {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        event.begin();
+        try {
+            return delegate.findById(id);
+        } finally {
+            commit(event, "findById", id);
+        }
+    }
+
+    @Override
+    public List<Room> findAll() {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        event.begin();
+        try {
+            return delegate.findAll();
+        } finally {
+            commit(event, "findAll", null);
+        }
+    }
+
+    @Override
+    public List<Room> findAllSortedById() {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        event.begin();
+        try {
+            return delegate.findAllSortedById();
+        } finally {
+            commit(event, "findAllSortedById", null);
+        }
+    }
+
+    @Override
+    public void save(Room room) {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        event.begin();
+        try {
+            delegate.save(room);
+        } finally {
+            commit(event, "save", room == null ? null : room.getId());
+        }
+    }
+
+    private static void commit(RepositoryCallEvent event, String operation, String roomId) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.roomId = roomId;
+            event.commit();
+        }
+    }
+}
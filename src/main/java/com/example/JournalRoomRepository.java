@@ -0,0 +1,458 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Beständig {@link RoomRepository} som skriver rum, bokningar, bokningsserier
+ * och avbokningar som poster i en minnesmappad journal som bara växer framåt.
+ * <p>
+ * Läsningar besvaras från minnet. En {@link #save(Room)} skriver de bokningar
+ * som lagts till eller tagits bort sedan rummet senast sparades, så en
+ * sparning kostar i proportion till ändringarna och inte till rummets storlek.
+ * Den returnerar först när posterna är synkade till disk; samtidiga anrop
+ * delar på samma fsync (group commit). Rummets lagringsform sparas med rummet.
+ * När mer än hälften av journalen består av avbokade poster skrivs den om
+ * (kompaktering). Vid start spelas journalen upp till rum och bokningar.
+ */
+public class JournalRoomRepository implements RoomRepository, AutoCloseable {
+    private static final int MAGIC = 0x524F4A31;
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_OVERHEAD = 1 + 4 + 4;
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    private static final long DEFAULT_MIN_COMPACTION_BYTES = 64L << 20;
+
+    private static final byte ROOM = 1;
+    private static final byte BOOK = 2;
+    private static final byte CANCEL = 3;
+    private static final byte SERIES = 4;
+
+    private final Path path;
+    private final long minCompactionBytes;
+    private final InMemoryRoomRepository rooms = new InMemoryRoomRepository();
+    private record RoomHeader(String name, BookingStorage storage) {
+    }
+
+    private final Map<String, RoomHeader> persistedHeaders = new HashMap<>();
+    // Antal tillfällen per serie, så att en förkortad serie skrivs på nytt
+    private final Map<String, Map<String, Integer>> persistedSeries = new HashMap<>();
+    private final Object syncLock = new Object();
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private volatile long writePosition;
+    private long durablePosition;
+    private long deadBytes;
+
+    private JournalRoomRepository(Path path, long minCompactionBytes) throws IOException {
+        this.path = path;
+        this.minCompactionBytes = minCompactionBytes;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            verifyHeader();
+            map(Math.max(INITIAL_CAPACITY, channel.size()));
+            replay();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static JournalRoomRepository open(Path path) throws IOException {
+        return new JournalRoomRepository(path, DEFAULT_MIN_COMPACTION_BYTES);
+    }
+
+    /**
+     * @param minCompactionBytes journalen kompakteras aldrig innan den är minst så här stor
+     */
+    public static JournalRoomRepository open(Path path, long minCompactionBytes) throws IOException {
+        return new JournalRoomRepository(path, minCompactionBytes);
+    }
+
+    @Override
+    public Optional<Room> findById(String id) {
+        return rooms.findById(id);
+    }
+
+    @Override
+    public List<Room> findAll() {
+        return rooms.findAll();
+    }
+
+    @Override
+    public void save(Room room) {
+        if (room == null || room.getId() == null) {
+            throw new IllegalArgumentException("Rum och rum-id kan inte vara null");
+        }
+        long position;
+        boolean compact;
+        synchronized (this) {
+            appendChanges(room);
+            rooms.save(room);
+            position = writePosition;
+            compact = writePosition >= minCompactionBytes && deadBytes * 2 > writePosition;
+        }
+        awaitDurable(position);
+        if (compact) {
+            compact();
+        }
+    }
+
+    /**
+     * Skriver om journalen så att den bara innehåller rum och bokningar som
+     * finns kvar, och byter atomiskt ut den gamla filen.
+     */
+    public void compact() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                try {
+                    Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+                    try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).flip();
+                        out.write(header);
+                        for (Room room : rooms.findAll()) {
+                            out.write(encode(ROOM, roomRecord(room)));
+                            for (Booking booking : room.getBookings()) {
+                                out.write(encode(BOOK, bookRecord(room.getId(), booking)));
+                            }
+                            for (RecurringBooking series : room.getRecurringBookings()) {
+                                out.write(encode(SERIES, seriesRecord(room.getId(), series)));
+                            }
+                        }
+                        out.force(true);
+                    }
+                    channel.close();
+                    Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    writePosition = channel.size();
+                    durablePosition = writePosition;
+                    deadBytes = 0;
+                    map(Math.max(INITIAL_CAPACITY, writePosition * 2));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Kunde inte kompaktera journalen", e);
+                }
+            }
+        }
+    }
+
+    public long getJournalSize() {
+        return writePosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                buffer.force();
+                channel.truncate(writePosition);
+                channel.force(true);
+                channel.close();
+            }
+        }
+    }
+
+    private void appendChanges(Room room) {
+        String roomId = room.getId();
+        RoomHeader header = new RoomHeader(room.getName(), room.getStorage());
+        if (!header.equals(persistedHeaders.get(roomId))) {
+            append(ROOM, roomRecord(room));
+            persistedHeaders.put(roomId, header);
+        }
+
+        List<Room.BookingChange> changes = room.drainChanges();
+        if (changes != null) {
+            for (Room.BookingChange change : changes) {
+                if (change.added() != null) {
+                    append(BOOK, bookRecord(roomId, change.added()));
+                } else {
+                    appendCancel(roomId, change.removedId());
+                }
+            }
+        } else {
+            // Första gången rummets objekt sparas: jämför en gång med det som redan är sparat
+            Optional<Room> previous = rooms.findById(roomId).filter(existing -> existing != room);
+            Set<String> persisted = new HashSet<>();
+            previous.ifPresent(existing -> existing.getBookings().forEach(booking -> persisted.add(booking.getId())));
+            for (Booking booking : room.getBookings()) {
+                if (!persisted.remove(booking.getId())) {
+                    append(BOOK, bookRecord(roomId, booking));
+                }
+            }
+            for (String bookingId : persisted) {
+                appendCancel(roomId, bookingId);
+            }
+            room.trackChanges();
+        }
+
+        Map<String, Integer> persistedCounts = persistedSeries.computeIfAbsent(roomId, id -> new HashMap<>());
+        Map<String, Integer> currentCounts = new HashMap<>();
+        for (RecurringBooking series : room.getRecurringBookings()) {
+            currentCounts.put(series.getId(), series.getOccurrenceCount());
+            Integer persistedCount = persistedCounts.get(series.getId());
+            if (persistedCount == null || persistedCount != series.getOccurrenceCount()) {
+                byte[] record = seriesRecord(roomId, series);
+                append(SERIES, record);
+                if (persistedCount != null) {
+                    deadBytes += record.length + RECORD_OVERHEAD;
+                }
+            }
+        }
+        for (String seriesId : persistedCounts.keySet()) {
+            if (!currentCounts.containsKey(seriesId)) {
+                appendCancel(roomId, seriesId);
+            }
+        }
+        persistedSeries.put(roomId, currentCounts);
+    }
+
+    private void appendCancel(String roomId, String bookingId) {
+        byte[] cancel = cancelRecord(roomId, bookingId);
+        append(CANCEL, cancel);
+        // Både bokningsposten och avbokningsposten blir överflödiga
+        deadBytes += 2L * (cancel.length + RECORD_OVERHEAD) + 24;
+    }
+
+    private void append(byte type, byte[] payload) {
+        int length = payload.length + RECORD_OVERHEAD;
+        if (writePosition + length > buffer.capacity()) {
+            if (writePosition + length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Journalen är full; kompaktera eller byt fil");
+            }
+            long capacity = Math.min(Integer.MAX_VALUE, Math.max(buffer.capacity() * 2L, writePosition + length));
+            try {
+                map(capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Kunde inte utöka journalen", e);
+            }
+        }
+        int position = (int) writePosition;
+        buffer.put(position, type);
+        buffer.putInt(position + 1, payload.length);
+        buffer.put(position + 5, payload);
+        buffer.putInt(position + 5 + payload.length, checksum(type, payload));
+        writePosition += length;
+    }
+
+    private void awaitDurable(long position) {
+        synchronized (syncLock) {
+            if (durablePosition >= position) {
+                return;
+            }
+            // Läs positionen före bufferten; en utökad mappning publiceras före positionen
+            long target = writePosition;
+            MappedByteBuffer mapped = buffer;
+            if (target > durablePosition) {
+                mapped.force((int) durablePosition, (int) (target - durablePosition));
+                durablePosition = target;
+            }
+        }
+    }
+
+    private void map(long capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void replay() throws IOException {
+        if (buffer.getInt(0) == 0) {
+            buffer.putInt(0, MAGIC);
+            writePosition = HEADER_SIZE;
+            buffer.force();
+            durablePosition = writePosition;
+            return;
+        }
+        Map<String, Room> replayed = new HashMap<>();
+        int position = HEADER_SIZE;
+        while (position + RECORD_OVERHEAD <= buffer.capacity()) {
+            byte type = buffer.get(position);
+            int length = buffer.getInt(position + 1);
+            if (type < ROOM || type > SERIES || length < 0 || position + RECORD_OVERHEAD + length > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + 5, payload);
+            if (buffer.getInt(position + 5 + length) != checksum(type, payload)) {
+                break;
+            }
+            apply(type, ByteBuffer.wrap(payload), replayed);
+            position += RECORD_OVERHEAD + length;
+        }
+
+        writePosition = position;
+        durablePosition = position;
+        // En avbruten skrivning kan ha lämnat skräp efter sista hela posten
+        byte[] zeros = new byte[8192];
+        for (int i = position; i < buffer.capacity(); i += zeros.length) {
+            buffer.put(i, zeros, 0, Math.min(zeros.length, buffer.capacity() - i));
+        }
+        buffer.force();
+
+        for (Room room : replayed.values()) {
+            rooms.save(room);
+            room.trackChanges();
+            persistedHeaders.put(room.getId(), new RoomHeader(room.getName(), room.getStorage()));
+            Map<String, Integer> counts = new HashMap<>();
+            for (RecurringBooking series : room.getRecurringBookings()) {
+                counts.put(series.getId(), series.getOccurrenceCount());
+            }
+            persistedSeries.put(room.getId(), counts);
+        }
+    }
+
+    private void verifyHeader() throws IOException {
+        if (channel.size() == 0) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IOException("Filen är ingen bokningsjournal: " + path);
+        }
+    }
+
+    private void apply(byte type, ByteBuffer payload, Map<String, Room> replayed) {
+        String roomId = readString(payload);
+        switch (type) {
+            case ROOM -> {
+                String name = readString(payload);
+                // Journaler från före lagringsformen saknar den sista byten
+                BookingStorage storage = payload.hasRemaining()
+                        ? BookingStorage.values()[payload.get()]
+                        : BookingStorage.TREE;
+                Room previous = replayed.get(roomId);
+                Room room = new Room(roomId, name, storage);
+                if (previous != null) {
+                    previous.getBookings().forEach(room::addBooking);
+                    previous.getRecurringBookings().forEach(room::addRecurringBooking);
+                }
+                replayed.put(roomId, room);
+            }
+            case BOOK -> {
+                String bookingId = readString(payload);
+                LocalDateTime start = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+                LocalDateTime end = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+                replayed.computeIfAbsent(roomId, id -> new Room(id, id))
+                        .addBooking(new Booking(bookingId, roomId, start, end));
+            }
+            case CANCEL -> {
+                String bookingId = readString(payload);
+                Room room = replayed.get(roomId);
+                if (room != null) {
+                    room.removeBooking(bookingId);
+                    room.removeRecurringBooking(bookingId);
+                }
+                deadBytes += 2L * (payload.capacity() + RECORD_OVERHEAD) + 24;
+            }
+            case SERIES -> {
+                String seriesId = readString(payload);
+                LocalDateTime start = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+                LocalDateTime end = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+                RecurrenceRule.Frequency frequency = RecurrenceRule.Frequency.values()[payload.get()];
+                int interval = payload.getInt();
+                int count = payload.getInt();
+                RecurrenceRule rule = (frequency == RecurrenceRule.Frequency.DAILY
+                        ? RecurrenceRule.daily(count)
+                        : RecurrenceRule.weekly(count)).every(interval);
+                replayed.computeIfAbsent(roomId, id -> new Room(id, id))
+                        .addRecurringBooking(new RecurringBooking(seriesId, roomId, start, end, rule));
+            }
+            default -> throw new IllegalStateException("Okänd posttyp " + type);
+        }
+    }
+
+    private int checksum(byte type, byte[] payload) {
+        crc.reset();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private ByteBuffer encode(byte type, byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(payload.length + RECORD_OVERHEAD);
+        record.put(type).putInt(payload.length).put(payload).putInt(checksum(type, payload));
+        return record.flip();
+    }
+
+    private static byte[] roomRecord(Room room) {
+        byte[] id = utf8(room.getId());
+        byte[] roomName = utf8(room.getName());
+        return ByteBuffer.allocate(4 + id.length + roomName.length + 1)
+                .putShort((short) id.length).put(id)
+                .putShort((short) roomName.length).put(roomName)
+                .put((byte) room.getStorage().ordinal())
+                .array();
+    }
+
+    private static byte[] bookRecord(String roomId, Booking booking) {
+        byte[] room = utf8(roomId);
+        byte[] id = utf8(booking.getId());
+        LocalDateTime start = booking.getStartTime();
+        LocalDateTime end = booking.getEndTime();
+        return ByteBuffer.allocate(4 + room.length + id.length + 24)
+                .putShort((short) room.length).put(room)
+                .putShort((short) id.length).put(id)
+                .putLong(start.toEpochSecond(ZoneOffset.UTC)).putInt(start.getNano())
+                .putLong(end.toEpochSecond(ZoneOffset.UTC)).putInt(end.getNano())
+                .array();
+    }
+
+    /** Serien sparas med sitt antal tillfällen även om regeln angavs med en sluttid. */
+    private static byte[] seriesRecord(String roomId, RecurringBooking series) {
+        byte[] room = utf8(roomId);
+        byte[] id = utf8(series.getId());
+        LocalDateTime start = series.getFirstStart();
+        LocalDateTime end = series.getFirstEnd();
+        RecurrenceRule rule = series.getRule();
+        return ByteBuffer.allocate(4 + room.length + id.length + 24 + 9)
+                .putShort((short) room.length).put(room)
+                .putShort((short) id.length).put(id)
+                .putLong(start.toEpochSecond(ZoneOffset.UTC)).putInt(start.getNano())
+                .putLong(end.toEpochSecond(ZoneOffset.UTC)).putInt(end.getNano())
+                .put((byte) rule.getFrequency().ordinal())
+                .putInt(rule.getInterval())
+                .putInt(series.getOccurrenceCount())
+                .array();
+    }
+
+    private static byte[] cancelRecord(String roomId, String bookingId) {
+        byte[] room = utf8(roomId);
+        byte[] id = utf8(bookingId);
+        return ByteBuffer.allocate(4 + room.length + id.length)
+                .putShort((short) room.length).put(room)
+                .putShort((short) id.length).put(id)
+                .array();
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = Objects.requireNonNullElse(value, "").getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Id eller namn är för långt för journalen");
+        }
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getShort() & 0xFFFF];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.example.NotificationSend")
+@Label("Notification Send")
+@Category({"Booking", "Notification"})
+@Description("Ett utskick från bokningssystemet via NotificationService")
+final class NotificationSendEvent extends Event {
+    @Label("Kind")
+    String kind;
+
+    @Label("Booking Id")
+    String bookingId;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,296 @@
+package com.example;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Beläggningsindex som delar in tiden i lika långa tidsluckor och håller en
+ * bitmängd per lucka med de rum som har någon bokning i luckan.
+ * <p>
+ * En tillgänglighetsfråga blir en OR över luckorna som frågan täcker helt;
+ * bara rum som är bokade i första eller sista luckan kontrolleras exakt
+ * mot {@link Room#isAvailable(LocalDateTime, LocalDateTime)}.
+ * <p>
+ * Luckor före den tid som senast gavs till {@link #discardBefore(LocalDateTime)}
+ * sparas inte, så indexet växer inte med bokningshistoriken. Frågor som
+ * börjar före den tiden kontrolleras exakt mot varje rum.
+ */
+public class OccupancyIndex {
+    private static final Duration DEFAULT_SERIES_HORIZON = Duration.ofDays(366);
+
+    private final long slotSeconds;
+    private final long seriesHorizonSeconds;
+    private final Map<String, Integer> roomIndexById = new HashMap<>();
+    private final List<Room> rooms = new ArrayList<>();
+    private final Map<Long, BitSet> occupiedBySlot = new HashMap<>();
+    // Rum med serietillfällen bortom horisonten; frågor från och med luckan kontrolleras exakt
+    private final Map<Integer, Long> unmarkedFromSlot = new HashMap<>();
+    // Första luckan som indexet håller; tidigare luckor är släppta
+    private long retainedFromSlot = Long.MIN_VALUE;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public OccupancyIndex(Duration slotSize) {
+        this(slotSize, DEFAULT_SERIES_HORIZON);
+    }
+
+    /**
+     * @param seriesHorizon hur långt efter en series första tillfälle dess
+     *                      tillfällen markeras; senare tillfällen kontrolleras
+     *                      exakt mot rummet, så en serie utan slut inte fyller indexet
+     */
+    public OccupancyIndex(Duration slotSize, Duration seriesHorizon) {
+        if (slotSize == null || slotSize.getSeconds() < 1 || slotSize.getNano() != 0) {
+            throw new IllegalArgumentException("Tidslucka måste vara ett helt antal sekunder");
+        }
+        if (seriesHorizon == null || seriesHorizon.isNegative()) {
+            throw new IllegalArgumentException("Horisonten för serier kan inte vara negativ");
+        }
+        this.slotSeconds = slotSize.getSeconds();
+        this.seriesHorizonSeconds = seriesHorizon.getSeconds();
+    }
+
+    public void register(Room room) {
+        lock.writeLock().lock();
+        try {
+            Integer index = roomIndexById.get(room.getId());
+            if (index != null) {
+                rooms.set(index, room);
+                return;
+            }
+            add(room);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void bookingAdded(Room room, Booking booking) {
+        lock.writeLock().lock();
+        try {
+            markSlots(indexOf(room), epochSecond(booking.getStartTime()), epochSecond(booking.getEndTime()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void bookingRemoved(Room room, Booking booking) {
+        lock.writeLock().lock();
+        try {
+            clearSlots(indexOf(room), room, epochSecond(booking.getStartTime()), epochSecond(booking.getEndTime()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Markerar seriens tillfällen fram till horisonten. */
+    public void recurringBookingAdded(Room room, RecurringBooking series) {
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(room);
+            markSeries(index, series);
+            updateUnmarked(index, room);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Släpper seriens tillfällen från och med {@code fromOccurrence}. Rummet
+     * ska redan vara uppdaterat, med serien borttagen eller förkortad.
+     */
+    public void recurringBookingRemoved(Room room, RecurringBooking series, int fromOccurrence) {
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(room);
+            long period = series.getPeriodSeconds();
+            long start = epochSecond(series.getFirstStart());
+            long end = epochSecond(series.getFirstEnd());
+            for (long k = fromOccurrence; k <= lastMarkedOccurrence(series); k++) {
+                clearSlots(index, room, start + k * period, end + k * period);
+            }
+            updateUnmarked(index, room);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Släpper alla luckor som slutar före luckan som innehåller {@code time}
+     * och markerar inga sådana luckor framöver. Anropas när avslutade bokningar
+     * arkiveras; en tidigare tid än förra gången ignoreras.
+     */
+    public void discardBefore(LocalDateTime time) {
+        lock.writeLock().lock();
+        try {
+            long cutoff = slotOf(time);
+            if (cutoff <= retainedFromSlot) {
+                return;
+            }
+            retainedFromSlot = cutoff;
+            occupiedBySlot.keySet().removeIf(slot -> slot < cutoff);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Room> findAvailable(LocalDateTime startTime, LocalDateTime endTime) {
+        lock.readLock().lock();
+        try {
+            long first = slotOf(startTime);
+            long last = slotOf(endTime);
+            if (first < retainedFromSlot) {
+                // Luckorna är släppta, så bara rummen själva vet
+                List<Room> available = new ArrayList<>();
+                for (Room room : rooms) {
+                    if (room.isAvailable(startTime, endTime)) {
+                        available.add(room);
+                    }
+                }
+                return available;
+            }
+
+            BitSet busy = new BitSet(rooms.size());
+            for (long slot = first + 1; slot < last; slot++) {
+                BitSet occupied = occupiedBySlot.get(slot);
+                if (occupied != null) {
+                    busy.or(occupied);
+                }
+            }
+
+            BitSet boundary = new BitSet(rooms.size());
+            orIfPresent(boundary, first);
+            orIfPresent(boundary, last);
+            for (Map.Entry<Integer, Long> unmarked : unmarkedFromSlot.entrySet()) {
+                if (last >= unmarked.getValue()) {
+                    boundary.set(unmarked.getKey());
+                }
+            }
+            boundary.andNot(busy);
+
+            List<Room> available = new ArrayList<>();
+            for (int i = busy.nextClearBit(0); i < rooms.size(); i = busy.nextClearBit(i + 1)) {
+                Room room = rooms.get(i);
+                if (!boundary.get(i) || room.isAvailable(startTime, endTime)) {
+                    available.add(room);
+                }
+            }
+            return available;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Antal tidsluckor där något rum har en bokning. */
+    public int getOccupiedSlotCount() {
+        lock.readLock().lock();
+        try {
+            return occupiedBySlot.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Anropas med skrivlåset taget
+    private int indexOf(Room room) {
+        Integer index = roomIndexById.get(room.getId());
+        if (index == null) {
+            return add(room);
+        }
+        rooms.set(index, room);
+        return index;
+    }
+
+    private int add(Room room) {
+        int index = rooms.size();
+        roomIndexById.put(room.getId(), index);
+        rooms.add(room);
+        for (Booking booking : room.getBookings()) {
+            markSlots(index, epochSecond(booking.getStartTime()), epochSecond(booking.getEndTime()));
+        }
+        for (RecurringBooking series : room.getRecurringBookings()) {
+            markSeries(index, series);
+        }
+        updateUnmarked(index, room);
+        return index;
+    }
+
+    private void markSeries(int roomIndex, RecurringBooking series) {
+        long period = series.getPeriodSeconds();
+        long start = epochSecond(series.getFirstStart());
+        long end = epochSecond(series.getFirstEnd());
+        for (long k = 0; k <= lastMarkedOccurrence(series); k++) {
+            markSlots(roomIndex, start + k * period, end + k * period);
+        }
+    }
+
+    private long lastMarkedOccurrence(RecurringBooking series) {
+        return Math.min(series.getOccurrenceCount() - 1L, seriesHorizonSeconds / series.getPeriodSeconds());
+    }
+
+    private void updateUnmarked(int roomIndex, Room room) {
+        long from = Long.MAX_VALUE;
+        for (RecurringBooking series : room.getRecurringBookings()) {
+            long firstUnmarked = lastMarkedOccurrence(series) + 1;
+            if (firstUnmarked < series.getOccurrenceCount()) {
+                long start = epochSecond(series.getFirstStart()) + firstUnmarked * series.getPeriodSeconds();
+                from = Math.min(from, slotOf(start));
+            }
+        }
+        if (from == Long.MAX_VALUE) {
+            unmarkedFromSlot.remove(roomIndex);
+        } else {
+            unmarkedFromSlot.put(roomIndex, from);
+        }
+    }
+
+    private void markSlots(int roomIndex, long startSecond, long endSecond) {
+        long last = slotOf(endSecond);
+        for (long slot = Math.max(slotOf(startSecond), retainedFromSlot); slot <= last; slot++) {
+            occupiedBySlot.computeIfAbsent(slot, s -> new BitSet()).set(roomIndex);
+        }
+    }
+
+    private void clearSlots(int roomIndex, Room room, long startSecond, long endSecond) {
+        long last = slotOf(endSecond);
+        for (long slot = Math.max(slotOf(startSecond), retainedFromSlot); slot <= last; slot++) {
+            BitSet occupied = occupiedBySlot.get(slot);
+            if (occupied == null || !room.isAvailable(slotStart(slot), slotStart(slot + 1).minusNanos(1))) {
+                continue;
+            }
+            occupied.clear(roomIndex);
+            if (occupied.isEmpty()) {
+                occupiedBySlot.remove(slot);
+            }
+        }
+    }
+
+    private void orIfPresent(BitSet target, long slot) {
+        BitSet occupied = occupiedBySlot.get(slot);
+        if (occupied != null) {
+            target.or(occupied);
+        }
+    }
+
+    private long slotOf(LocalDateTime time) {
+        return slotOf(epochSecond(time));
+    }
+
+    private long slotOf(long epochSecond) {
+        return Math.floorDiv(epochSecond, slotSeconds);
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private LocalDateTime slotStart(long slot) {
+        return LocalDateTime.ofEpochSecond(slot * slotSeconds, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hur en återkommande bokning upprepas: varje eller var n:e dag eller vecka,
+ * ett visst antal gånger eller till och med en sluttid.
+ */
+public final class RecurrenceRule {
+
+    public enum Frequency {
+        DAILY(1),
+        WEEKLY(7);
+
+        private final int days;
+
+        Frequency(int days) {
+            this.days = days;
+        }
+    }
+
+    private final Frequency frequency;
+    private final int interval;
+    private final int count;
+    private final LocalDateTime until;
+
+    private RecurrenceRule(Frequency frequency, int interval, int count, LocalDateTime until) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Intervallet måste vara minst 1");
+        }
+        if (until == null && count < 1) {
+            throw new IllegalArgumentException("Antal tillfällen måste vara minst 1");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+    }
+
+    public static RecurrenceRule daily(int count) {
+        return new RecurrenceRule(Frequency.DAILY, 1, count, null);
+    }
+
+    public static RecurrenceRule weekly(int count) {
+        return new RecurrenceRule(Frequency.WEEKLY, 1, count, null);
+    }
+
+    /** Upprepas dagligen så länge tillfällets start inte är senare än {@code until}. */
+    public static RecurrenceRule dailyUntil(LocalDateTime until) {
+        return new RecurrenceRule(Frequency.DAILY, 1, 0, requireUntil(until));
+    }
+
+    /** Upprepas veckovis så länge tillfällets start inte är senare än {@code until}. */
+    public static RecurrenceRule weeklyUntil(LocalDateTime until) {
+        return new RecurrenceRule(Frequency.WEEKLY, 1, 0, requireUntil(until));
+    }
+
+    /** Samma regel men bara var {@code interval}:e dag eller vecka. */
+    public RecurrenceRule every(int interval) {
+        return new RecurrenceRule(frequency, interval, count, until);
+    }
+
+    RecurrenceRule withCount(int count) {
+        return new RecurrenceRule(frequency, interval, count, null);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /** @return antal tillfällen, eller 0 om regeln slutar vid en tid */
+    public int getCount() {
+        return count;
+    }
+
+    public LocalDateTime getUntil() {
+        return until;
+    }
+
+    long periodDays() {
+        return (long) frequency.days * interval;
+    }
+
+    private static LocalDateTime requireUntil(LocalDateTime until) {
+        if (until == null) {
+            throw new IllegalArgumentException("Sluttid för upprepningen måste anges");
+        }
+        return until;
+    }
+}
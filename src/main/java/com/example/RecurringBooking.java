@@ -0,0 +1,191 @@
+package com.example;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * En bokningsserie som lagras som en enda regel. Tillfälle {@code k} är
+ * första tillfället förskjutet {@code k} perioder; överlapp mot ett intervall
+ * avgörs genom att räkna ut vilka {@code k} som kan träffa intervallet, och
+ * tillfällen skapas bara när någon ber om dem inom ett fönster.
+ */
+public class RecurringBooking {
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private final String id;
+    private final String roomId;
+    private final LocalDateTime firstStart;
+    private final LocalDateTime firstEnd;
+    private final RecurrenceRule rule;
+    private final int occurrenceCount;
+    private final long periodDays;
+    private final long periodSeconds;
+    private final long firstStartMillisCeil;
+    private final long firstEndMillisFloor;
+
+    public RecurringBooking(String id, String roomId, LocalDateTime firstStart, LocalDateTime firstEnd,
+                            RecurrenceRule rule) {
+        if (firstStart == null || firstEnd == null || rule == null) {
+            throw new IllegalArgumentException("Serien kräver start- och sluttid samt upprepningsregel");
+        }
+        if (firstEnd.isBefore(firstStart)) {
+            throw new IllegalArgumentException("Sluttid måste vara efter starttid");
+        }
+        this.periodDays = rule.periodDays();
+        this.periodSeconds = periodDays * SECONDS_PER_DAY;
+        // Tillfällena räknas som upptagna inklusive gränserna och får inte gå in i varandra
+        if (!firstEnd.isBefore(firstStart.plusDays(periodDays))) {
+            throw new IllegalArgumentException("Ett tillfälle måste vara kortare än upprepningsintervallet");
+        }
+        this.id = id;
+        this.roomId = roomId;
+        this.firstStart = firstStart;
+        this.firstEnd = firstEnd;
+        this.rule = rule;
+        this.occurrenceCount = rule.getUntil() == null
+                ? rule.getCount()
+                : (int) Math.min(Integer.MAX_VALUE, Math.max(0, floorPeriods(firstStart, rule.getUntil()) + 1));
+        if (occurrenceCount < 1) {
+            throw new IllegalArgumentException("Serien har inga tillfällen");
+        }
+        this.firstStartMillisCeil = EpochMillis.ceil(firstStart);
+        this.firstEndMillisFloor = EpochMillis.floor(firstEnd);
+    }
+
+    public boolean overlaps(LocalDateTime startTime, LocalDateTime endTime) {
+        long first = Math.max(0, ceilPeriods(firstEnd, startTime));
+        long last = Math.min(occurrenceCount - 1L, floorPeriods(firstStart, endTime));
+        return first <= last;
+    }
+
+    /** Som {@link #overlaps(LocalDateTime, LocalDateTime)} med lokal epoktid i millisekunder. */
+    public boolean overlaps(long startEpochMillis, long endEpochMillis) {
+        long periodMillis = periodSeconds * 1000;
+        long first = Math.max(0, Math.ceilDiv(startEpochMillis - firstEndMillisFloor, periodMillis));
+        long last = Math.min(occurrenceCount - 1L, Math.floorDiv(endEpochMillis - firstStartMillisCeil, periodMillis));
+        return first <= last;
+    }
+
+    /**
+     * Avgör om någon av seriens tillfällen överlappar något av den andra
+     * seriens, utan att skapa dem. Förskjutningen mellan serierna upprepas
+     * efter minsta gemensamma multipeln av perioderna, så det räcker att pröva
+     * tillfällena inom en sådan period och räkna ut för vilka upprepningar
+     * båda seriernas tillfällen finns.
+     */
+    public boolean overlaps(RecurringBooking other) {
+        long gcd = gcd(periodDays, other.periodDays);
+        // En upprepning flyttar tillfälle i till i + step och den andra seriens j till j + otherStep
+        long step = other.periodDays / gcd;
+        long otherStep = periodDays / gcd;
+        long candidates = Math.min(occurrenceCount, step);
+        for (int i = 0; i < candidates; i++) {
+            long days = periodDays * i;
+            LocalDateTime start = firstStart.plusDays(days);
+            LocalDateTime end = firstEnd.plusDays(days);
+            long low = other.ceilPeriods(other.firstEnd, start);
+            long high = other.floorPeriods(other.firstStart, end);
+            if (low > high) {
+                continue;
+            }
+            long minRepeats = Math.max(0, Math.ceilDiv(-high, otherStep));
+            long maxRepeats = Math.min((occurrenceCount - 1L - i) / step,
+                    Math.floorDiv(other.occurrenceCount - 1L - low, otherStep));
+            if (minRepeats <= maxRepeats) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Skapar de tillfällen som överlappar intervallet, i startordning. */
+    public List<Booking> occurrencesBetween(LocalDateTime startTime, LocalDateTime endTime) {
+        long first = Math.max(0, ceilPeriods(firstEnd, startTime));
+        long last = Math.min(occurrenceCount - 1L, floorPeriods(firstStart, endTime));
+        List<Booking> occurrences = new ArrayList<>((int) Math.max(0, Math.min(last - first + 1, 1024)));
+        for (long k = first; k <= last; k++) {
+            occurrences.add(occurrence((int) k));
+        }
+        return occurrences;
+    }
+
+    public Booking occurrence(int index) {
+        if (index < 0 || index >= occurrenceCount) {
+            throw new IllegalArgumentException("Tillfället finns inte i serien");
+        }
+        long days = periodDays * index;
+        return new Booking(id + "/" + index, roomId, firstStart.plusDays(days), firstEnd.plusDays(days));
+    }
+
+    /**
+     * @return serien utan de tillfällen som börjar vid eller efter den givna
+     *         tiden, eller {@code null} om inget tillfälle börjar före den
+     */
+    public RecurringBooking endingBefore(LocalDateTime time) {
+        long kept = Math.min(occurrenceCount, Math.max(0, ceilPeriods(firstStart, time)));
+        if (kept == 0) {
+            return null;
+        }
+        if (kept == occurrenceCount) {
+            return this;
+        }
+        return new RecurringBooking(id, roomId, firstStart, firstEnd, rule.withCount((int) kept));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public LocalDateTime getFirstStart() {
+        return firstStart;
+    }
+
+    public LocalDateTime getFirstEnd() {
+        return firstEnd;
+    }
+
+    public RecurrenceRule getRule() {
+        return rule;
+    }
+
+    public int getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    public LocalDateTime getLastEnd() {
+        return firstEnd.plusDays(periodDays * (occurrenceCount - 1));
+    }
+
+    long getPeriodSeconds() {
+        return periodSeconds;
+    }
+
+    /** Största k där {@code from + k} perioder inte är senare än {@code to}. */
+    private long floorPeriods(LocalDateTime from, LocalDateTime to) {
+        // Duration normaliserar nanosekunderna till [0, 1 s), så sekunderna räcker när perioden är hela dagar
+        return Math.floorDiv(Duration.between(from, to).getSeconds(), periodSeconds);
+    }
+
+    /** Minsta k där {@code from + k} perioder inte är tidigare än {@code to}. */
+    private long ceilPeriods(LocalDateTime from, LocalDateTime to) {
+        Duration between = Duration.between(from, to);
+        long periods = Math.floorDiv(between.getSeconds(), periodSeconds);
+        boolean exact = Math.floorMod(between.getSeconds(), periodSeconds) == 0 && between.getNano() == 0;
+        return exact ? periods : periods + 1;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.example.RepositoryCall")
+@Label("Repository Call")
+@Category({"Booking", "Repository"})
+@Description("Ett anrop från bokningssystemet till RoomRepository")
+final class RepositoryCallEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Room Id")
+    String roomId;
+}
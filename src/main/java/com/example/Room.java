@@ -1,50 +1,332 @@
 package com.example;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class Room {
+    private static final long ARCHIVE_INTERVAL_MILLIS = 60_000;
+
+    /** En ändring av rummets enskilda bokningar: en tillagd bokning eller ett borttaget id. */
+    record BookingChange(Booking added, String removedId) {
+    }
+
+    // Bokningar utan starttid räknas som obegränsade bakåt och kommer först
+    private static final Comparator<Booking> START_ORDER =
+            Comparator.comparing(Booking::getStartTime, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()));
+
     private final String id;
     private final String name;
-    private final Set<Booking> bookings = new HashSet<>();
+    private final BookingStorage storage;
+    private final BookingStore bookings;
+    // Avslutade bokningar flyttas hit så att den aktiva mängden bara rymmer kommande bokningar
+    private final CompactBookingStore archive;
+    // Starttid per arkiverad bokning, så att arkivet slås upp med binärsökning i stället för att genomsökas
+    private final Map<String, LocalDateTime> archivedStarts = new HashMap<>();
+    private LocalDateTime archivedBefore;
+    private long archivedBeforeMillis = Long.MIN_VALUE;
+    private long nextArchiveMillis = Long.MIN_VALUE;
+    // Serier lagras som regler; ett rum har sällan fler än en handfull
+    private final List<RecurringBooking> recurringBookings = new ArrayList<>();
+    // Ändringar sedan förra drainChanges; null när ingen följer rummets ändringar
+    private List<BookingChange> changes;
 
     public Room(String id, String name) {
+        this(id, name, BookingStorage.TREE);
+    }
+
+    public Room(String id, String name, BookingStorage storage) {
         this.id = id;
         this.name = name;
+        this.storage = storage == BookingStorage.COMPACT ? BookingStorage.COMPACT : BookingStorage.TREE;
+        this.bookings = storage == BookingStorage.COMPACT
+                ? new CompactBookingStore(id)
+                : new BookingIntervalTree();
+        this.archive = new CompactBookingStore(id);
+    }
+
+    public synchronized boolean isAvailable(LocalDateTime startTime, LocalDateTime endTime) {
+        if (bookings.overlapsAny(startTime, endTime)) {
+            return false;
+        }
+        for (RecurringBooking series : recurringBookings) {
+            if (series.overlaps(startTime, endTime)) {
+                return false;
+            }
+        }
+        // Arkiverade bokningar slutar alla före archivedBefore
+        return archivedBefore == null
+                || !startTime.isBefore(archivedBefore)
+                || !archive.overlapsAny(startTime, endTime);
+    }
+
+    /**
+     * Som {@link #isAvailable(LocalDateTime, LocalDateTime)} men med lokal
+     * epoktid i millisekunder, utan att skapa några objekt.
+     */
+    public synchronized boolean isAvailable(long startEpochMillis, long endEpochMillis) {
+        if (bookings.overlapsAny(startEpochMillis, endEpochMillis)) {
+            return false;
+        }
+        for (int i = 0; i < recurringBookings.size(); i++) {
+            if (recurringBookings.get(i).overlaps(startEpochMillis, endEpochMillis)) {
+                return false;
+            }
+        }
+        return archivedBefore == null
+                || startEpochMillis >= archivedBeforeMillis
+                || !archive.overlapsAny(startEpochMillis, endEpochMillis);
+    }
+
+    /**
+     * @return bokningar, även arkiverade och tillfällen ur serier, som
+     *         överlappar intervallet, sorterade på starttid
+     */
+    public synchronized List<Booking> getBookingsOverlapping(LocalDateTime startTime, LocalDateTime endTime) {
+        List<Booking> result = storedBookingsOverlapping(startTime, endTime);
+        if (recurringBookings.isEmpty()) {
+            return result;
+        }
+        List<Booking> withOccurrences = new ArrayList<>(result);
+        for (RecurringBooking series : recurringBookings) {
+            withOccurrences.addAll(series.occurrencesBetween(startTime, endTime));
+        }
+        withOccurrences.sort(START_ORDER);
+        return withOccurrences;
     }
 
-    public boolean isAvailable(LocalDateTime startTime, LocalDateTime endTime) {
-        return bookings.stream()
-                .noneMatch(booking ->
-                        booking.overlaps(startTime, endTime));
+    /**
+     * Kontrollerar en hel serie utan att skapa dess tillfällen: enskilda
+     * bokningar inom seriens spann prövas mot regeln, och befintliga serier
+     * jämförs med den via perioder och förskjutning.
+     */
+    public synchronized boolean isAvailable(RecurringBooking candidate) {
+        for (Booking booking : storedBookingsOverlapping(candidate.getFirstStart(), candidate.getLastEnd())) {
+            if (candidate.overlaps(booking.getStartTime(), booking.getEndTime())) {
+                return false;
+            }
+        }
+        for (RecurringBooking series : recurringBookings) {
+            if (series.getId() != null && series.getId().equals(candidate.getId())) {
+                continue;
+            }
+            if (candidate.overlaps(series)) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public void addBooking(Booking booking) {
+    /** Lägger till en serie; en serie med samma id ersätts. */
+    public synchronized void addRecurringBooking(RecurringBooking series) {
+        removeRecurringBooking(series.getId());
+        recurringBookings.add(series);
+    }
+
+    /** @return {@code true} om serien fanns */
+    public synchronized boolean removeRecurringBooking(String seriesId) {
+        return recurringBookings.removeIf(series -> Objects.equals(series.getId(), seriesId));
+    }
+
+    public synchronized boolean hasRecurringBooking(String seriesId) {
+        return findRecurringBooking(seriesId) != null;
+    }
+
+    public synchronized RecurringBooking getRecurringBooking(String seriesId) {
+        RecurringBooking series = findRecurringBooking(seriesId);
+        if (series == null) {
+            throw new IllegalArgumentException("Bokningsserien finns inte");
+        }
+        return series;
+    }
+
+    public synchronized List<RecurringBooking> getRecurringBookings() {
+        return new ArrayList<>(recurringBookings);
+    }
+
+    public synchronized void addBooking(Booking booking) {
         bookings.add(booking);
+        if (changes != null) {
+            changes.add(new BookingChange(booking, null));
+        }
+    }
+
+    public synchronized void removeBooking(String bookingId) {
+        Booking removed = bookings.remove(bookingId);
+        if (removed == null && archivedStarts.containsKey(bookingId)) {
+            removed = archive.remove(bookingId, archivedStarts.remove(bookingId));
+        }
+        if (removed != null && changes != null) {
+            changes.add(new BookingChange(null, bookingId));
+        }
+    }
+
+    /** Börjar samla tillagda och borttagna bokningar till {@link #drainChanges()}. */
+    synchronized void trackChanges() {
+        if (changes == null) {
+            changes = new ArrayList<>();
+        }
+    }
+
+    /**
+     * @return ändringarna i ordning sedan förra anropet, eller {@code null} om
+     *         rummets ändringar inte följs
+     */
+    synchronized List<BookingChange> drainChanges() {
+        if (changes == null) {
+            return null;
+        }
+        if (changes.isEmpty()) {
+            return List.of();
+        }
+        List<BookingChange> drained = changes;
+        changes = new ArrayList<>();
+        return drained;
+    }
+
+    public synchronized boolean hasBooking(String bookingId) {
+        return bookings.contains(bookingId) || archivedStarts.containsKey(bookingId);
+    }
+
+    public synchronized Booking getBooking(String bookingId) {
+        Booking booking = bookings.get(bookingId);
+        if (booking == null && archivedStarts.containsKey(bookingId)) {
+            booking = archive.get(bookingId, archivedStarts.get(bookingId));
+        }
+        if (booking == null) {
+            throw new IllegalArgumentException("Bokning finns inte");
+        }
+        return booking;
     }
 
-    public void removeBooking(String bookingId) {
-        bookings.removeIf(booking -> booking.getId().equals(bookingId));
+    /**
+     * Flyttar bokningar som slutat före den givna tiden till det kompakta
+     * arkivet. De går fortfarande att slå upp men belastar inte längre
+     * tillgänglighetskontroller för kommande tider.
+     *
+     * @return antal bokningar som arkiverades
+     */
+    public synchronized int archiveEndedBefore(LocalDateTime time) {
+        List<Booking> ended = bookings.removeEndedBefore(time);
+        for (Booking booking : ended) {
+            archive.addNew(booking);
+            archivedStarts.put(booking.getId(), booking.getStartTime());
+        }
+        if (archivedBefore == null || time.isAfter(archivedBefore)) {
+            archivedBefore = time;
+            archivedBeforeMillis = EpochMillis.ceil(time);
+        }
+        return ended.size();
     }
 
-    public boolean hasBooking(String bookingId) {
-        return bookings.stream()
-                .anyMatch(booking -> booking.getId().equals(bookingId));
+    /**
+     * Arkiverar som {@link #archiveEndedBefore(LocalDateTime)} men högst en
+     * gång per minut, så att bokningar oftast inte behöver gå igenom de aktiva
+     * bokningarna och epoktidsvägen oftast inte skapar några objekt.
+     */
+    synchronized int archiveEndedIfDue(long nowEpochMillis) {
+        if (nowEpochMillis < nextArchiveMillis) {
+            return 0;
+        }
+        nextArchiveMillis = nowEpochMillis + ARCHIVE_INTERVAL_MILLIS;
+        return archiveEndedBefore(EpochMillis.toLocalDateTime(nowEpochMillis));
     }
 
-    public Booking getBooking(String bookingId) {
-        return bookings.stream()
-                .filter(booking -> booking.getId().equals(bookingId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Bokning finns inte"));
+    /**
+     * @return alla enskilda bokningar, aktiva och arkiverade, sorterade på
+     *         starttid; serier hämtas med {@link #getRecurringBookings()}
+     */
+    public synchronized List<Booking> getBookings() {
+        List<Booking> active = bookings.toList();
+        if (archive.size() == 0) {
+            return active;
+        }
+        return merge(archive.toList(), active);
+    }
+
+    public synchronized List<Booking> getArchivedBookings() {
+        return archive.toList();
+    }
+
+    public synchronized int getActiveBookingCount() {
+        return bookings.size();
+    }
+
+    /**
+     * @return en fristående kopia med samma bokningar, arkiv och serier, som
+     *         kan läsas utan att dela tillstånd med originalet
+     */
+    public synchronized Room snapshot() {
+        Room copy = new Room(id, name, storage);
+        for (Booking booking : bookings.toList()) {
+            if (copy.bookings instanceof CompactBookingStore compact) {
+                // Listan är sorterad och id:n unika, så varje bokning hamnar sist
+                compact.addNew(booking);
+            } else {
+                copy.bookings.add(booking);
+            }
+        }
+        for (Booking booking : archive.toList()) {
+            copy.archive.addNew(booking);
+        }
+        copy.archivedStarts.putAll(archivedStarts);
+        copy.archivedBefore = archivedBefore;
+        copy.archivedBeforeMillis = archivedBeforeMillis;
+        copy.nextArchiveMillis = nextArchiveMillis;
+        copy.recurringBookings.addAll(recurringBookings);
+        return copy;
     }
 
     public String getId() {
         return id;
     }
 
+    public BookingStorage getStorage() {
+        return storage;
+    }
+
     public String getName() {
         return name;
     }
+
+    private List<Booking> storedBookingsOverlapping(LocalDateTime startTime, LocalDateTime endTime) {
+        List<Booking> result = bookings.findOverlapping(startTime, endTime);
+        if (archivedBefore != null && startTime.isBefore(archivedBefore)) {
+            List<Booking> archived = archive.findOverlapping(startTime, endTime);
+            if (!archived.isEmpty()) {
+                result = merge(archived, result);
+            }
+        }
+        return result;
+    }
+
+    private RecurringBooking findRecurringBooking(String seriesId) {
+        for (RecurringBooking series : recurringBookings) {
+            if (Objects.equals(series.getId(), seriesId)) {
+                return series;
+            }
+        }
+        return null;
+    }
+
+    // Vid samma starttid kommer den arkiverade bokningen först
+    private static List<Booking> merge(List<Booking> archived, List<Booking> active) {
+        List<Booking> merged = new ArrayList<>(active.size() + archived.size());
+        int a = 0;
+        int b = 0;
+        while (a < active.size() && b < archived.size()) {
+            if (START_ORDER.compare(archived.get(b), active.get(a)) > 0) {
+                merged.add(active.get(a++));
+            } else {
+                merged.add(archived.get(b++));
+            }
+        }
+        merged.addAll(active.subList(a, active.size()));
+        merged.addAll(archived.subList(b, archived.size()));
+        return merged;
+    }
 }
@@ -0,0 +1,30 @@
+package com.example;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Randade lås per rum. Kontroll och bokning i samma rum serialiseras medan
+ * bokningar i olika rum (i regel olika lås) kan gå parallellt.
+ */
+class RoomLocks {
+    private final Lock[] stripes;
+    private final int mask;
+
+    RoomLocks(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Antal lås måste vara minst 1");
+        }
+        int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public Lock lockFor(String roomId) {
+        int hash = roomId == null ? 0 : roomId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+}
@@ -1,5 +1,7 @@
 package com.example;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -7,4 +9,14 @@ public interface RoomRepository {
     Optional<Room> findById(String id);
     List<Room> findAll();
     void save(Room room);
+
+    /**
+     * Alla rum sorterade på id, för sidindelade frågor med stabil ordning.
+     * Standardimplementationen sorterar en kopia av {@link #findAll()} vid varje anrop.
+     */
+    default List<Room> findAllSortedById() {
+        List<Room> rooms = new ArrayList<>(findAll());
+        rooms.sort(Comparator.comparing(Room::getId, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return rooms;
+    }
 }
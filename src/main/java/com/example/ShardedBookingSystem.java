@@ -0,0 +1,266 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bokningssystem uppdelat i shards efter rum-id. Varje shard äger sina rum i
+ * ett eget {@link InMemoryRoomRepository} och har en egen tråd som kör alla
+ * anrop mot shardens {@link BookingSystem} i tur och ordning, så att
+ * systemet klarar sig utan rumslås. Bokningar skickas till rummets shard och
+ * avbokningar till den shard som rumsnyckeln i boknings-id:t pekar ut;
+ * {@link #bookRooms} och {@link #getAvailableRooms} frågar alla berörda
+ * shards parallellt och slår ihop svaren.
+ * <p>
+ * Notifieringar skickas på shardens tråd. Använd en
+ * {@link AsyncNotificationDispatcher} så att en långsam notifieringstjänst
+ * inte håller upp shardens övriga anrop.
+ */
+public class ShardedBookingSystem implements AutoCloseable {
+    private static final Comparator<Room> BY_ID = Comparator.comparing(Room::getId);
+
+    private static final class Shard {
+        final ExecutorService loop;
+        final InMemoryRoomRepository rooms = new InMemoryRoomRepository();
+        final BookingSystem system;
+
+        Shard(int index, Builder builder) {
+            this.loop = Executors.newSingleThreadExecutor(
+                    Thread.ofPlatform().name("booking-shard-" + index).daemon().factory());
+            this.system = BookingSystem.builder(builder.timeProvider, rooms, builder.notificationService)
+                    .bookingIdGenerator(builder.bookingIdGenerator)
+                    .metricsListener(builder.metricsListener)
+                    .singleWriter(true)
+                    .build();
+        }
+    }
+
+    private final Shard[] shards;
+    private final BookingIdGenerator idGenerator;
+
+    private ShardedBookingSystem(Builder builder) {
+        this.idGenerator = builder.bookingIdGenerator;
+        this.shards = new Shard[builder.shards];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i, builder);
+        }
+    }
+
+    public static Builder builder(TimeProvider timeProvider, NotificationService notificationService) {
+        return new Builder(timeProvider, notificationService);
+    }
+
+    /**
+     * Lämnar över rummet till sin shard. Rummet ägs därefter av sharden och
+     * får bara ändras via systemet.
+     */
+    public void addRoom(Room room) {
+        if (room == null || room.getId() == null) {
+            throw new IllegalArgumentException("Rum och rum-id kan inte vara null");
+        }
+        Shard shard = shardFor(room.getId());
+        join(CompletableFuture.runAsync(() -> shard.rooms.save(room), shard.loop));
+    }
+
+    public boolean bookRoom(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        return join(bookRoomAsync(roomId, startTime, endTime));
+    }
+
+    /** Som {@link #bookRoom} utan att vänta på rummets shard. */
+    public CompletableFuture<Boolean> bookRoomAsync(String roomId, LocalDateTime startTime, LocalDateTime endTime) {
+        return submit(shardFor(roomId), system -> system.bookRoom(roomId, startTime, endTime));
+    }
+
+    /**
+     * Delar upp förfrågningarna per shard, bokar dem parallellt och
+     * returnerar ett resultat per förfrågan i samma ordning som förfrågningarna.
+     */
+    public List<BookingResult> bookRooms(List<BookingRequest> requests) {
+        if (requests == null) {
+            throw new IllegalArgumentException("Bokningsförfrågningar kan inte vara null");
+        }
+        List<List<Integer>> positionsByShard = new ArrayList<>(shards.length);
+        List<List<BookingRequest>> requestsByShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            positionsByShard.add(new ArrayList<>());
+            requestsByShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequest request = requests.get(i);
+            int shard = shardIndexFor(request == null ? null : request.getRoomId());
+            positionsByShard.get(shard).add(i);
+            requestsByShard.get(shard).add(request);
+        }
+
+        List<CompletableFuture<List<BookingResult>>> parts = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            List<BookingRequest> shardRequests = requestsByShard.get(i);
+            parts.add(shardRequests.isEmpty()
+                    ? CompletableFuture.completedFuture(List.of())
+                    : submit(shards[i], system -> system.bookRooms(shardRequests)));
+        }
+        BookingResult[] results = new BookingResult[requests.size()];
+        for (int i = 0; i < shards.length; i++) {
+            List<BookingResult> shardResults = join(parts.get(i));
+            List<Integer> positions = positionsByShard.get(i);
+            for (int j = 0; j < positions.size(); j++) {
+                results[positions.get(j)] = shardResults.get(j);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    public boolean cancelBooking(String bookingId) {
+        return join(cancelBookingAsync(bookingId));
+    }
+
+    /**
+     * Skickar avbokningen till den shard som rumsnyckeln i id:t pekar ut. Id:n
+     * utan rumsnyckel prövas i alla shards.
+     */
+    public CompletableFuture<Boolean> cancelBookingAsync(String bookingId) {
+        if (bookingId == null) {
+            throw new IllegalArgumentException("Boknings-id kan inte vara null");
+        }
+        OptionalInt roomKey = idGenerator.roomKeyOf(bookingId);
+        if (roomKey.isPresent()) {
+            return submit(shards[shardOf(roomKey.getAsInt())], system -> system.cancelBooking(bookingId));
+        }
+        List<CompletableFuture<Boolean>> attempts = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            attempts.add(submit(shard, system -> system.cancelBooking(bookingId)));
+        }
+        return CompletableFuture.allOf(attempts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> attempts.stream().anyMatch(CompletableFuture::join));
+    }
+
+    /**
+     * @return ögonblicksbilder av de lediga rummen från alla shards, sorterade
+     *         på id. Rummen ägs av shardernas trådar, så bilderna tas där och
+     *         ändras inte av senare bokningar.
+     */
+    public List<Room> getAvailableRooms(LocalDateTime startTime, LocalDateTime endTime) {
+        List<CompletableFuture<List<Room>>> parts = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            parts.add(submit(shard, system -> snapshots(system.getAvailableRooms(startTime, endTime))));
+        }
+        List<Room> available = new ArrayList<>();
+        for (CompletableFuture<List<Room>> part : parts) {
+            available.addAll(join(part));
+        }
+        available.sort(BY_ID);
+        return available;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /** Kör det som redan är köat i varje shard och stoppar trådarna. */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.loop.shutdown();
+        }
+        try {
+            for (Shard shard : shards) {
+                shard.loop.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Shard shardFor(String roomId) {
+        return shards[shardIndexFor(roomId)];
+    }
+
+    private int shardIndexFor(String roomId) {
+        return shardOf(idGenerator.roomKeyFor(roomId));
+    }
+
+    private int shardOf(int roomKey) {
+        return Math.floorMod(roomKey ^ (roomKey >>> 16), shards.length);
+    }
+
+    private static List<Room> snapshots(List<Room> rooms) {
+        List<Room> snapshots = new ArrayList<>(rooms.size());
+        for (Room room : rooms) {
+            snapshots.add(room.snapshot());
+        }
+        return snapshots;
+    }
+
+    private static <T> CompletableFuture<T> submit(Shard shard, Function<BookingSystem, T> operation) {
+        return CompletableFuture.supplyAsync(() -> operation.apply(shard.system), shard.loop);
+    }
+
+    /** Väntar på svaret och kastar shardens undantag vidare oförändrat. */
+    private static <T> T join(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public static final class Builder {
+        private final TimeProvider timeProvider;
+        private final NotificationService notificationService;
+        private int shards = Runtime.getRuntime().availableProcessors();
+        private BookingIdGenerator bookingIdGenerator = new TimeOrderedBookingIdGenerator();
+        private BookingMetricsListener metricsListener = BookingMetricsListener.NOOP;
+
+        private Builder(TimeProvider timeProvider, NotificationService notificationService) {
+            this.timeProvider = timeProvider;
+            this.notificationService = notificationService;
+        }
+
+        /** Antal shards och därmed trådar. Standard är antalet processorkärnor. */
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * Skapar id:n för nya bokningar. Med en generator som inte kodar in
+         * rumsnyckeln måste varje avbokning prövas i alla shards.
+         */
+        public Builder bookingIdGenerator(BookingIdGenerator bookingIdGenerator) {
+            this.bookingIdGenerator = bookingIdGenerator;
+            return this;
+        }
+
+        /** Delas av alla shards och anropas från shardernas trådar. */
+        public Builder metricsListener(BookingMetricsListener metricsListener) {
+            this.metricsListener = metricsListener;
+            return this;
+        }
+
+        public ShardedBookingSystem build() {
+            if (shards < 1) {
+                throw new IllegalArgumentException("Antal shards måste vara minst 1");
+            }
+            if (bookingIdGenerator == null) {
+                throw new IllegalArgumentException("Id-generator kan inte vara null");
+            }
+            if (metricsListener == null) {
+                throw new IllegalArgumentException("Mätlyssnare kan inte vara null");
+            }
+            return new ShardedBookingSystem(this);
+        }
+    }
+}
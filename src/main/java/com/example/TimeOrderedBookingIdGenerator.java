@@ -0,0 +1,76 @@
+package com.example;
+
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Tidsordnade boknings-id:n i UUIDv7-form: 48 bitar millisekunder och en
+ * 12-bitars löpräknare ger id:n som är strikt stigande även inom samma
+ * millisekund, så att sorterade index och journaler får sekventiella
+ * insättningar. Av de slumpmässiga bitarna bär 32 rummets nyckel och 30
+ * kommer från {@link ThreadLocalRandom} i stället för {@code SecureRandom}.
+ */
+public class TimeOrderedBookingIdGenerator implements BookingIdGenerator {
+    private static final int SEQUENCE_BITS = 12;
+    private static final int RANDOM_BITS = 30;
+
+    private final LongSupplier clock;
+    // Millisekunder och löpräknare i samma värde, så att ett enda CAS räcker
+    private final AtomicLong lastStamp = new AtomicLong();
+
+    public TimeOrderedBookingIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedBookingIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String nextId(String roomId) {
+        long stamp = nextStamp();
+        long millis = stamp >>> SEQUENCE_BITS;
+        long sequence = stamp & ((1L << SEQUENCE_BITS) - 1);
+        long mostSignificant = millis << 16 | 0x7000L | sequence;
+        long leastSignificant = Long.MIN_VALUE
+                | (roomKeyFor(roomId) & 0xFFFF_FFFFL) << RANDOM_BITS
+                | ThreadLocalRandom.current().nextInt(1 << RANDOM_BITS);
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+
+    @Override
+    public boolean encodesRoomKey() {
+        return true;
+    }
+
+    @Override
+    public OptionalInt roomKeyOf(String bookingId) {
+        if (bookingId == null || bookingId.length() != 36 || bookingId.charAt(14) != '7') {
+            return OptionalInt.empty();
+        }
+        try {
+            UUID uuid = UUID.fromString(bookingId);
+            if (uuid.version() != 7 || uuid.variant() != 2) {
+                return OptionalInt.empty();
+            }
+            return OptionalInt.of((int) (uuid.getLeastSignificantBits() >>> RANDOM_BITS));
+        } catch (IllegalArgumentException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    private long nextStamp() {
+        long now = clock.getAsLong() << SEQUENCE_BITS;
+        while (true) {
+            long last = lastStamp.get();
+            // Går klockan bakåt eller tar löpräknaren slut lånar vi från nästa millisekund
+            long next = Math.max(now, last + 1);
+            if (lastStamp.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+}
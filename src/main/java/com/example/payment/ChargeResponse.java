@@ -0,0 +1,34 @@
+package com.example.payment;
+
+/** Betaltjänstens svar för en enskild betalning i en sats. */
+public class ChargeResponse {
+    private final boolean approved;
+    private final String transactionId;
+    private final String declineReason;
+
+    private ChargeResponse(boolean approved, String transactionId, String declineReason) {
+        this.approved = approved;
+        this.transactionId = transactionId;
+        this.declineReason = declineReason;
+    }
+
+    public static ChargeResponse approved(String transactionId) {
+        return new ChargeResponse(true, transactionId, null);
+    }
+
+    public static ChargeResponse declined(String reason) {
+        return new ChargeResponse(false, null, reason);
+    }
+
+    public boolean isApproved() {
+        return approved;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getDeclineReason() {
+        return declineReason;
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.payment;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * {@link PaymentLedger} som skriver poster till en lokal fil som bara växer
+ * framåt. En skrivtråd samlar poster i satser och gör en enda fsync per sats
+ * (group commit); varje posts framtid blir klar först när dess sats är
+ * synkad till disk.
+ * <p>
+ * En sats skrivs när den har {@code maxBatchSize} poster eller när den
+ * äldsta posten har väntat {@code maxBatchDelay}, vilket sätter en gräns för
+ * hur mycket väntan satsningen lägger till. Efter ett skrivfel tar journalen
+ * inte emot fler poster. Vid öppning kapas en halvskriven post i slutet bort;
+ * en skadad post tidigare i filen ger i stället {@link IOException}, eftersom
+ * posterna efter den redan kan vara kvitterade.
+ */
+public class GroupCommitLedger implements PaymentLedger, AutoCloseable {
+    private static final int MAGIC = 0x504C4731;
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_OVERHEAD = 4 + 4;
+    private static final int MIN_PAYLOAD = 2 + 2 + 8;
+
+    private static final int MAX_ID_BYTES = 0xFFFF;
+    private static final int MAX_PAYLOAD = MIN_PAYLOAD + 2 * MAX_ID_BYTES;
+
+    private static final class Entry {
+        final PaymentRecord record;
+        // Kodas i append så att för långa id avvisas innan posten når skrivtråden
+        final byte[] key;
+        final byte[] transactionId;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Entry(PaymentRecord record, byte[] key, byte[] transactionId) {
+            this.record = record;
+            this.key = key;
+            this.transactionId = transactionId;
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BlockingQueue<Entry> queue;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final Thread writer;
+    private final CRC32 crc = new CRC32();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private ByteBuffer batchBuffer = ByteBuffer.allocate(64 * 1024);
+    private volatile IOException failure;
+    private volatile boolean running = true;
+
+    private GroupCommitLedger(Builder builder) throws IOException {
+        this.path = builder.path;
+        this.queue = new ArrayBlockingQueue<>(builder.capacity);
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxBatchDelayNanos = builder.maxBatchDelay.toNanos();
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        // Plattformstråd eftersom den mest väntar på fsync
+        this.writer = Thread.ofPlatform().daemon().name("payment-ledger-writer").start(this::write);
+    }
+
+    public static Builder builder(Path path) {
+        return new Builder(path);
+    }
+
+    /** Öppnar journalen med standardinställningarna. */
+    public static GroupCommitLedger open(Path path) throws IOException {
+        return builder(path).open();
+    }
+
+    @Override
+    public CompletableFuture<Void> append(PaymentRecord record) {
+        if (record == null || record.getIdempotencyKey() == null || record.getTransactionId() == null) {
+            throw new IllegalArgumentException("Post, idempotensnyckel och transaktions-id måste anges");
+        }
+        IOException error = failure;
+        if (error != null) {
+            return CompletableFuture.failedFuture(new UncheckedIOException("Betalningsjournalen kunde inte skrivas", error));
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Betalningsjournalen är stängd"));
+        }
+        byte[] key = record.getIdempotencyKey().getBytes(StandardCharsets.UTF_8);
+        byte[] transactionId = record.getTransactionId().getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_ID_BYTES || transactionId.length > MAX_ID_BYTES) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Id är för långt för journalen"));
+        }
+        Entry entry = new Entry(record, key, transactionId);
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        // Skrivtråden kan ha slutat medan vi väntade på plats i kön
+        if (!running && queue.remove(entry)) {
+            entry.durable.completeExceptionally(new IllegalStateException("Betalningsjournalen är stängd"));
+        }
+        return entry.durable;
+    }
+
+    /** Antal synkade satser, dvs. antal fsync. */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getRecordCount() {
+        return records.get();
+    }
+
+    /** Skriver det som ligger i kön och stänger filen. */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failQueued(new IllegalStateException("Betalningsjournalen är stängd"));
+        channel.close();
+    }
+
+    /**
+     * Läser alla hela poster i en journalfil; en halvskriven sista post hoppas över.
+     *
+     * @throws IOException om filen inte är en journal eller är skadad före slutet
+     */
+    public static List<PaymentRecord> readAll(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<PaymentRecord> result = new ArrayList<>();
+            scan(channel, path, result);
+            return result;
+        }
+    }
+
+    private void recover() throws IOException {
+        if (channel.size() == 0) {
+            channel.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).flip(), 0);
+            channel.force(true);
+            channel.position(HEADER_SIZE);
+            return;
+        }
+        long end = scan(channel, path, null);
+        channel.truncate(end);
+        channel.force(true);
+        channel.position(end);
+    }
+
+    /**
+     * Läser filen i fönster så att journalen kan bli större än vad som går
+     * att mappa på en gång.
+     *
+     * @return positionen efter sista hela posten
+     */
+    private static long scan(FileChannel channel, Path path, List<PaymentRecord> out) throws IOException {
+        long size = channel.size();
+        ReadWindow window = new ReadWindow(channel, size);
+        if (size < HEADER_SIZE || window.slice(0, HEADER_SIZE).getInt() != MAGIC) {
+            throw new IOException("Filen är ingen betalningsjournal: " + path);
+        }
+        CRC32 crc = new CRC32();
+        long position = HEADER_SIZE;
+        while (size - position >= RECORD_OVERHEAD) {
+            int length = window.slice(position, 4).getInt();
+            if (length < MIN_PAYLOAD || length > MAX_PAYLOAD) {
+                if (window.isZeroFrom(position)) {
+                    // Filen hann förlängas men posten skrevs aldrig
+                    return position;
+                }
+                throw corrupt(path, position);
+            }
+            long next = position + RECORD_OVERHEAD + length;
+            if (next > size) {
+                // Sista posten skrevs inte klart
+                return position;
+            }
+            ByteBuffer payload = window.slice(position + 4, length + 4);
+            crc.reset();
+            crc.update(payload.slice(0, length));
+            if (payload.getInt(length) != (int) crc.getValue()) {
+                // Bara en halvskriven post i slutet får kapas; senare poster kan redan vara kvitterade
+                if (window.isZeroFrom(next)) {
+                    return position;
+                }
+                throw corrupt(path, position);
+            }
+            if (out != null) {
+                try {
+                    out.add(decode(payload.slice(0, length)));
+                } catch (BufferUnderflowException e) {
+                    throw corrupt(path, position);
+                }
+            }
+            position = next;
+        }
+        return position;
+    }
+
+    private static IOException corrupt(Path path, long position) {
+        return new IOException("Betalningsjournalen är skadad vid position " + position + ": " + path);
+    }
+
+    /** Ett fönster av filen som läses om när en post hamnar utanför det. */
+    private static final class ReadWindow {
+        private static final int SIZE = 64 * 1024;
+
+        private final FileChannel channel;
+        private final long size;
+        private ByteBuffer buffer = ByteBuffer.allocate(SIZE).limit(0);
+        private long start;
+
+        ReadWindow(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        /** @return {@code length} byte från {@code position}, som måste finnas i filen */
+        ByteBuffer slice(long position, int length) throws IOException {
+            if (position < start || position + length > start + buffer.limit()) {
+                if (buffer.capacity() < length) {
+                    buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+                }
+                buffer.clear();
+                start = position;
+                while (buffer.hasRemaining() && start + buffer.position() < size) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                if (buffer.limit() < length) {
+                    throw new EOFException("Betalningsjournalen tog slut vid position " + position);
+                }
+            }
+            return buffer.slice((int) (position - start), length);
+        }
+
+        boolean isZeroFrom(long position) throws IOException {
+            while (position < size) {
+                int length = (int) Math.min(size - position, SIZE);
+                ByteBuffer chunk = slice(position, length);
+                while (chunk.hasRemaining()) {
+                    if (chunk.get() != 0) {
+                        return false;
+                    }
+                }
+                position += length;
+            }
+            return true;
+        }
+    }
+
+    private void write() {
+        List<Entry> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxBatchDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                fail(batch, new IllegalStateException("Betalningsjournalens skrivtråd avbröts"));
+                return;
+            } catch (IOException e) {
+                failure = e;
+                running = false;
+                fail(batch, new UncheckedIOException("Betalningsjournalen kunde inte skrivas", e));
+                return;
+            } catch (RuntimeException e) {
+                // Utan det här skulle skrivtråden dö och köade poster aldrig bli klara
+                failure = new IOException("Oväntat fel i betalningsjournalens skrivtråd", e);
+                running = false;
+                fail(batch, new UncheckedIOException("Betalningsjournalen kunde inte skrivas", failure));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Entry> batch) throws IOException {
+        ByteBuffer out = batchBuffer;
+        out.clear();
+        for (Entry entry : batch) {
+            out = encode(entry, out);
+        }
+        batchBuffer = out;
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        channel.force(false);
+        batches.incrementAndGet();
+        records.addAndGet(batch.size());
+        for (Entry entry : batch) {
+            entry.durable.complete(null);
+        }
+    }
+
+    private ByteBuffer encode(Entry entry, ByteBuffer out) {
+        byte[] key = entry.key;
+        byte[] transactionId = entry.transactionId;
+        int length = 2 + key.length + 2 + transactionId.length + 8;
+        if (out.remaining() < length + RECORD_OVERHEAD) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + length + RECORD_OVERHEAD));
+            out = larger.put(out.flip());
+        }
+        out.putInt(length);
+        int payloadStart = out.position();
+        out.putShort((short) key.length).put(key)
+                .putShort((short) transactionId.length).put(transactionId)
+                .putLong(entry.record.getAmountCents());
+        crc.reset();
+        crc.update(out.slice(payloadStart, length));
+        return out.putInt((int) crc.getValue());
+    }
+
+    private static PaymentRecord decode(ByteBuffer payload) {
+        String key = readString(payload);
+        String transactionId = readString(payload);
+        return new PaymentRecord(key, transactionId, payload.getLong());
+    }
+
+    private static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getShort() & 0xFFFF];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void fail(List<Entry> batch, RuntimeException error) {
+        for (Entry entry : batch) {
+            entry.durable.completeExceptionally(error);
+        }
+        failQueued(error);
+    }
+
+    private void failQueued(RuntimeException error) {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            entry.durable.completeExceptionally(error);
+        }
+    }
+
+    public static final class Builder {
+        private final Path path;
+        private int capacity = 10_000;
+        private int maxBatchSize = 256;
+        private Duration maxBatchDelay = Duration.ofMillis(2);
+
+        private Builder(Path path) {
+            this.path = path;
+        }
+
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /** Högsta antal poster per fsync. */
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Hur länge skrivtråden högst väntar på fler poster efter den första
+         * i en sats. Noll skriver det som har hunnit samlas under förra fsync.
+         */
+        public Builder maxBatchDelay(Duration maxBatchDelay) {
+            this.maxBatchDelay = maxBatchDelay;
+            return this;
+        }
+
+        public GroupCommitLedger open() throws IOException {
+            if (path == null) {
+                throw new IllegalArgumentException("Sökväg måste anges");
+            }
+            if (capacity < 1 || maxBatchSize < 1) {
+                throw new IllegalArgumentException("Kapacitet och satsstorlek måste vara minst 1");
+            }
+            if (maxBatchDelay == null || maxBatchDelay.isNegative()) {
+                throw new IllegalArgumentException("Väntetiden för en sats kan inte vara negativ");
+            }
+            return new GroupCommitLedger(this);
+        }
+    }
+}
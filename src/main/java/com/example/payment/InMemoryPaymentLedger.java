@@ -0,0 +1,21 @@
+package com.example.payment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/** Minnesbaserad {@link PaymentLedger} där varje post är sparad direkt. */
+public class InMemoryPaymentLedger implements PaymentLedger {
+
+    private final List<PaymentRecord> records = new ArrayList<>();
+
+    @Override
+    public synchronized CompletableFuture<Void> append(PaymentRecord record) {
+        records.add(record);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public synchronized List<PaymentRecord> getRecords() {
+        return List.copyOf(records);
+    }
+}
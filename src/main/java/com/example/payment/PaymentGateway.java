@@ -0,0 +1,15 @@
+package com.example.payment;
+
+import java.util.List;
+
+/** Extern betaltjänst. */
+public interface PaymentGateway {
+
+    /**
+     * Debiterar en sats betalningar i ett anrop. Idempotensnyckeln skickas
+     * med varje betalning så att betaltjänsten också kan avvisa dubbletter.
+     *
+     * @return ett svar per betalning, i samma ordning som i satsen
+     */
+    List<ChargeResponse> charge(List<PaymentRequest> batch) throws PaymentGatewayException;
+}
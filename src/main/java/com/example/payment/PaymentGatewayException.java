@@ -0,0 +1,7 @@
+package com.example.payment;
+
+public class PaymentGatewayException extends Exception {
+    public PaymentGatewayException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.payment;
+
+import java.util.concurrent.CompletableFuture;
+
+/** Journal över genomförda betalningar. */
+public interface PaymentLedger {
+
+    /**
+     * Lägger till en post. Framtiden blir klar när posten är beständigt
+     * sparad, eller misslyckas om den inte kunde sparas.
+     */
+    CompletableFuture<Void> append(PaymentRecord record);
+}
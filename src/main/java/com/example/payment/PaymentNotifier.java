@@ -0,0 +1,6 @@
+package com.example.payment;
+
+public interface PaymentNotifier {
+
+    void sendPaymentConfirmation(String customerEmail, long amountCents);
+}
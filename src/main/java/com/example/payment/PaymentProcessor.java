@@ -1,23 +1,380 @@
 package com.example.payment;
 
-//public class PaymentProcessor {
-//    private static final String API_KEY = "sk_test_123456";
-//
-//    public boolean processPayment(double amount) {
-//        // Anropar extern betaltjänst direkt med statisk API-nyckel
-//        PaymentApiResponse response = PaymentApi.charge(API_KEY, amount);
-//
-//        // Skriver till databas direkt
-//        if (response.isSuccess()) {
-//            DatabaseConnection.getInstance()
-//                    .executeUpdate("INSERT INTO payments (amount, status) VALUES (" + amount + ", 'SUCCESS')");
-//        }
-//
-//        // Skickar e-post direkt
-//        if (response.isSuccess()) {
-//            EmailService.sendPaymentConfirmation("user@example.com", amount);
-//        }
-//
-//        return response.isSuccess();
-//    }
-//}
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tar emot betalningar och för dem genom tre steg: debitering hos
+ * betaltjänsten i satser, bokföring i journalen och bekräftelse till kunden.
+ * Stegen kopplas ihop med {@link CompletableFuture}, så en betalning som
+ * väntar på journalen håller inte upp nästa sats mot betaltjänsten.
+ * <p>
+ * Varje idempotensnyckel debiteras högst en gång inom idempotensfönstret.
+ * Ett omförsök med samma nyckel får samma resultat som första försöket, även
+ * om det misslyckades, eftersom betalningen då kan ha gått igenom hos
+ * betaltjänsten. Färdiga resultat sparas i minnet i högst
+ * {@code idempotencyWindow} och högst {@code maxRetainedResults} stycken;
+ * ett omförsök efter det räknas som en ny betalning. Fönstret gäller bara
+ * så länge processorn lever; varaktigt skydd får slås upp i journalen.
+ */
+public class PaymentProcessor implements AutoCloseable {
+
+    private static final class Pending {
+        final PaymentRequest request;
+        final CompletableFuture<PaymentResult> result = new CompletableFuture<>();
+        long completedNanos;
+
+        Pending(PaymentRequest request) {
+            this.request = request;
+        }
+    }
+
+    private final PaymentGateway gateway;
+    private final PaymentLedger ledger;
+    private final PaymentNotifier notifier;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long maxBatchDelayNanos;
+    private final Semaphore inFlight;
+    private final ConcurrentHashMap<String, Pending> byIdempotencyKey = new ConcurrentHashMap<>();
+    // Färdiga betalningar i den ordning de blev klara, så att de äldsta kan glömmas först
+    private final ArrayDeque<Pending> retained = new ArrayDeque<>();
+    private final long idempotencyWindowNanos;
+    private final int maxRetainedResults;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread batcher;
+    private final AtomicLong outstanding = new AtomicLong();
+    private final Object idle = new Object();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong declined = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong gatewayCalls = new AtomicLong();
+    private final AtomicLong notificationFailures = new AtomicLong();
+    private volatile boolean running = true;
+
+    private PaymentProcessor(Builder builder) {
+        this.gateway = builder.gateway;
+        this.ledger = builder.ledger;
+        this.notifier = builder.notifier;
+        this.queue = new ArrayBlockingQueue<>(builder.capacity);
+        this.batchSize = builder.batchSize;
+        this.maxBatchDelayNanos = builder.maxBatchDelay.toNanos();
+        this.inFlight = new Semaphore(builder.maxInFlight);
+        this.idempotencyWindowNanos = builder.idempotencyWindow.toNanos();
+        this.maxRetainedResults = builder.maxRetainedResults;
+        this.batcher = Thread.ofVirtual().name("payment-batcher").start(this::batch);
+    }
+
+    public static Builder builder(PaymentGateway gateway, PaymentLedger ledger, PaymentNotifier notifier) {
+        return new Builder(gateway, ledger, notifier);
+    }
+
+    /**
+     * Lägger betalningen i kön. Väntar om kön är full.
+     *
+     * @return resultatet, klart när betalningen är debiterad och bokförd eller har misslyckats
+     * @throws IllegalArgumentException om nyckeln redan används för en annan betalning
+     * @throws IllegalStateException om processorn är stängd
+     */
+    public CompletableFuture<PaymentResult> submit(PaymentRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Betalning kan inte vara null");
+        }
+        if (!running) {
+            throw new IllegalStateException("Betalningsprocessorn är stängd");
+        }
+        Pending pending = new Pending(request);
+        Pending existing = byIdempotencyKey.putIfAbsent(request.getIdempotencyKey(), pending);
+        if (existing != null) {
+            if (!existing.request.isSameChargeAs(request)) {
+                throw new IllegalArgumentException("Idempotensnyckeln används redan för en annan betalning");
+            }
+            duplicates.incrementAndGet();
+            return existing.result.copy();
+        }
+
+        outstanding.incrementAndGet();
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Ett samtidigt omförsök kan redan vänta på det här resultatet
+            IllegalStateException error = new IllegalStateException("Avbröts i väntan på plats i betalningskön");
+            pending.result.completeExceptionally(error);
+            byIdempotencyKey.remove(request.getIdempotencyKey(), pending);
+            finish();
+            throw error;
+        }
+        // Satstråden kan ha tömt kön och slutat medan vi väntade på plats i den
+        if (!running && queue.remove(pending)) {
+            byIdempotencyKey.remove(request.getIdempotencyKey(), pending);
+            pending.result.completeExceptionally(new IllegalStateException("Betalningsprocessorn är stängd"));
+            finish();
+            throw new IllegalStateException("Betalningsprocessorn är stängd");
+        }
+        return pending.result.copy();
+    }
+
+    /** Debiterar en betalning och väntar på resultatet. */
+    public PaymentResult processPayment(PaymentRequest request) {
+        return submit(request).join();
+    }
+
+    public long getSucceededCount() {
+        return succeeded.get();
+    }
+
+    public long getDeclinedCount() {
+        return declined.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /** Antal omförsök som fick ett tidigare resultat i stället för en ny debitering. */
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    public long getGatewayCallCount() {
+        return gatewayCalls.get();
+    }
+
+    public long getNotificationFailureCount() {
+        return notificationFailures.get();
+    }
+
+    /**
+     * Slutar ta emot betalningar och väntar tills alla köade betalningar har
+     * fått ett resultat och deras bekräftelser har skickats.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            batcher.join();
+            synchronized (idle) {
+                while (outstanding.get() > 0) {
+                    idle.wait();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.close();
+    }
+
+    private void batch() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Väntar en kort stund på fler betalningar så att satsen blir större
+                long deadline = System.nanoTime() + maxBatchDelayNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                inFlight.acquire();
+                List<Pending> charged = List.copyOf(batch);
+                workers.execute(() -> charge(charged));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void charge(List<Pending> batch) {
+        List<PaymentRequest> requests = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            requests.add(pending.request);
+        }
+
+        List<ChargeResponse> responses;
+        try {
+            gatewayCalls.incrementAndGet();
+            responses = gateway.charge(requests);
+            if (responses == null || responses.size() != batch.size()) {
+                throw new PaymentGatewayException("Betaltjänsten svarade med fel antal resultat");
+            }
+        } catch (PaymentGatewayException | RuntimeException e) {
+            for (Pending pending : batch) {
+                complete(pending, PaymentResult.failed(pending.request, null, "Betaltjänsten svarade inte: " + e.getMessage()));
+            }
+            return;
+        } finally {
+            inFlight.release();
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            ChargeResponse response = responses.get(i);
+            if (response == null) {
+                complete(pending, PaymentResult.failed(pending.request, null, "Betaltjänsten saknade svar för betalningen"));
+            } else if (response.isApproved()) {
+                record(pending, response.getTransactionId());
+            } else {
+                complete(pending, PaymentResult.declined(pending.request, response.getDeclineReason()));
+            }
+        }
+    }
+
+    private void record(Pending pending, String transactionId) {
+        PaymentRequest request = pending.request;
+        CompletableFuture<Void> durable;
+        try {
+            durable = ledger.append(new PaymentRecord(request.getIdempotencyKey(), transactionId, request.getAmountCents()));
+        } catch (RuntimeException e) {
+            durable = CompletableFuture.failedFuture(e);
+        }
+        durable.whenComplete((ignored, error) -> {
+            if (error != null) {
+                complete(pending, PaymentResult.failed(request, transactionId, "Betalningen debiterades men kunde inte bokföras"));
+                return;
+            }
+            complete(pending, PaymentResult.succeeded(request, transactionId));
+        });
+    }
+
+    private void complete(Pending pending, PaymentResult result) {
+        switch (result.getStatus()) {
+            case SUCCEEDED -> {
+                succeeded.incrementAndGet();
+                workers.execute(() -> notifyCustomer(pending.request));
+            }
+            case DECLINED -> declined.incrementAndGet();
+            case FAILED -> failed.incrementAndGet();
+        }
+        // Gallra före svaret så att den som väntar ser ett redan begränsat minne
+        retain(pending);
+        pending.result.complete(result);
+        finish();
+    }
+
+    private void retain(Pending pending) {
+        long now = System.nanoTime();
+        synchronized (retained) {
+            pending.completedNanos = now;
+            retained.addLast(pending);
+            Pending oldest;
+            while ((oldest = retained.peekFirst()) != null
+                    && (retained.size() > maxRetainedResults || now - oldest.completedNanos > idempotencyWindowNanos)) {
+                retained.removeFirst();
+                byIdempotencyKey.remove(oldest.request.getIdempotencyKey(), oldest);
+            }
+        }
+    }
+
+    private void notifyCustomer(PaymentRequest request) {
+        try {
+            notifier.sendPaymentConfirmation(request.getCustomerEmail(), request.getAmountCents());
+        } catch (RuntimeException e) {
+            notificationFailures.incrementAndGet();
+        }
+    }
+
+    private void finish() {
+        if (outstanding.decrementAndGet() == 0) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+
+    public static final class Builder {
+        private final PaymentGateway gateway;
+        private final PaymentLedger ledger;
+        private final PaymentNotifier notifier;
+        private int capacity = 10_000;
+        private int batchSize = 50;
+        private Duration maxBatchDelay = Duration.ofMillis(5);
+        private int maxInFlight = 8;
+        private Duration idempotencyWindow = Duration.ofHours(24);
+        private int maxRetainedResults = 100_000;
+
+        private Builder(PaymentGateway gateway, PaymentLedger ledger, PaymentNotifier notifier) {
+            this.gateway = gateway;
+            this.ledger = ledger;
+            this.notifier = notifier;
+        }
+
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        /** Högsta antal betalningar per anrop till betaltjänsten. */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /** Hur länge en betalning högst väntar på att satsen ska fyllas. */
+        public Builder maxBatchDelay(Duration maxBatchDelay) {
+            this.maxBatchDelay = maxBatchDelay;
+            return this;
+        }
+
+        /** Högsta antal satser som får pågå mot betaltjänsten samtidigt. */
+        public Builder maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /** Hur länge ett färdigt resultat ges tillbaka till omförsök med samma nyckel. */
+        public Builder idempotencyWindow(Duration idempotencyWindow) {
+            this.idempotencyWindow = idempotencyWindow;
+            return this;
+        }
+
+        /** Högsta antal färdiga resultat som sparas för omförsök; de äldsta glöms först. */
+        public Builder maxRetainedResults(int maxRetainedResults) {
+            this.maxRetainedResults = maxRetainedResults;
+            return this;
+        }
+
+        public PaymentProcessor build() {
+            if (gateway == null || ledger == null || notifier == null) {
+                throw new IllegalArgumentException("Betaltjänst, journal och notifiering måste anges");
+            }
+            if (capacity < 1 || batchSize < 1 || maxInFlight < 1 || maxRetainedResults < 1) {
+                throw new IllegalArgumentException("Kapacitet, satsstorlek, samtidighet och antal sparade resultat måste vara minst 1");
+            }
+            if (maxBatchDelay == null || maxBatchDelay.isNegative()) {
+                throw new IllegalArgumentException("Väntetiden för en sats kan inte vara negativ");
+            }
+            if (idempotencyWindow == null || idempotencyWindow.isNegative()) {
+                throw new IllegalArgumentException("Idempotensfönstret kan inte vara negativt");
+            }
+            return new PaymentProcessor(this);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.payment;
+
+/** En genomförd betalning så som den skrivs i betalningsjournalen. */
+public class PaymentRecord {
+    private final String idempotencyKey;
+    private final String transactionId;
+    private final long amountCents;
+
+    public PaymentRecord(String idempotencyKey, String transactionId, long amountCents) {
+        this.idempotencyKey = idempotencyKey;
+        this.transactionId = transactionId;
+        this.amountCents = amountCents;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.payment;
+
+import java.util.Objects;
+
+/**
+ * En betalning som ska debiteras. Idempotensnyckeln väljs av klienten och
+ * återanvänds vid omförsök, så att samma betalning aldrig debiteras två gånger.
+ */
+public class PaymentRequest {
+    private final String idempotencyKey;
+    private final String customerEmail;
+    private final long amountCents;
+
+    public PaymentRequest(String idempotencyKey, String customerEmail, long amountCents) {
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            throw new IllegalArgumentException("Idempotensnyckel måste anges");
+        }
+        if (amountCents <= 0) {
+            throw new IllegalArgumentException("Beloppet måste vara positivt");
+        }
+        this.idempotencyKey = idempotencyKey;
+        this.customerEmail = customerEmail;
+        this.amountCents = amountCents;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getCustomerEmail() {
+        return customerEmail;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    /** Samma betalning om belopp och mottagare stämmer; nyckeln jämförs av anroparen. */
+    boolean isSameChargeAs(PaymentRequest other) {
+        return amountCents == other.amountCents
+                && Objects.equals(customerEmail, other.customerEmail);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.payment;
+
+public class PaymentResult {
+
+    public enum Status {
+        SUCCEEDED,
+        DECLINED,
+        /** Betaltjänsten eller journalen fick fel; betalningen kan ha debiterats. */
+        FAILED
+    }
+
+    private final PaymentRequest request;
+    private final Status status;
+    private final String transactionId;
+    private final String message;
+
+    private PaymentResult(PaymentRequest request, Status status, String transactionId, String message) {
+        this.request = request;
+        this.status = status;
+        this.transactionId = transactionId;
+        this.message = message;
+    }
+
+    static PaymentResult succeeded(PaymentRequest request, String transactionId) {
+        return new PaymentResult(request, Status.SUCCEEDED, transactionId, null);
+    }
+
+    static PaymentResult declined(PaymentRequest request, String message) {
+        return new PaymentResult(request, Status.DECLINED, null, message);
+    }
+
+    static PaymentResult failed(PaymentRequest request, String transactionId, String message) {
+        return new PaymentResult(request, Status.FAILED, transactionId, message);
+    }
+
+    public PaymentRequest getRequest() {
+        return request;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.SUCCEEDED;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
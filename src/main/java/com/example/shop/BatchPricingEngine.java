@@ -0,0 +1,117 @@
+package com.example.shop;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Prices many carts with one {@link PricingPipeline} on a fork-join pool.
+ * The list is split in halves until a slice is at most {@code batchSize}
+ * carts, and each slice writes its totals straight into the shared result
+ * array.
+ * <p>
+ * Carts must not be edited while they are being priced, except
+ * {@link ConcurrentShoppingCart}, which tolerates it.
+ */
+public class BatchPricingEngine implements AutoCloseable {
+
+    private final PricingPipeline pipeline;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int batchSize;
+
+    private BatchPricingEngine(Builder builder) {
+        this.pipeline = builder.pipeline;
+        this.ownsPool = builder.pool == null;
+        this.pool = ownsPool ? new ForkJoinPool(builder.parallelism) : builder.pool;
+        this.batchSize = builder.batchSize;
+    }
+
+    public static Builder builder(PricingPipeline pipeline) {
+        return new Builder(pipeline);
+    }
+
+    /** Prices every cart; the totals in the report are in the same order as the carts. */
+    public PricingReport priceAll(List<? extends Cart> carts) {
+        long[] totals = new long[carts.size()];
+        long started = System.nanoTime();
+        if (!carts.isEmpty()) {
+            pool.invoke(new PriceSlice(carts, totals, 0, carts.size()));
+        }
+        return new PricingReport(totals, System.nanoTime() - started);
+    }
+
+    /** Shuts down the pool if the engine created it. */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.close();
+        }
+    }
+
+    // Fork/join tasks are never serialized, so their fields need not be serializable
+    @SuppressWarnings("serial")
+    private final class PriceSlice extends RecursiveAction {
+        private final List<? extends Cart> carts;
+        private final long[] totals;
+        private final int from;
+        private final int to;
+
+        PriceSlice(List<? extends Cart> carts, long[] totals, int from, int to) {
+            this.carts = carts;
+            this.totals = totals;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                for (int i = from; i < to; i++) {
+                    totals[i] = pipeline.price(carts.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PriceSlice(carts, totals, from, middle), new PriceSlice(carts, totals, middle, to));
+        }
+    }
+
+    public static final class Builder {
+        private final PricingPipeline pipeline;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int batchSize = 256;
+        private ForkJoinPool pool;
+
+        private Builder(PricingPipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /** Largest number of carts priced by one task without splitting further. */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /** Runs on an existing pool instead of creating one; {@link #close()} then leaves it running. */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public BatchPricingEngine build() {
+            if (pipeline == null) {
+                throw new IllegalArgumentException("Pricing pipeline must not be null");
+            }
+            if (parallelism < 1 || batchSize < 1) {
+                throw new IllegalArgumentException("Parallelism and batch size must be at least 1");
+            }
+            return new BatchPricingEngine(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.shop;
+
+/**
+ * Operations shared by the cart implementations. Prices and totals are in
+ * cents.
+ */
+public interface Cart {
+
+    /** Receives the lines of a cart one at a time. */
+    @FunctionalInterface
+    interface LineConsumer {
+        void accept(String productId, int price, int quantity);
+    }
+
+    int getTotal();
+
+    void addItem(String productId, int price);
+
+    void updateQuantity(String productId, int quantity);
+
+    void removeItem(String productId);
+
+    void applyPercentageDiscount(int discount);
+
+    void applyFixedDiscount(int discountAmount);
+
+    int getPercentageDiscount();
+
+    int getFixedDiscount();
+
+    /** Passes every line to the consumer, in no particular order. */
+    void forEachLine(LineConsumer consumer);
+}
@@ -0,0 +1,128 @@
+package com.example.shop;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Layout shared by {@link CartSnapshotWriter} and {@link CartSnapshotReader}.
+ * All numbers are unsigned LEB128 varints.
+ * <pre>
+ * magic 0xC5, version, kind (FULL or DELTA)
+ * sequence
+ * percentage discount, fixed discount
+ * new id count, then per id: UTF-8 length and bytes
+ * upsert count, then per line: id index, price, quantity
+ * remove count, then per line: id index
+ * </pre>
+ * Id indexes point into a dictionary that a full snapshot starts over and
+ * each delta extends, so a product id is written once per session.
+ */
+final class CartSnapshotFormat {
+    static final byte MAGIC = (byte) 0xC5;
+    static final byte VERSION = 1;
+    static final byte FULL = 0;
+    static final byte DELTA = 1;
+
+    private CartSnapshotFormat() {
+    }
+
+    /** Growable output buffer that is reused between snapshots. */
+    static final class Output {
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        void writeByte(byte value) {
+            ensureCapacity(1);
+            bytes[size++] = value;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length * 2));
+            }
+        }
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw malformed();
+    }
+
+    /** Reads a varint that must fit in a non-negative int. */
+    static int readInt(ByteBuffer in) {
+        long value = readVarint(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw malformed();
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads an item count. Every item takes at least one byte, so a count
+     * larger than what is left in the buffer is rejected before anything is
+     * allocated for it.
+     */
+    static int readCount(ByteBuffer in) {
+        int count = readInt(in);
+        if (count > in.remaining()) {
+            throw malformed();
+        }
+        return count;
+    }
+
+    /** Decodes straight from the buffer's backing array when it has one. */
+    static String readString(ByteBuffer in) {
+        int length = readInt(in);
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] utf8 = new byte[length];
+            in.get(utf8);
+            value = new String(utf8, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    static IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Malformed cart snapshot");
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.shop;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Rebuilds a cart from snapshots written by a {@link CartSnapshotWriter}.
+ * Snapshots are read straight from the given buffer, and each product id is
+ * decoded once per session; later deltas refer to it by index. Lines are
+ * kept in arrays indexed like the dictionary.
+ * <p>
+ * A snapshot that is malformed or out of order leaves the reader unusable
+ * until the next full snapshot.
+ */
+public class CartSnapshotReader {
+
+    private String[] ids = new String[16];
+    private int[] prices = new int[16];
+    // 0 means the product has no line in the cart
+    private int[] quantities = new int[16];
+    private int idCount;
+    private int lineCount;
+    private int percentageDiscount;
+    private int fixedDiscount;
+    private long sequence = -1;
+
+    /**
+     * Applies the snapshot starting at the buffer's position and leaves the
+     * position after it.
+     *
+     * @throws IllegalArgumentException if the snapshot is malformed
+     * @throws IllegalStateException if a delta does not follow the last applied snapshot
+     */
+    public void apply(ByteBuffer snapshot) {
+        long previous = sequence;
+        sequence = -1;
+        try {
+            if (snapshot.get() != CartSnapshotFormat.MAGIC || snapshot.get() != CartSnapshotFormat.VERSION) {
+                throw CartSnapshotFormat.malformed();
+            }
+            byte kind = snapshot.get();
+            long next = CartSnapshotFormat.readVarint(snapshot);
+            if (kind == CartSnapshotFormat.FULL) {
+                clear();
+            } else if (kind != CartSnapshotFormat.DELTA) {
+                throw CartSnapshotFormat.malformed();
+            } else if (previous < 0 || next != previous + 1) {
+                throw new IllegalStateException("Delta snapshot does not follow the last applied snapshot");
+            }
+            read(snapshot);
+            sequence = next;
+        } catch (BufferUnderflowException e) {
+            throw CartSnapshotFormat.malformed();
+        }
+    }
+
+    /** @return the sequence number of the last applied snapshot, or -1 */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getPercentageDiscount() {
+        return percentageDiscount;
+    }
+
+    public int getFixedDiscount() {
+        return fixedDiscount;
+    }
+
+    public void forEachLine(Cart.LineConsumer consumer) {
+        for (int i = 0; i < idCount; i++) {
+            if (quantities[i] > 0) {
+                consumer.accept(ids[i], prices[i], quantities[i]);
+            }
+        }
+    }
+
+    /** Builds a new cart with the current lines and discounts. */
+    public ShoppingCart toCart() {
+        ShoppingCart cart = new ShoppingCart();
+        forEachLine((productId, price, quantity) -> {
+            cart.addItem(productId, price);
+            cart.updateQuantity(productId, quantity);
+        });
+        cart.applyPercentageDiscount(percentageDiscount);
+        cart.applyFixedDiscount(fixedDiscount);
+        return cart;
+    }
+
+    private void read(ByteBuffer in) {
+        percentageDiscount = CartSnapshotFormat.readInt(in);
+        fixedDiscount = CartSnapshotFormat.readInt(in);
+        if (percentageDiscount > 100) {
+            throw CartSnapshotFormat.malformed();
+        }
+
+        int newIds = CartSnapshotFormat.readCount(in);
+        if (newIds > Integer.MAX_VALUE - idCount) {
+            throw CartSnapshotFormat.malformed();
+        }
+        ensureCapacity(idCount + newIds);
+        for (int i = 0; i < newIds; i++) {
+            ids[idCount] = CartSnapshotFormat.readString(in);
+            prices[idCount] = 0;
+            quantities[idCount] = 0;
+            idCount++;
+        }
+
+        int upserts = CartSnapshotFormat.readCount(in);
+        for (int i = 0; i < upserts; i++) {
+            int index = readIndex(in);
+            int price = CartSnapshotFormat.readInt(in);
+            int quantity = CartSnapshotFormat.readInt(in);
+            if (quantity == 0) {
+                throw CartSnapshotFormat.malformed();
+            }
+            if (quantities[index] == 0) {
+                lineCount++;
+            }
+            prices[index] = price;
+            quantities[index] = quantity;
+        }
+
+        int removes = CartSnapshotFormat.readCount(in);
+        for (int i = 0; i < removes; i++) {
+            int index = readIndex(in);
+            if (quantities[index] != 0) {
+                quantities[index] = 0;
+                lineCount--;
+            }
+        }
+    }
+
+    private int readIndex(ByteBuffer in) {
+        int index = CartSnapshotFormat.readInt(in);
+        if (index >= idCount) {
+            throw CartSnapshotFormat.malformed();
+        }
+        return index;
+    }
+
+    private void clear() {
+        Arrays.fill(ids, 0, idCount, null);
+        idCount = 0;
+        lineCount = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        prices = Arrays.copyOf(prices, newCapacity);
+        quantities = Arrays.copyOf(quantities, newCapacity);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.shop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes compact binary snapshots of one cart for a session store. The first
+ * snapshot is full; after that {@link #writeDelta(Cart)} only writes the
+ * lines that changed since the previous snapshot. Apply the snapshots in
+ * order with a {@link CartSnapshotReader}. One writer per cart; not thread
+ * safe.
+ */
+public class CartSnapshotWriter {
+    // Removed products keep their dictionary slot until the next full snapshot
+    private static final int MAX_STALE_IDS = 64;
+
+    private final CartSnapshotFormat.Output out = new CartSnapshotFormat.Output();
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    // Price in the high half and quantity in the low half, as last written
+    private Map<String, Long> written = new HashMap<>();
+    private int percentageDiscount;
+    private int fixedDiscount;
+    private long sequence = -1;
+
+    /** Writes every line; a reader can start from this snapshot alone. */
+    public byte[] writeFull(Cart cart) {
+        Map<String, Long> current = linesOf(cart);
+        dictionary.clear();
+        List<String> newIds = new ArrayList<>(current.keySet());
+        for (String productId : newIds) {
+            dictionary.put(productId, dictionary.size());
+        }
+        return write(CartSnapshotFormat.FULL, cart, current, newIds, newIds, List.of());
+    }
+
+    /**
+     * Writes the changes since the last snapshot from this writer, or a full
+     * snapshot if there is none or the dictionary has grown well past the
+     * number of lines.
+     */
+    public byte[] writeDelta(Cart cart) {
+        if (sequence < 0 || dictionary.size() > 2 * written.size() + MAX_STALE_IDS) {
+            return writeFull(cart);
+        }
+        Map<String, Long> current = linesOf(cart);
+        List<String> newIds = new ArrayList<>();
+        List<String> upserts = new ArrayList<>();
+        for (Map.Entry<String, Long> line : current.entrySet()) {
+            String productId = line.getKey();
+            if (!dictionary.containsKey(productId)) {
+                dictionary.put(productId, dictionary.size());
+                newIds.add(productId);
+            }
+            if (!line.getValue().equals(written.get(productId))) {
+                upserts.add(productId);
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String productId : written.keySet()) {
+            if (!current.containsKey(productId)) {
+                removed.add(productId);
+            }
+        }
+        return write(CartSnapshotFormat.DELTA, cart, current, newIds, upserts, removed);
+    }
+
+    /** @return the sequence number of the last snapshot written, or -1 */
+    public long getSequence() {
+        return sequence;
+    }
+
+    private byte[] write(byte kind, Cart cart, Map<String, Long> current,
+                         List<String> newIds, List<String> upserts, List<String> removed) {
+        percentageDiscount = cart.getPercentageDiscount();
+        fixedDiscount = cart.getFixedDiscount();
+        out.reset();
+        out.writeByte(CartSnapshotFormat.MAGIC);
+        out.writeByte(CartSnapshotFormat.VERSION);
+        out.writeByte(kind);
+        out.writeVarint(sequence + 1);
+        out.writeVarint(percentageDiscount);
+        out.writeVarint(fixedDiscount);
+        out.writeVarint(newIds.size());
+        for (String productId : newIds) {
+            out.writeString(productId);
+        }
+        out.writeVarint(upserts.size());
+        for (String productId : upserts) {
+            long line = current.get(productId);
+            out.writeVarint(dictionary.get(productId));
+            out.writeVarint(line >>> 32);
+            out.writeVarint(line & 0xFFFF_FFFFL);
+        }
+        out.writeVarint(removed.size());
+        for (String productId : removed) {
+            out.writeVarint(dictionary.get(productId));
+        }
+        byte[] snapshot = out.toByteArray();
+        written = current;
+        sequence++;
+        return snapshot;
+    }
+
+    private static Map<String, Long> linesOf(Cart cart) {
+        Map<String, Long> lines = new HashMap<>();
+        cart.forEachLine((productId, price, quantity) ->
+                lines.put(productId, (long) price << 32 | quantity));
+        return lines;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.shop;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cart that can be edited from several threads at once, e.g. a shared team
+ * cart. Each edit replaces an immutable line inside
+ * {@link ConcurrentHashMap#compute}, so edits of the same product are atomic
+ * and never lost, while edits of different products do not contend. The
+ * subtotal is a {@link LongAdder} updated inside the same compute call.
+ * <p>
+ * {@link #getTotal()} is exact once writers are quiescent; while edits are in
+ * flight it may include some of them and not others.
+ */
+public class ConcurrentShoppingCart implements Cart {
+
+    private record Line(int price, int quantity) {
+        long total() {
+            return (long) price * quantity;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Line> cartItem = new ConcurrentHashMap<>();
+    private final LongAdder subtotal = new LongAdder();
+    private volatile int percentageDiscount = 0;
+    private volatile int fixedDiscount = 0;
+
+    /**
+     * @throws ArithmeticException if the discounted total does not fit in an int
+     */
+    @Override
+    public int getTotal() {
+        return Math.toIntExact(ShoppingCart.applyDiscount(subtotal.sum(), percentageDiscount, fixedDiscount));
+    }
+
+    @Override
+    public void addItem(String productId, int price) {
+        if (price < 0) {
+            throw new IllegalArgumentException("Price cannot be negative");
+        }
+        cartItem.compute(productId, (id, line) -> {
+            if (line == null) {
+                subtotal.add(price);
+                return new Line(price, 1);
+            }
+            Line updated = new Line(line.price(), Math.addExact(line.quantity(), 1));
+            subtotal.add(line.price());
+            return updated;
+        });
+    }
+
+    @Override
+    public void updateQuantity(String productId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must be greater than or equal to 0");
+        }
+        cartItem.computeIfPresent(productId, (id, line) -> {
+            Line updated = quantity == 0 ? null : new Line(line.price(), quantity);
+            subtotal.add((long) line.price() * quantity - line.total());
+            return updated;
+        });
+    }
+
+    @Override
+    public void removeItem(String productId) {
+        cartItem.computeIfPresent(productId, (id, line) -> {
+            subtotal.add(-line.total());
+            return null;
+        });
+    }
+
+    @Override
+    public void applyPercentageDiscount(int discount) {
+        if (discount < 0 || discount > 100) {
+            throw new IllegalArgumentException("Discount must be greater than or equal to 0");
+        }
+        this.percentageDiscount = discount;
+    }
+
+    @Override
+    public void applyFixedDiscount(int discountAmount) {
+        if (discountAmount < 0) {
+            throw new IllegalArgumentException("Discount amount must be greater than or equal to 0");
+        }
+        this.fixedDiscount = discountAmount;
+    }
+
+    @Override
+    public int getPercentageDiscount() {
+        return percentageDiscount;
+    }
+
+    @Override
+    public int getFixedDiscount() {
+        return fixedDiscount;
+    }
+
+    /** Lines edited while the walk is in progress may or may not be seen. */
+    @Override
+    public void forEachLine(LineConsumer consumer) {
+        cartItem.forEach((productId, line) -> consumer.accept(productId, line.price(), line.quantity()));
+    }
+}
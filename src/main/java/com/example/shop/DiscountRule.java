@@ -0,0 +1,125 @@
+package com.example.shop;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A discount used by a {@link PricingPipeline}. Product rules change the
+ * total of a single line; cart rules change the running cart total after all
+ * lines are priced, in the order they were added. As in
+ * {@link ShoppingCart}, a total never goes below zero.
+ */
+public sealed interface DiscountRule {
+
+    /** Percentage off every line of the given product. */
+    static DiscountRule productPercentage(String productId, int percent) {
+        return new ProductPercentage(productId, percent);
+    }
+
+    /** Fixed amount off each unit of the given product. */
+    static DiscountRule productFixed(String productId, int amountPerUnit) {
+        return new ProductFixed(productId, amountPerUnit);
+    }
+
+    /**
+     * Percentage off a product line depending on its quantity. The tier with
+     * the highest minimum quantity that the line reaches applies.
+     *
+     * @param percentByMinQuantity percentage off keyed by minimum quantity
+     */
+    static DiscountRule quantityTiers(String productId, Map<Integer, Integer> percentByMinQuantity) {
+        TreeMap<Integer, Integer> sorted = new TreeMap<>(percentByMinQuantity);
+        int[] minQuantities = sorted.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[] percents = sorted.values().stream().mapToInt(Integer::intValue).toArray();
+        return new QuantityTiers(productId, minQuantities, percents);
+    }
+
+    /** Percentage off the cart total. */
+    static DiscountRule percentage(int percent) {
+        return new Percentage(percent);
+    }
+
+    /** Fixed amount off the cart total. */
+    static DiscountRule fixed(int amount) {
+        return new Fixed(amount);
+    }
+
+    record ProductPercentage(String productId, int percent) implements DiscountRule {
+        public ProductPercentage {
+            requireProduct(productId);
+            requirePercent(percent);
+        }
+    }
+
+    record ProductFixed(String productId, int amountPerUnit) implements DiscountRule {
+        public ProductFixed {
+            requireProduct(productId);
+            requireAmount(amountPerUnit);
+        }
+    }
+
+    record QuantityTiers(String productId, int[] minQuantities, int[] percents) implements DiscountRule {
+        public QuantityTiers {
+            requireProduct(productId);
+            if (minQuantities.length == 0 || minQuantities.length != percents.length) {
+                throw new IllegalArgumentException("Quantity tiers must not be empty");
+            }
+            for (int i = 0; i < minQuantities.length; i++) {
+                if (minQuantities[i] < 1 || (i > 0 && minQuantities[i] <= minQuantities[i - 1])) {
+                    throw new IllegalArgumentException("Tier quantities must be positive and increasing");
+                }
+                requirePercent(percents[i]);
+            }
+            minQuantities = minQuantities.clone();
+            percents = percents.clone();
+        }
+
+        @Override
+        public int[] minQuantities() {
+            return minQuantities.clone();
+        }
+
+        @Override
+        public int[] percents() {
+            return percents.clone();
+        }
+
+        /** @return the percentage off for a line with the given quantity, 0 below the first tier */
+        int percentFor(int quantity) {
+            int tier = Arrays.binarySearch(minQuantities, quantity);
+            int index = tier >= 0 ? tier : -tier - 2;
+            return index < 0 ? 0 : percents[index];
+        }
+    }
+
+    record Percentage(int percent) implements DiscountRule {
+        public Percentage {
+            requirePercent(percent);
+        }
+    }
+
+    record Fixed(int amount) implements DiscountRule {
+        public Fixed {
+            requireAmount(amount);
+        }
+    }
+
+    private static void requireProduct(String productId) {
+        if (productId == null) {
+            throw new IllegalArgumentException("Product id must not be null");
+        }
+    }
+
+    private static void requirePercent(int percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Discount must be greater than or equal to 0");
+        }
+    }
+
+    private static void requireAmount(int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Discount amount must be greater than or equal to 0");
+        }
+    }
+}
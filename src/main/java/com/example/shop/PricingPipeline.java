@@ -0,0 +1,108 @@
+package com.example.shop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fixed list of {@link DiscountRule}s compiled for pricing many carts.
+ * Product rules are grouped by product id so each line only looks at its own
+ * rules; cart rules run in the order they were added. Pipelines are
+ * immutable and safe to share between threads.
+ * <p>
+ * Only the rules in the pipeline are applied; discounts set on the cart
+ * itself are ignored.
+ */
+public final class PricingPipeline {
+
+    @FunctionalInterface
+    private interface LineStep {
+        long apply(long lineTotal, int quantity);
+    }
+
+    @FunctionalInterface
+    private interface CartStep {
+        long apply(long total);
+    }
+
+    private static final LineStep[] NO_LINE_STEPS = new LineStep[0];
+
+    private final Map<String, LineStep[]> lineSteps;
+    private final CartStep[] cartSteps;
+
+    private PricingPipeline(Builder builder) {
+        Map<String, List<LineStep>> byProduct = new HashMap<>();
+        List<CartStep> cart = new ArrayList<>();
+        for (DiscountRule rule : builder.rules) {
+            switch (rule) {
+                case DiscountRule.ProductPercentage r -> byProduct
+                        .computeIfAbsent(r.productId(), id -> new ArrayList<>())
+                        .add((total, quantity) -> percentOff(total, r.percent()));
+                case DiscountRule.ProductFixed r -> byProduct
+                        .computeIfAbsent(r.productId(), id -> new ArrayList<>())
+                        .add((total, quantity) -> Math.max(total - (long) r.amountPerUnit() * quantity, 0));
+                case DiscountRule.QuantityTiers r -> byProduct
+                        .computeIfAbsent(r.productId(), id -> new ArrayList<>())
+                        .add((total, quantity) -> percentOff(total, r.percentFor(quantity)));
+                case DiscountRule.Percentage r -> cart.add(total -> percentOff(total, r.percent()));
+                case DiscountRule.Fixed r -> cart.add(total -> total - r.amount());
+            }
+        }
+        this.lineSteps = new HashMap<>(byProduct.size() * 2);
+        byProduct.forEach((productId, steps) -> lineSteps.put(productId, steps.toArray(NO_LINE_STEPS)));
+        this.cartSteps = cart.toArray(new CartStep[0]);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** @return the discounted total of the cart in cents, never below zero */
+    public long price(Cart cart) {
+        Accumulator accumulator = new Accumulator();
+        cart.forEachLine(accumulator);
+        long total = accumulator.total;
+        for (CartStep step : cartSteps) {
+            total = step.apply(total);
+        }
+        return Math.max(total, 0);
+    }
+
+    private static long percentOff(long total, int percent) {
+        return percent == 0 ? total : Math.multiplyExact(total, 100 - percent) / 100;
+    }
+
+    private final class Accumulator implements Cart.LineConsumer {
+        long total;
+
+        @Override
+        public void accept(String productId, int price, int quantity) {
+            long lineTotal = (long) price * quantity;
+            LineStep[] steps = lineSteps.getOrDefault(productId, NO_LINE_STEPS);
+            for (LineStep step : steps) {
+                lineTotal = step.apply(lineTotal, quantity);
+            }
+            total = Math.addExact(total, lineTotal);
+        }
+    }
+
+    public static final class Builder {
+        private final List<DiscountRule> rules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder add(DiscountRule rule) {
+            if (rule == null) {
+                throw new IllegalArgumentException("Discount rule must not be null");
+            }
+            rules.add(rule);
+            return this;
+        }
+
+        public PricingPipeline build() {
+            return new PricingPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.shop;
+
+import java.time.Duration;
+
+/** Totals from one {@link BatchPricingEngine#priceAll} run and how long it took. */
+public final class PricingReport {
+    private final long[] totals;
+    private final long elapsedNanos;
+
+    PricingReport(long[] totals, long elapsedNanos) {
+        this.totals = totals;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /** @return the total in cents of the cart at the given position */
+    public long getTotal(int index) {
+        return totals[index];
+    }
+
+    public long[] getTotals() {
+        return totals.clone();
+    }
+
+    public int getCartCount() {
+        return totals.length;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public double getCartsPerSecond() {
+        return elapsedNanos == 0 ? 0 : totals.length * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d carts in %d ms (%.0f carts/s)",
+                totals.length, getElapsed().toMillis(), getCartsPerSecond());
+    }
+}
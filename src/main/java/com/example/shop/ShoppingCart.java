@@ -3,8 +3,11 @@ package com.example.shop;
 import java.util.HashMap;
 import java.util.Map;
 
-
-public class ShoppingCart {
+/**
+ * Single-threaded cart. Use {@link ConcurrentShoppingCart} for carts that are
+ * edited from several sessions at once.
+ */
+public class ShoppingCart implements Cart {
 
     private static class Line {
         int price;
@@ -17,35 +20,45 @@ public class ShoppingCart {
     }
 
     private final Map<String, Line> cartItem = new HashMap<>();
+    // Kept in step with cartItem by every edit so getTotal never walks the lines
+    private long subtotal = 0;
     private int percentageDiscount = 0;
     private int fixedDiscount = 0;
 
+    /**
+     * @throws ArithmeticException if the discounted total does not fit in an int
+     */
+    @Override
     public int getTotal() {
-        int subtotal = 0;
-        for (Line line : cartItem.values()) {
-            subtotal += line.price * line.quantity;
-        }
-        return applyDiscount(subtotal);
+        return Math.toIntExact(applyDiscount(subtotal));
     }
 
+    @Override
     public void addItem(String productId, int price) {
         if (price < 0) {
             throw new IllegalArgumentException("Price cannot be negative");
         }
         Line line = cartItem.get(productId);
         if (line == null) {
+            subtotal = Math.addExact(subtotal, price);
             cartItem.put(productId, new Line(price,1));
         } else {
-            line.quantity += 1;
+            // Both can overflow; compute them before touching the cart so it stays consistent
+            int quantity = Math.addExact(line.quantity, 1);
+            long newSubtotal = Math.addExact(subtotal, line.price);
+            line.quantity = quantity;
+            subtotal = newSubtotal;
         }
     }
 
+    @Override
     public void updateQuantity(String productId, int quantity) {
         if (quantity < 0) {
             throw new IllegalArgumentException("Quantity must be greater than or equal to 0");
         }
         Line line = cartItem.get(productId);
         if (line == null) return;
+        subtotal = Math.addExact(subtotal - lineTotal(line), (long) line.price * quantity);
         if (quantity == 0) {
             cartItem.remove(productId);
         } else {
@@ -53,10 +66,15 @@ public class ShoppingCart {
         }
     }
 
+    @Override
     public void removeItem(String productId) {
-        cartItem.remove(productId);
+        Line line = cartItem.remove(productId);
+        if (line != null) {
+            subtotal -= lineTotal(line);
+        }
     }
 
+    @Override
     public void applyPercentageDiscount(int discount) {
         if (discount < 0 || discount > 100) {
             throw new IllegalArgumentException("Discount must be greater than or equal to 0");
@@ -64,6 +82,7 @@ public class ShoppingCart {
         this.percentageDiscount = discount;
     }
 
+    @Override
     public void applyFixedDiscount(int discountAmount) {
         if (discountAmount < 0) {
             throw new IllegalArgumentException("Discount amount must be greater than or equal to 0");
@@ -71,11 +90,36 @@ public class ShoppingCart {
         this.fixedDiscount = discountAmount;
     }
 
-    private int applyDiscount(int subtotal) {
-        int total = subtotal;
+    @Override
+    public int getPercentageDiscount() {
+        return percentageDiscount;
+    }
+
+    @Override
+    public int getFixedDiscount() {
+        return fixedDiscount;
+    }
+
+    @Override
+    public void forEachLine(LineConsumer consumer) {
+        for (Map.Entry<String, Line> entry : cartItem.entrySet()) {
+            consumer.accept(entry.getKey(), entry.getValue().price, entry.getValue().quantity);
+        }
+    }
+
+    private static long lineTotal(Line line) {
+        return (long) line.price * line.quantity;
+    }
+
+    private long applyDiscount(long subtotal) {
+        return applyDiscount(subtotal, percentageDiscount, fixedDiscount);
+    }
+
+    static long applyDiscount(long subtotal, int percentageDiscount, int fixedDiscount) {
+        long total = subtotal;
 
         if (percentageDiscount > 0) {
-            total = total * (100 - percentageDiscount) / 100;
+            total = Math.multiplyExact(total, 100 - percentageDiscount) / 100;
         }
         total -= fixedDiscount;
 
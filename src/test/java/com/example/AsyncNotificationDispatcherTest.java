@@ -0,0 +1,192 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncNotificationDispatcherTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 2, 8, 13, 0);
+
+    /** Lokal stubbe som är långsam och misslyckas ett visst antal gånger per bokning. */
+    private static class SlowFailingNotificationService implements NotificationService {
+        final List<String> delivered = new CopyOnWriteArrayList<>();
+        final AtomicInteger attempts = new AtomicInteger();
+        final long delayMillis;
+        final int failuresBeforeSuccess;
+        final CountDownLatch gate;
+
+        SlowFailingNotificationService(long delayMillis, int failuresBeforeSuccess, CountDownLatch gate) {
+            this.delayMillis = delayMillis;
+            this.failuresBeforeSuccess = failuresBeforeSuccess;
+            this.gate = gate;
+        }
+
+        @Override
+        public void sendBookingConfirmation(Booking booking) throws NotificationException {
+            send("booked:" + booking.getId());
+        }
+
+        @Override
+        public void sendCancellationConfirmation(Booking booking) throws NotificationException {
+            send("cancelled:" + booking.getId());
+        }
+
+        private void send(String message) throws NotificationException {
+            try {
+                gate.await();
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (attempts.incrementAndGet() <= failuresBeforeSuccess) {
+                throw new NotificationException("Tillfälligt fel");
+            }
+            delivered.add(message);
+        }
+    }
+
+    @Test
+    void sendReturnsWithoutWaitingForSlowBackend() throws NotificationException {
+        SlowFailingNotificationService backend = new SlowFailingNotificationService(300, 0, new CountDownLatch(0));
+        AsyncNotificationDispatcher dispatcher = AsyncNotificationDispatcher.builder(backend).build();
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            dispatcher.sendBookingConfirmation(booking("b" + i));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        dispatcher.close();
+
+        assertThat(elapsedMillis).isLessThan(300);
+        assertThat(backend.delivered).hasSize(20);
+        assertThat(dispatcher.getSentCount()).isEqualTo(20);
+    }
+
+    @Test
+    void failedSendsAreRetriedWithBackoff() throws NotificationException {
+        SlowFailingNotificationService backend = new SlowFailingNotificationService(0, 2, new CountDownLatch(0));
+        AsyncNotificationDispatcher dispatcher = AsyncNotificationDispatcher.builder(backend)
+                .maxAttempts(3)
+                .initialBackoff(Duration.ofMillis(10))
+                .build();
+
+        dispatcher.sendCancellationConfirmation(booking("b1"));
+        dispatcher.close();
+
+        assertThat(backend.delivered).containsExactly("cancelled:b1");
+        assertThat(backend.attempts).hasValue(3);
+        assertThat(dispatcher.getFailedCount()).isZero();
+    }
+
+    @Test
+    void sendIsCountedAsFailedWhenRetriesAreExhausted() throws NotificationException {
+        SlowFailingNotificationService backend = new SlowFailingNotificationService(0, Integer.MAX_VALUE, new CountDownLatch(0));
+        AsyncNotificationDispatcher dispatcher = AsyncNotificationDispatcher.builder(backend)
+                .maxAttempts(2)
+                .initialBackoff(Duration.ofMillis(1))
+                .build();
+
+        dispatcher.sendBookingConfirmation(booking("b1"));
+        dispatcher.close();
+
+        assertThat(backend.delivered).isEmpty();
+        assertThat(dispatcher.getFailedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void missingOrNegativeBackoffIsRejectedWhenBuilding() {
+        NotificationService backend = new SlowFailingNotificationService(0, 0, new CountDownLatch(0));
+
+        assertThatThrownBy(() -> AsyncNotificationDispatcher.builder(backend).initialBackoff(null).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Väntetid mellan försök måste anges och kan inte vara negativ");
+        assertThatThrownBy(() -> AsyncNotificationDispatcher.builder(backend).initialBackoff(Duration.ofMillis(-1)).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> AsyncNotificationDispatcher.builder(backend).backpressurePolicy(null).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Hantering av full kö måste anges");
+    }
+
+    @Test
+    void backoffStopsGrowingAtTheCapInsteadOfOverflowing() {
+        long backoff = 100;
+        for (int attempt = 0; attempt < 100; attempt++) {
+            backoff = AsyncNotificationDispatcher.nextBackoffMillis(backoff, 60_000);
+        }
+
+        assertThat(backoff).isEqualTo(60_000);
+        assertThat(AsyncNotificationDispatcher.nextBackoffMillis(Long.MAX_VALUE / 2 + 1, Long.MAX_VALUE)).isEqualTo(Long.MAX_VALUE);
+        assertThat(AsyncNotificationDispatcher.nextBackoffMillis(0, 60_000)).isZero();
+    }
+
+    @Test
+    void dropNewestDiscardsNotificationsWhenQueueIsFull() throws NotificationException {
+        CountDownLatch gate = new CountDownLatch(1);
+        SlowFailingNotificationService backend = new SlowFailingNotificationService(0, 0, gate);
+        AsyncNotificationDispatcher dispatcher = AsyncNotificationDispatcher.builder(backend)
+                .capacity(1)
+                .batchSize(1)
+                .maxInFlight(1)
+                .backpressurePolicy(AsyncNotificationDispatcher.BackpressurePolicy.DROP_NEWEST)
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            dispatcher.sendBookingConfirmation(booking("b" + i));
+        }
+        gate.countDown();
+        dispatcher.close();
+
+        assertThat(dispatcher.getDroppedCount()).isGreaterThanOrEqualTo(7);
+        assertThat(dispatcher.getSentCount() + dispatcher.getDroppedCount()).isEqualTo(10);
+    }
+
+    @Test
+    void sendFailsAfterClose() {
+        AsyncNotificationDispatcher dispatcher = AsyncNotificationDispatcher
+                .builder(new SlowFailingNotificationService(0, 0, new CountDownLatch(0)))
+                .build();
+        dispatcher.close();
+
+        assertThatThrownBy(() -> dispatcher.sendBookingConfirmation(booking("b1")))
+                .isInstanceOf(NotificationException.class)
+                .hasMessage("Notifieringskön är stängd");
+    }
+
+    private static Booking booking(String id) {
+        return new Booking(id, "room1", START, START.plusHours(1));
+    }
+
+    @Test
+    void everyAcceptedNotificationIsSentWhenSendRacesWithClose() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            SlowFailingNotificationService backend = new SlowFailingNotificationService(0, 0, new CountDownLatch(0));
+            AsyncNotificationDispatcher dispatcher = AsyncNotificationDispatcher.builder(backend).build();
+            AtomicInteger accepted = new AtomicInteger();
+            Thread sender = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    try {
+                        dispatcher.sendBookingConfirmation(new Booking("b" + i, "room1", START, START.plusHours(1)));
+                        accepted.incrementAndGet();
+                    } catch (NotificationException e) {
+                        return;
+                    }
+                }
+            });
+
+            dispatcher.close();
+            sender.join();
+
+            assertThat(dispatcher.getSentCount()).isEqualTo(accepted.get());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example;
+
+import com.example.shop.BatchPricingEngine;
+import com.example.shop.Cart;
+import com.example.shop.DiscountRule;
+import com.example.shop.PricingPipeline;
+import com.example.shop.PricingReport;
+import com.example.shop.ShoppingCart;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BatchPricingEngineTest {
+
+    @Test
+    void cartRulesMatchShoppingCartDiscounts() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addItem("milk", 190);
+        cart.addItem("bread", 250);
+        cart.applyPercentageDiscount(10);
+        cart.applyFixedDiscount(100);
+
+        PricingPipeline pipeline = PricingPipeline.builder()
+                .add(DiscountRule.percentage(10))
+                .add(DiscountRule.fixed(100))
+                .build();
+
+        assertThat(pipeline.price(cart)).isEqualTo(cart.getTotal());
+    }
+
+    @Test
+    void productRulesOnlyApplyToTheirOwnLine() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addItem("milk", 200);
+        cart.updateQuantity("milk", 3);
+        cart.addItem("bread", 250);
+        cart.addItem("coffee", 100);
+        cart.updateQuantity("coffee", 10);
+
+        PricingPipeline pipeline = PricingPipeline.builder()
+                .add(DiscountRule.productFixed("milk", 50))
+                .add(DiscountRule.productPercentage("bread", 20))
+                .add(DiscountRule.quantityTiers("coffee", Map.of(5, 10, 10, 25, 20, 50)))
+                .build();
+
+        // milk 3 * (200 - 50), bread 250 * 0.8, coffee 1000 * 0.75
+        assertThat(pipeline.price(cart)).isEqualTo(450 + 200 + 750);
+    }
+
+    @Test
+    void totalsAreClampedAtZero() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addItem("milk", 190);
+
+        PricingPipeline pipeline = PricingPipeline.builder()
+                .add(DiscountRule.productFixed("milk", 500))
+                .add(DiscountRule.fixed(100))
+                .build();
+
+        assertThat(pipeline.price(cart)).isZero();
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThatThrownBy(() -> DiscountRule.percentage(101))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Discount must be greater than or equal to 0");
+        assertThatThrownBy(() -> DiscountRule.quantityTiers("coffee", Map.of(0, 10)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Tier quantities must be positive and increasing");
+    }
+
+    @Test
+    void parallelPricingMatchesPricingOneCartAtATime() {
+        Random random = new Random(5);
+        List<Cart> carts = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ShoppingCart cart = new ShoppingCart();
+            for (int line = random.nextInt(20); line > 0; line--) {
+                String productId = "p" + random.nextInt(100);
+                cart.addItem(productId, 100 + random.nextInt(1_000));
+                cart.updateQuantity(productId, 1 + random.nextInt(25));
+            }
+            carts.add(cart);
+        }
+        PricingPipeline pipeline = PricingPipeline.builder()
+                .add(DiscountRule.productPercentage("p1", 30))
+                .add(DiscountRule.quantityTiers("p2", Map.of(10, 15)))
+                .add(DiscountRule.percentage(5))
+                .add(DiscountRule.fixed(500))
+                .build();
+
+        PricingReport report;
+        try (BatchPricingEngine engine = BatchPricingEngine.builder(pipeline).parallelism(4).batchSize(64).build()) {
+            report = engine.priceAll(carts);
+        }
+
+        assertThat(report.getCartCount()).isEqualTo(carts.size());
+        for (int i = 0; i < carts.size(); i++) {
+            assertThat(report.getTotal(i)).isEqualTo(pipeline.price(carts.get(i)));
+        }
+        assertThat(report.getCartsPerSecond()).isPositive();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example;
+
+import com.example.BookingMetricsListener.Operation;
+import com.example.BookingMetricsListener.Outcome;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BookingMetricsTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 2, 8, 12, 0);
+
+    @Test
+    void histogramPercentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(100_000);
+        assertThat(histogram.getMax()).isEqualTo(100_000_000);
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(50_000_000, within(1_600_000.0));
+        assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(99_000_000, within(3_100_000.0));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(100_000_000);
+    }
+
+    @Test
+    void bookingSystemReportsOutcomesPerOperation() throws NotificationException {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        NotificationService notificationService = mock(NotificationService.class);
+        InMemoryRoomRepository roomRepository = new InMemoryRoomRepository();
+        roomRepository.save(new Room("room1", "Stora salen"));
+        when(timeProvider.getCurrentTime()).thenReturn(NOW);
+        doThrow(new NotificationException("Nere")).when(notificationService).sendBookingConfirmation(any());
+        BookingMetrics metrics = new BookingMetrics();
+
+        BookingSystem system = BookingSystem.builder(timeProvider, roomRepository, notificationService)
+                .metricsListener(metrics)
+                .build();
+
+        system.bookRoom("room1", NOW.plusHours(1), NOW.plusHours(2));
+        system.bookRoom("room1", NOW.plusHours(1), NOW.plusHours(2));
+        assertThatThrownBy(() -> system.bookRoom("room1", NOW.minusHours(1), NOW));
+        system.cancelBooking("missing");
+        system.getAvailableRooms(NOW, NOW.plusHours(1));
+
+        assertThat(metrics.getCount(Operation.BOOK_ROOM, Outcome.SUCCESS)).isEqualTo(1);
+        assertThat(metrics.getCount(Operation.BOOK_ROOM, Outcome.REJECTED)).isEqualTo(1);
+        assertThat(metrics.getCount(Operation.BOOK_ROOM, Outcome.INVALID)).isEqualTo(1);
+        assertThat(metrics.getCount(Operation.CANCEL_BOOKING, Outcome.REJECTED)).isEqualTo(1);
+        assertThat(metrics.getCount(Operation.GET_AVAILABLE_ROOMS, Outcome.SUCCESS)).isEqualTo(1);
+        assertThat(metrics.getLatency(Operation.BOOK_ROOM).getCount()).isEqualTo(3);
+        assertThat(metrics.getNotificationFailureCount()).isEqualTo(1);
+    }
+
+    @Test
+    void repositoryCallsAndNotificationsAreRecordedAsJfrEvents(@TempDir Path dir) throws IOException, NotificationException {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        NotificationService notificationService = mock(NotificationService.class);
+        InMemoryRoomRepository roomRepository = new InMemoryRoomRepository();
+        roomRepository.save(new Room("room1", "Stora salen"));
+        when(timeProvider.getCurrentTime()).thenReturn(NOW);
+        doThrow(new NotificationException("Nere")).when(notificationService).sendBookingConfirmation(any());
+        BookingSystem system = BookingSystem.builder(timeProvider, roomRepository, notificationService)
+                .jfrRepositoryEvents(true)
+                .build();
+
+        Path file = dir.resolve("booking.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.RepositoryCall").withThreshold(Duration.ZERO);
+            recording.enable("com.example.NotificationSend").withThreshold(Duration.ZERO);
+            recording.start();
+            system.bookRoom("room1", NOW.plusHours(1), NOW.plusHours(2));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("com.example.RepositoryCall"))
+                .extracting(event -> event.getString("operation"))
+                .containsExactly("findById", "save");
+        assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("com.example.NotificationSend"))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("kind")).isEqualTo("booking");
+                    assertThat(event.getBoolean("success")).isFalse();
+                });
+    }
+}
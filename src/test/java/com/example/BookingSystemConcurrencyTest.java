@@ -0,0 +1,92 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class BookingSystemConcurrencyTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 2, 8, 12, 0);
+
+    @Test
+    void concurrentBookingsOfSameSlotOnlyOneSucceeds() throws Exception {
+        Room room = new Room("room1", "Stora salen");
+        BookingSystem system = systemWith(room);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return system.bookRoom("room1", NOW.plusHours(1), NOW.plusHours(2));
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(10, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(succeeded).isEqualTo(1);
+        assertThat(room.getBookings()).hasSize(1);
+    }
+
+    @Test
+    void concurrentOverlappingBookingsNeverDoubleBook() throws Exception {
+        Room room1 = new Room("room1", "Stora salen");
+        Room room2 = new Room("room2", "Lilla salen");
+        BookingSystem system = systemWith(room1, room2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String roomId = t % 2 == 0 ? "room1" : "room2";
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    LocalDateTime start = NOW.plusMinutes(1 + i * 7L % 600);
+                    system.bookRoom(roomId, start, start.plusMinutes(10));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        for (Room room : List.of(room1, room2)) {
+            List<Booking> bookings = room.getBookings();
+            for (int i = 1; i < bookings.size(); i++) {
+                Booking previous = bookings.get(i - 1);
+                Booking current = bookings.get(i);
+                assertThat(current.overlaps(previous.getStartTime(), previous.getEndTime())).isFalse();
+            }
+        }
+    }
+
+    private BookingSystem systemWith(Room... rooms) {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        when(timeProvider.getCurrentTime()).thenReturn(NOW);
+        for (Room room : rooms) {
+            when(roomRepository.findById(room.getId())).thenReturn(Optional.of(room));
+        }
+        return new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+    }
+}
@@ -6,9 +6,19 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.ArgumentCaptor;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -132,6 +142,33 @@ public class BookingSystemTest {
         verify(notificationService, never()).sendBookingConfirmation(any());
     }
 
+    @Test
+    void bookRoomRecordsNotificationEventWhileJfrIsRecording() throws Exception {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+        when(roomRepository.findById("room1")).thenReturn(Optional.of(new Room("room1", "Stora salen")));
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+
+        Path file = Files.createTempFile("notifieringar", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.NotificationSend").withoutThreshold();
+            recording.start();
+            system.bookRoom("room1", now.plusHours(1), now.plusHours(2));
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertThat(events).singleElement().satisfies(event -> {
+                assertThat(event.getString("kind")).isEqualTo("booking");
+                assertThat(event.getBoolean("success")).isTrue();
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
     @Test
     void bookRoomCreatesBookingWithCorrectDataWhenRoomIsAvailable() throws NotificationException {
         TimeProvider timeProvider = mock(TimeProvider.class);
@@ -353,5 +390,400 @@ public class BookingSystemTest {
         verify(roomRepository).save(room);
         verify(notificationService).sendCancellationConfirmation(booking);
     }
-}
 
+    @Test
+    void cancelBookingRoutesThroughIndexWithoutScanningAllRooms() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        NotificationService notificationService = mock(NotificationService.class);
+        Room room = new Room("room1", "Stora salen");
+
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+        when(roomRepository.findById("room1")).thenReturn(Optional.of(room));
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, notificationService);
+        system.bookRoom("room1", now.plusHours(1), now.plusHours(2));
+        String bookingId = room.getBookings().get(0).getId();
+
+        boolean result = system.cancelBooking(bookingId);
+
+        assertThat(result).isTrue();
+        assertThat(room.hasBooking(bookingId)).isFalse();
+        verify(roomRepository, never()).findAll();
+    }
+
+    @Test
+    void cancelBookingRoutesByRoomKeyInIdAfterRestart() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        InMemoryRoomRepository roomRepository = new InMemoryRoomRepository();
+        Room room1 = new Room("room1", "Stora salen");
+        Room room2 = spy(new Room("room2", "Lilla salen"));
+        roomRepository.save(room1);
+        roomRepository.save(room2);
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+
+        new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class))
+                .bookRoom("room1", now.plusHours(1), now.plusHours(2));
+        String bookingId = room1.getBookings().get(0).getId();
+        // Ett nytt system har inget index över bokningarna, bara id:t att gå på
+        BookingSystem restarted = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+
+        assertThat(restarted.cancelBooking(bookingId)).isTrue();
+        assertThat(room1.hasBooking(bookingId)).isFalse();
+        verify(room2, never()).hasBooking(any());
+    }
+
+    @Test
+    void cancelBookingHoldsTheLockOfTheRoomWhereTheBookingWasFound() throws Exception {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        Room room1 = new Room("room1", "Stora salen");
+        Room room2 = new Room("room2", "Lilla salen");
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+        AtomicReference<Runnable> onSave = new AtomicReference<>();
+        InMemoryRoomRepository roomRepository = new InMemoryRoomRepository() {
+            @Override
+            public void save(Room room) {
+                Runnable action = onSave.getAndSet(null);
+                if (action != null && room == room2) {
+                    action.run();
+                }
+                super.save(room);
+            }
+        };
+        roomRepository.save(room1);
+        roomRepository.save(room2);
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+
+        system.bookRoom("room1", now.plusHours(1), now.plusHours(2));
+        Booking booking = room1.getBookings().get(0);
+        // Bokningen flyttas utanför systemet, så indexet pekar på fel rum
+        room1.removeBooking(booking.getId());
+        room2.addBooking(booking);
+
+        AtomicBoolean otherBookingWaited = new AtomicBoolean();
+        onSave.set(() -> {
+            Thread other = Thread.ofPlatform().start(() -> system.bookRoom("room2", now.plusHours(3), now.plusHours(4)));
+            try {
+                other.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            otherBookingWaited.set(other.isAlive());
+        });
+
+        assertThat(system.cancelBooking(booking.getId())).isTrue();
+        assertThat(room2.hasBooking(booking.getId())).isFalse();
+        assertThat(otherBookingWaited).isTrue();
+    }
+
+    // -------> bookRooms tests <-------
+    @Test
+    void bookRoomsSavesEachRoomOnceAndReportsEveryRequest() throws NotificationException {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        NotificationService notificationService = mock(NotificationService.class);
+        Room room1 = new Room("room1", "Stora salen");
+        Room room2 = new Room("room2", "Lilla salen");
+
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+        when(roomRepository.findById("room1")).thenReturn(Optional.of(room1));
+        when(roomRepository.findById("room2")).thenReturn(Optional.of(room2));
+        when(roomRepository.findById("room3")).thenReturn(Optional.empty());
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, notificationService);
+
+        List<BookingResult> results = system.bookRooms(List.of(
+                new BookingRequest("room1", now.plusHours(1), now.plusHours(2)),
+                new BookingRequest("room2", now.plusHours(1), now.plusHours(2)),
+                new BookingRequest("room1", now.plusHours(3), now.plusHours(4)),
+                new BookingRequest("room1", now.plusHours(1).plusMinutes(30), now.plusHours(3)),
+                new BookingRequest("room3", now.plusHours(1), now.plusHours(2)),
+                new BookingRequest("room1", now.minusHours(1), now.plusHours(1))
+        ));
+
+        assertThat(results).extracting(BookingResult::getStatus).containsExactly(
+                BookingResult.Status.BOOKED,
+                BookingResult.Status.BOOKED,
+                BookingResult.Status.BOOKED,
+                BookingResult.Status.UNAVAILABLE,
+                BookingResult.Status.INVALID,
+                BookingResult.Status.INVALID
+        );
+        assertThat(results.get(4).getMessage()).isEqualTo("Rummet existerar inte");
+        assertThat(results.get(5).getMessage()).isEqualTo("Kan inte boka tid i dåtid");
+        assertThat(room1.getBookings()).hasSize(2);
+
+        verify(roomRepository, times(1)).findById("room1");
+        verify(roomRepository, times(1)).save(room1);
+        verify(roomRepository, times(1)).save(room2);
+        verify(notificationService, times(3)).sendBookingConfirmation(any());
+    }
+
+    // -------> retention tests <-------
+    @Test
+    void bookRoomArchivesEndedBookingsInTheRoom() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        Room room = new Room("room1", "Stora salen");
+
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        room.addBooking(new Booking("old", "room1", now.minusDays(1), now.minusDays(1).plusHours(1)));
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+        when(roomRepository.findById("room1")).thenReturn(Optional.of(room));
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+        system.bookRoom("room1", now.plusHours(1), now.plusHours(2));
+
+        assertThat(room.getActiveBookingCount()).isEqualTo(1);
+        assertThat(room.getArchivedBookings()).extracting(Booking::getId).containsExactly("old");
+    }
+
+    @Test
+    void bookRoomArchivesAtMostOncePerMinute() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        Room room = new Room("room1", "Stora salen");
+
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+        when(roomRepository.findById("room1")).thenReturn(Optional.of(room));
+        room.addBooking(new Booking("short", "room1", now.minusMinutes(10), now.plusSeconds(10)));
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+        system.bookRoom("room1", now.plusHours(1), now.plusHours(2));
+        when(timeProvider.getCurrentTime()).thenReturn(now.plusSeconds(30));
+        system.bookRoom("room1", now.plusHours(2), now.plusHours(3));
+        assertThat(room.getArchivedBookings()).isEmpty();
+
+        when(timeProvider.getCurrentTime()).thenReturn(now.plusSeconds(61));
+        system.bookRoom("room1", now.plusHours(3), now.plusHours(4));
+        assertThat(room.getArchivedBookings()).extracting(Booking::getId).containsExactly("short");
+    }
+
+    @Test
+    void archiveEndedBookingsSweepsAllRooms() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        Room room1 = new Room("room1", "Stora salen");
+        Room room2 = new Room("room2", "Lilla salen");
+        room1.addBooking(new Booking("a", "room1", now.minusHours(3), now.minusHours(2)));
+        room2.addBooking(new Booking("b", "room2", now.minusHours(3), now.minusHours(2)));
+        room2.addBooking(new Booking("c", "room2", now.plusHours(3), now.plusHours(4)));
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+        when(roomRepository.findAll()).thenReturn(List.of(room1, room2));
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+
+        assertThat(system.archiveEndedBookings()).isEqualTo(2);
+        assertThat(room2.getActiveBookingCount()).isEqualTo(1);
+    }
+
+    // -------> paginated availability tests <-------
+    @Test
+    void getAvailableRoomsPagesThroughFreeRoomsInIdOrder() {
+        InMemoryRoomRepository roomRepository = new InMemoryRoomRepository();
+        LocalDateTime start = LocalDateTime.of(2026, 2, 8, 13, 0);
+        for (String id : List.of("room5", "room1", "room4", "room2", "room3")) {
+            roomRepository.save(new Room(id, "Rum " + id));
+        }
+        roomRepository.findById("room2").orElseThrow()
+                .addBooking(new Booking("b1", "room2", start, start.plusHours(1)));
+
+        BookingSystem system = new BookingSystem(mock(TimeProvider.class), roomRepository, mock(NotificationService.class));
+
+        AvailabilityPage first = system.getAvailableRooms(start, start.plusHours(1), 2, null);
+        AvailabilityPage second = system.getAvailableRooms(start, start.plusHours(1), 2, first.getContinuationToken());
+
+        assertThat(first.getRooms()).extracting(Room::getId).containsExactly("room1", "room3");
+        assertThat(first.hasMore()).isTrue();
+        assertThat(second.getRooms()).extracting(Room::getId).containsExactly("room4", "room5");
+        assertThat(second.hasMore()).isFalse();
+    }
+
+    @Test
+    void streamAvailableRoomsStopsCheckingRoomsOnceLimitIsReached() {
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        LocalDateTime start = LocalDateTime.of(2026, 2, 8, 13, 0);
+        Room room1 = mock(Room.class);
+        Room room2 = mock(Room.class);
+        Room room3 = mock(Room.class);
+        when(roomRepository.findAllSortedById()).thenReturn(List.of(room1, room2, room3));
+        when(room1.isAvailable(start, start.plusHours(1))).thenReturn(false);
+        when(room2.isAvailable(start, start.plusHours(1))).thenReturn(true);
+
+        BookingSystem system = new BookingSystem(mock(TimeProvider.class), roomRepository, mock(NotificationService.class));
+
+        assertThat(system.streamAvailableRooms(start, start.plusHours(1)).limit(1)).containsExactly(room2);
+        verify(room3, never()).isAvailable(any(LocalDateTime.class), any(LocalDateTime.class));
+    }
+
+    // -------> next available slot tests <-------
+    @Test
+    void findNextAvailableSlotsReturnsEarliestGapsAcrossRooms() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        InMemoryRoomRepository roomRepository = new InMemoryRoomRepository();
+        LocalDateTime ten = LocalDateTime.of(2026, 2, 8, 10, 0);
+        Room room1 = new Room("room1", "Stora salen");
+        room1.addBooking(new Booking("a", "room1", ten, ten.plusHours(1)));
+        room1.addBooking(new Booking("b", "room1", ten.plusMinutes(90), ten.plusHours(2)));
+        Room room2 = new Room("room2", "Lilla salen");
+        room2.addBooking(new Booking("c", "room2", ten, ten.plusHours(2)));
+        roomRepository.save(room2);
+        roomRepository.save(room1);
+        roomRepository.save(new Room("room3", "Rum 3"));
+        when(timeProvider.getCurrentTime()).thenReturn(ten.minusHours(1));
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+
+        List<AvailableSlot> slots = system.findNextAvailableSlots(
+                Duration.ofMinutes(30), ten, ten.plusHours(3), List.of("room1", "room2", "room3"), 3);
+
+        // Luckan 11:00-11:30 i room1 räcker inte eftersom gränserna räknas som upptagna
+        assertThat(slots).extracting(AvailableSlot::getRoomId).containsExactly("room3", "room1", "room2");
+        assertThat(slots).extracting(AvailableSlot::getStartTime)
+                .containsExactly(ten, ten.plusHours(2).plusMinutes(1), ten.plusHours(2).plusMinutes(1));
+        assertThat(system.findNextAvailableSlot(Duration.ofMinutes(30), ten, ten.plusHours(3)))
+                .get().extracting(AvailableSlot::getRoomId).isEqualTo("room3");
+
+        AvailableSlot slot = slots.get(1);
+        assertThat(system.bookRoom(slot.getRoomId(), slot.getStartTime(), slot.getEndTime())).isTrue();
+    }
+
+    @Test
+    void findNextAvailableSlotsStartsOnWholeMinuteAfterBooking() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        InMemoryRoomRepository roomRepository = new InMemoryRoomRepository();
+        LocalDateTime ten = LocalDateTime.of(2026, 2, 8, 10, 0);
+        Room room = new Room("room1", "Stora salen");
+        room.addBooking(new Booking("a", "room1", ten, ten.plusMinutes(20).plusSeconds(30)));
+        roomRepository.save(room);
+        when(timeProvider.getCurrentTime()).thenReturn(ten.minusHours(1));
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+
+        assertThat(system.findNextAvailableSlot(Duration.ofMinutes(30), ten, ten.plusHours(1)))
+                .get().extracting(AvailableSlot::getStartTime).isEqualTo(ten.plusMinutes(21));
+    }
+
+    @Test
+    void findNextAvailableSlotsUsesConfiguredGranularity() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        InMemoryRoomRepository roomRepository = new InMemoryRoomRepository();
+        LocalDateTime ten = LocalDateTime.of(2026, 2, 8, 10, 0);
+        Room room = new Room("room1", "Stora salen");
+        room.addBooking(new Booking("a", "room1", ten, ten.plusMinutes(20)));
+        room.addBooking(new Booking("b", "room1", ten.plusMinutes(40), ten.plusMinutes(50).plusNanos(500_000_000)));
+        roomRepository.save(room);
+        when(timeProvider.getCurrentTime()).thenReturn(ten.minusHours(1));
+
+        BookingSystem system = BookingSystem.builder(timeProvider, roomRepository, mock(NotificationService.class))
+                .slotGranularity(Duration.ofSeconds(1))
+                .build();
+
+        assertThat(system.findNextAvailableSlots(Duration.ofMinutes(10), ten, ten.plusHours(2), null, 2))
+                .extracting(AvailableSlot::getStartTime)
+                .containsExactly(ten.plusMinutes(20).plusSeconds(1), ten.plusMinutes(50).plusSeconds(1));
+        assertThatThrownBy(() -> BookingSystem.builder(timeProvider, roomRepository, mock(NotificationService.class))
+                .slotGranularity(Duration.ofMinutes(7))
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Tidsupplösningen måste vara positiv och gå jämnt upp i ett dygn");
+    }
+
+    @Test
+    void findNextAvailableSlotsIsEmptyWhenNothingFitsInTheWindow() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        InMemoryRoomRepository roomRepository = new InMemoryRoomRepository();
+        LocalDateTime ten = LocalDateTime.of(2026, 2, 8, 10, 0);
+        Room room = new Room("room1", "Stora salen");
+        room.addBooking(new Booking("a", "room1", ten.plusMinutes(20), ten.plusMinutes(40)));
+        roomRepository.save(room);
+        when(timeProvider.getCurrentTime()).thenReturn(ten.minusHours(1));
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+
+        assertThat(system.findNextAvailableSlots(Duration.ofMinutes(30), ten, ten.plusHours(1), null, 5)).isEmpty();
+        assertThatThrownBy(() -> system.findNextAvailableSlots(Duration.ZERO, ten, ten.plusHours(1), null, 5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Längden måste vara positiv");
+    }
+
+    // -------> epoch time tests <-------
+    @Test
+    void bookRoomWithEpochMillisBooksAndRejectsOverlaps() throws NotificationException {
+        EpochTimeProvider timeProvider = mock(EpochTimeProvider.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        NotificationService notificationService = mock(NotificationService.class);
+        Room room = new Room("room1", "Stora salen");
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        long nowMillis = now.toEpochSecond(ZoneOffset.UTC) * 1000;
+        long hour = 3_600_000;
+        when(timeProvider.currentEpochMillis()).thenReturn(nowMillis);
+        when(roomRepository.findById("room1")).thenReturn(Optional.of(room));
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, notificationService);
+
+        assertThat(system.bookRoom("room1", nowMillis + hour, nowMillis + 2 * hour)).isTrue();
+        assertThat(system.bookRoom("room1", nowMillis + 2 * hour, nowMillis + 3 * hour)).isFalse();
+        assertThat(room.getBookings()).singleElement().satisfies(booking -> {
+            assertThat(booking.getStartTime()).isEqualTo(now.plusHours(1));
+            assertThat(booking.getEndTime()).isEqualTo(now.plusHours(2));
+        });
+        assertThatThrownBy(() -> system.bookRoom("room1", nowMillis - 1, nowMillis + hour))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Kan inte boka tid i dåtid");
+        verify(timeProvider, never()).getCurrentTime();
+        verify(notificationService, times(1)).sendBookingConfirmation(any());
+    }
+
+    // -------> recurring booking tests <-------
+    @Test
+    void bookRecurringRejectsSeriesThatCollidesWithAnyOccurrence() throws NotificationException {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = new InMemoryRoomRepository();
+        NotificationService notificationService = mock(NotificationService.class);
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        Room room = new Room("room1", "Stora salen");
+        room.addBooking(new Booking("b1", "room1", now.plusWeeks(3).plusHours(1), now.plusWeeks(3).plusHours(2)));
+        roomRepository.save(room);
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, notificationService);
+
+        assertThat(system.bookRecurring("room1", now.plusHours(1), now.plusHours(2), RecurrenceRule.weekly(4))).isEmpty();
+        Optional<RecurringBooking> series = system.bookRecurring("room1", now.plusHours(3), now.plusHours(4),
+                RecurrenceRule.weekly(4));
+
+        assertThat(series).isPresent();
+        assertThat(system.bookRoom("room1", now.plusWeeks(2).plusHours(3), now.plusWeeks(2).plusHours(5))).isFalse();
+        assertThat(system.bookRoom("room1", now.plusWeeks(4).plusHours(3), now.plusWeeks(4).plusHours(5))).isTrue();
+        verify(notificationService, times(2)).sendBookingConfirmation(any());
+    }
+
+    @Test
+    void cancelRecurringBookingKeepsOccurrencesThatHaveStarted() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = new InMemoryRoomRepository();
+        LocalDateTime now = LocalDateTime.of(2026, 2, 8, 12, 0);
+        roomRepository.save(new Room("room1", "Stora salen"));
+        when(timeProvider.getCurrentTime()).thenReturn(now);
+        BookingSystem system = new BookingSystem(timeProvider, roomRepository, mock(NotificationService.class));
+        RecurringBooking series = system.bookRecurring("room1", now.plusHours(1), now.plusHours(2),
+                RecurrenceRule.daily(10)).orElseThrow();
+
+        when(timeProvider.getCurrentTime()).thenReturn(now.plusDays(3));
+
+        assertThat(system.cancelRecurringBooking(series.getId())).isTrue();
+        Room room = roomRepository.findById("room1").orElseThrow();
+        assertThat(room.getRecurringBooking(series.getId()).getOccurrenceCount()).isEqualTo(3);
+        assertThat(room.isAvailable(now.plusDays(3).plusHours(1), now.plusDays(3).plusHours(2))).isTrue();
+        assertThatThrownBy(() -> system.cancelRecurringBooking(series.getId()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(system.cancelRecurringBooking("missing")).isFalse();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingRoomRepositoryTest {
+
+    /** Lokal stubbe som lägger på en fördröjning per anrop, som ett repository i en annan tjänst. */
+    private static class SlowRoomRepository implements RoomRepository {
+        final InMemoryRoomRepository store = new InMemoryRoomRepository();
+        final AtomicInteger findByIdCalls = new AtomicInteger();
+        final AtomicInteger findAllCalls = new AtomicInteger();
+        final AtomicInteger saveCalls = new AtomicInteger();
+        final long delayMillis;
+
+        SlowRoomRepository(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public Optional<Room> findById(String id) {
+            findByIdCalls.incrementAndGet();
+            pause();
+            return store.findById(id);
+        }
+
+        @Override
+        public List<Room> findAll() {
+            findAllCalls.incrementAndGet();
+            pause();
+            return store.findAll();
+        }
+
+        @Override
+        public void save(Room room) {
+            saveCalls.incrementAndGet();
+            pause();
+            store.save(room);
+        }
+
+        private void pause() {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    void concurrentMissesForSameRoomLoadOnce() throws Exception {
+        SlowRoomRepository slowBackend = new SlowRoomRepository(200);
+        slowBackend.store.save(new Room("room1", "Stora salen"));
+        CachingRoomRepository cache = CachingRoomRepository.builder(slowBackend).build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Room>>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.findById("room1");
+            }));
+        }
+        start.countDown();
+        for (Future<Optional<Room>> result : results) {
+            assertThat(result.get()).isPresent();
+        }
+        executor.shutdown();
+
+        assertThat(slowBackend.findByIdCalls).hasValue(1);
+        assertThat(cache.getLoadCount()).isEqualTo(1);
+        assertThat(cache.findById("room1")).isPresent();
+        assertThat(slowBackend.findByIdCalls).hasValue(1);
+    }
+
+    @Test
+    void leastRecentlyUsedRoomIsEvictedWhenFull() {
+        SlowRoomRepository backend = new SlowRoomRepository(0);
+        for (String id : List.of("room1", "room2", "room3")) {
+            backend.store.save(new Room(id, "Rum " + id));
+        }
+        CachingRoomRepository cache = CachingRoomRepository.builder(backend).maximumSize(2).build();
+
+        cache.findById("room1");
+        cache.findById("room2");
+        cache.findById("room1");
+        cache.findById("room3");
+        cache.findById("room1");
+        cache.findById("room2");
+
+        assertThat(backend.findByIdCalls).hasValue(4);
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        assertThat(cache.getMissCount()).isEqualTo(4);
+        assertThat(cache.getEvictionCount()).isEqualTo(2);
+        assertThat(cache.getCachedRoomCount()).isEqualTo(2);
+    }
+
+    @Test
+    void saveWritesThroughAndKeepsCachedReadsCurrent() {
+        SlowRoomRepository backend = new SlowRoomRepository(0);
+        backend.store.save(new Room("room1", "Stora salen"));
+        CachingRoomRepository cache = CachingRoomRepository.builder(backend).build();
+        assertThat(cache.findAll()).hasSize(1);
+
+        Room room2 = new Room("room2", "Lilla salen");
+        cache.save(room2);
+
+        assertThat(backend.saveCalls).hasValue(1);
+        assertThat(backend.store.findById("room2")).containsSame(room2);
+        assertThat(cache.findById("room2")).containsSame(room2);
+        assertThat(cache.findAll()).extracting(Room::getId).containsExactly("room1", "room2");
+        assertThat(backend.findByIdCalls).hasValue(0);
+    }
+
+    @Test
+    void findAllIsCachedAndReusesCachedRooms() {
+        SlowRoomRepository backend = new SlowRoomRepository(0);
+        for (int i = 0; i < 5; i++) {
+            backend.store.save(new Room("room" + i, "Rum " + i));
+        }
+        CachingRoomRepository cache = CachingRoomRepository.builder(backend).maximumSize(2).build();
+        Room cached = cache.findById("room3").orElseThrow();
+
+        List<Room> all = cache.findAll();
+
+        assertThat(cache.findAll()).isSameAs(all);
+        assertThat(all).hasSize(5);
+        assertThat(all.get(3)).isSameAs(cached);
+        assertThat(cache.findById("room4")).containsSame(all.get(4));
+        assertThat(backend.findAllCalls).hasValue(1);
+        assertThat(backend.findByIdCalls).hasValue(1);
+        assertThat(cache.getCachedRoomCount()).isEqualTo(1);
+    }
+
+    @Test
+    void savedRoomsReplaceTheirEntryInTheCachedListWithoutChangingEarlierLists() {
+        SlowRoomRepository backend = new SlowRoomRepository(0);
+        backend.store.save(new Room("room1", "Stora salen"));
+        CachingRoomRepository cache = CachingRoomRepository.builder(backend).build();
+        List<Room> before = cache.findAll();
+
+        Room replacement = new Room("room1", "Stora salen, ombyggd");
+        cache.save(replacement);
+        cache.save(new Room("room2", "Lilla salen"));
+
+        assertThat(before).extracting(Room::getName).containsExactly("Stora salen");
+        assertThat(cache.findAll()).extracting(Room::getName).containsExactly("Stora salen, ombyggd", "Lilla salen");
+        assertThat(cache.findAll().get(0)).isSameAs(replacement);
+        assertThat(backend.findAllCalls).hasValue(1);
+
+        cache.invalidateAll();
+        cache.findAll();
+        assertThat(backend.findAllCalls).hasValue(2);
+    }
+
+    @Test
+    void entriesAreReloadedAfterExpiry() throws InterruptedException {
+        SlowRoomRepository backend = new SlowRoomRepository(0);
+        backend.store.save(new Room("room1", "Stora salen"));
+        CachingRoomRepository cache = CachingRoomRepository.builder(backend)
+                .expireAfterWrite(Duration.ofMillis(20))
+                .build();
+
+        cache.findById("room1");
+        cache.findById("room1");
+        cache.findAll();
+        cache.findAll();
+        Thread.sleep(50);
+        cache.findById("room1");
+        cache.findAll();
+
+        assertThat(backend.findByIdCalls).hasValue(2);
+        assertThat(backend.findAllCalls).hasValue(2);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example;
+
+import com.example.shop.CartSnapshotReader;
+import com.example.shop.CartSnapshotWriter;
+import com.example.shop.ConcurrentShoppingCart;
+import com.example.shop.ShoppingCart;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CartSnapshotTest {
+
+    @Test
+    void fullSnapshotRestoresLinesAndDiscounts() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addItem("milk", 190);
+        cart.addItem("bread", 250);
+        cart.updateQuantity("bread", 3);
+        cart.addItem("kaffe ☕", 4_990);
+        cart.applyPercentageDiscount(10);
+        cart.applyFixedDiscount(100);
+
+        CartSnapshotReader reader = new CartSnapshotReader();
+        reader.apply(ByteBuffer.wrap(new CartSnapshotWriter().writeFull(cart)));
+
+        ShoppingCart restored = reader.toCart();
+        assertThat(linesOf(restored)).isEqualTo(linesOf(cart));
+        assertThat(restored.getTotal()).isEqualTo(cart.getTotal());
+        assertThat(reader.getLineCount()).isEqualTo(3);
+    }
+
+    @Test
+    void deltasKeepReaderInStepWithEditedCart() {
+        Random random = new Random(9);
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+        CartSnapshotWriter writer = new CartSnapshotWriter();
+        CartSnapshotReader reader = new CartSnapshotReader();
+        ByteBuffer direct = ByteBuffer.allocateDirect(1 << 16);
+
+        for (int i = 0; i < 2_000; i++) {
+            String productId = "p" + random.nextInt(200);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> cart.addItem(productId, random.nextInt(100_000));
+                case 2 -> cart.updateQuantity(productId, random.nextInt(4));
+                default -> cart.removeItem(productId);
+            }
+            if (random.nextInt(50) == 0) {
+                cart.applyPercentageDiscount(random.nextInt(50));
+            }
+            direct.clear();
+            direct.put(writer.writeDelta(cart)).flip();
+            reader.apply(direct);
+
+            assertThat(direct.hasRemaining()).isFalse();
+        }
+
+        assertThat(linesOf(reader.toCart())).isEqualTo(linesOf(cart));
+        assertThat(reader.getPercentageDiscount()).isEqualTo(cart.getPercentageDiscount());
+        assertThat(reader.getSequence()).isEqualTo(writer.getSequence());
+    }
+
+    @Test
+    void deltaOnlyCarriesChangedLines() {
+        ShoppingCart cart = new ShoppingCart();
+        for (int i = 0; i < 500; i++) {
+            cart.addItem("product-" + i, 100 + i);
+        }
+        CartSnapshotWriter writer = new CartSnapshotWriter();
+        byte[] full = writer.writeDelta(cart);
+
+        cart.updateQuantity("product-7", 2);
+        byte[] delta = writer.writeDelta(cart);
+
+        assertThat(full.length).isLessThan(500 * 20);
+        assertThat(delta.length).isLessThan(16);
+    }
+
+    @Test
+    void deltaThatSkipsASnapshotIsRejected() {
+        ShoppingCart cart = new ShoppingCart();
+        CartSnapshotWriter writer = new CartSnapshotWriter();
+        CartSnapshotReader reader = new CartSnapshotReader();
+        reader.apply(ByteBuffer.wrap(writer.writeFull(cart)));
+        cart.addItem("milk", 190);
+        writer.writeDelta(cart);
+        cart.addItem("bread", 250);
+        byte[] skipped = writer.writeDelta(cart);
+
+        assertThatThrownBy(() -> reader.apply(ByteBuffer.wrap(skipped)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Delta snapshot does not follow the last applied snapshot");
+
+        reader.apply(ByteBuffer.wrap(writer.writeFull(cart)));
+        assertThat(reader.toCart().getTotal()).isEqualTo(440);
+    }
+
+    @Test
+    void truncatedSnapshotIsRejected() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addItem("milk", 190);
+        byte[] snapshot = new CartSnapshotWriter().writeFull(cart);
+
+        assertThatThrownBy(() -> new CartSnapshotReader().apply(ByteBuffer.wrap(snapshot, 0, snapshot.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Malformed cart snapshot");
+        assertThatThrownBy(() -> new CartSnapshotReader().apply(ByteBuffer.wrap(new byte[] {1, 2, 3})))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Malformed cart snapshot");
+    }
+
+    @Test
+    void snapshotWithImpossibleCountIsRejectedBeforeAllocating() {
+        byte[] hugeIdCount = {(byte) 0xC5, 1, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        byte[] hugeUpsertCount = {(byte) 0xC5, 1, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+
+        assertThatThrownBy(() -> new CartSnapshotReader().apply(ByteBuffer.wrap(hugeIdCount)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Malformed cart snapshot");
+        assertThatThrownBy(() -> new CartSnapshotReader().apply(ByteBuffer.wrap(hugeUpsertCount)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Malformed cart snapshot");
+    }
+
+    private static Map<String, String> linesOf(com.example.shop.Cart cart) {
+        Map<String, String> lines = new HashMap<>();
+        cart.forEachLine((productId, price, quantity) -> lines.put(productId, price + "x" + quantity));
+        return lines;
+    }
+}
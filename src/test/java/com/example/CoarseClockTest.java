@@ -0,0 +1,29 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CoarseClockTest {
+
+    @Test
+    void epochMillisFollowsWallClockInGivenZone() throws InterruptedException {
+        ZoneId zone = ZoneId.of("Europe/Stockholm");
+        try (CoarseClock clock = new CoarseClock(zone, Duration.ofMillis(1))) {
+            long expected = LocalDateTime.now(zone).toEpochSecond(ZoneOffset.UTC) * 1000;
+            long first = clock.currentEpochMillis();
+            Thread.sleep(50);
+            long second = clock.currentEpochMillis();
+
+            assertThat(first).isBetween(expected - 2_000, expected + 2_000);
+            assertThat(second).isGreaterThan(first);
+            assertThat(clock.getCurrentTime().toEpochSecond(ZoneOffset.UTC) * 1000)
+                    .isBetween(second - 1_000, second + 1_000);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example;
+
+import com.example.shop.ConcurrentShoppingCart;
+import com.example.shop.ShoppingCart;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrentShoppingCartTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void matchesShoppingCartForTheSameEdits() {
+        Random random = new Random(3);
+        ShoppingCart expected = new ShoppingCart();
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+
+        for (int i = 0; i < 5_000; i++) {
+            String productId = "p" + random.nextInt(50);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    int price = 100 + random.nextInt(900);
+                    expected.addItem(productId, price);
+                    cart.addItem(productId, price);
+                }
+                case 2 -> {
+                    int quantity = random.nextInt(5);
+                    expected.updateQuantity(productId, quantity);
+                    cart.updateQuantity(productId, quantity);
+                }
+                default -> {
+                    expected.removeItem(productId);
+                    cart.removeItem(productId);
+                }
+            }
+        }
+        expected.applyPercentageDiscount(15);
+        cart.applyPercentageDiscount(15);
+        expected.applyFixedDiscount(250);
+        cart.applyFixedDiscount(250);
+
+        assertThat(cart.getTotal()).isEqualTo(expected.getTotal());
+    }
+
+    @Test
+    void concurrentAddsOfSameProductsAreNeverLost() throws Exception {
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+        int products = 4;
+        int addsPerThread = 20_000;
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < addsPerThread; i++) {
+                int product = i % products;
+                cart.addItem("p" + product, product + 1);
+            }
+        });
+
+        // Every thread adds each product addsPerThread / products times
+        long expected = (long) THREADS * (addsPerThread / products) * (1 + 2 + 3 + 4);
+        assertThat(cart.getTotal()).isEqualTo(expected);
+    }
+
+    @Test
+    void concurrentUpdatesAndRemovesKeepSubtotalInStepWithLines() throws Exception {
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+        for (int product = 0; product < 16; product++) {
+            cart.addItem("p" + product, 10);
+        }
+
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < 20_000; i++) {
+                String productId = "p" + random.nextInt(16);
+                switch (random.nextInt(3)) {
+                    case 0 -> cart.addItem(productId, 10);
+                    case 1 -> cart.updateQuantity(productId, 1 + random.nextInt(5));
+                    default -> cart.removeItem(productId);
+                }
+            }
+        });
+        for (int product = 0; product < 16; product++) {
+            cart.addItem("p" + product, 10);
+            cart.updateQuantity("p" + product, 2);
+        }
+
+        assertThat(cart.getTotal()).isEqualTo(16 * 2 * 10);
+    }
+
+    @Test
+    void rejectsInvalidInputLikeShoppingCart() {
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+
+        assertThatThrownBy(() -> cart.addItem("milk", -1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Price cannot be negative");
+        assertThatThrownBy(() -> cart.updateQuantity("milk", -1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Quantity must be greater than or equal to 0");
+        assertThatThrownBy(() -> cart.applyPercentageDiscount(101))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private interface Worker {
+        void run(int thread);
+    }
+
+    private static void runConcurrently(Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                worker.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+}
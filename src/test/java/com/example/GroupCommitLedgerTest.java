@@ -0,0 +1,198 @@
+package com.example;
+
+import com.example.payment.ChargeResponse;
+import com.example.payment.GroupCommitLedger;
+import com.example.payment.PaymentProcessor;
+import com.example.payment.PaymentRecord;
+import com.example.payment.PaymentRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GroupCommitLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void acknowledgedRecordsAreInTheFile() throws IOException {
+        Path file = directory.resolve("payments.ledger");
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file)) {
+            ledger.append(new PaymentRecord("order-1", "tx-1", 19_900)).join();
+            ledger.append(new PaymentRecord("order-2", "tx-2", 500)).join();
+
+            // Posterna ska gå att läsa medan journalen är öppen, alltså redan när framtiden är klar
+            assertThat(GroupCommitLedger.readAll(file)).extracting(PaymentRecord::getIdempotencyKey)
+                    .containsExactly("order-1", "order-2");
+        }
+
+        List<PaymentRecord> records = GroupCommitLedger.readAll(file);
+        assertThat(records.get(0).getTransactionId()).isEqualTo("tx-1");
+        assertThat(records.get(0).getAmountCents()).isEqualTo(19_900);
+    }
+
+    @Test
+    void concurrentAppendsShareFsyncs() throws IOException {
+        Path file = directory.resolve("payments.ledger");
+        List<CompletableFuture<Void>> acknowledgements = new ArrayList<>();
+        try (GroupCommitLedger ledger = GroupCommitLedger.builder(file)
+                .maxBatchSize(64)
+                .maxBatchDelay(Duration.ofMillis(5))
+                .open()) {
+            for (int i = 0; i < 1_000; i++) {
+                acknowledgements.add(ledger.append(new PaymentRecord("order-" + i, "tx-" + i, i + 1)));
+            }
+            acknowledgements.forEach(CompletableFuture::join);
+
+            assertThat(ledger.getRecordCount()).isEqualTo(1_000);
+            assertThat(ledger.getBatchCount()).isBetween(16L, 500L);
+        }
+
+        assertThat(GroupCommitLedger.readAll(file)).hasSize(1_000);
+    }
+
+    @Test
+    void recordsSpanningSeveralReadWindowsAreRead() throws IOException {
+        Path file = directory.resolve("payments.ledger");
+        String padding = "p".repeat(1_000);
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file)) {
+            List<CompletableFuture<Void>> acknowledgements = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                acknowledgements.add(ledger.append(new PaymentRecord("order-" + i + padding, "tx-" + i, i)));
+            }
+            acknowledgements.forEach(CompletableFuture::join);
+        }
+
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file)) {
+            ledger.append(new PaymentRecord("order-last", "tx-last", 1)).join();
+        }
+
+        List<PaymentRecord> records = GroupCommitLedger.readAll(file);
+        assertThat(records).hasSize(301);
+        assertThat(records.get(299).getAmountCents()).isEqualTo(299);
+        assertThat(records.get(300).getIdempotencyKey()).isEqualTo("order-last");
+    }
+
+    @Test
+    void tornTailIsCutOffOnOpen() throws IOException {
+        Path file = directory.resolve("payments.ledger");
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file)) {
+            ledger.append(new PaymentRecord("order-1", "tx-1", 100)).join();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 30, 0, 7, 'o', 'r'}));
+        }
+
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file)) {
+            ledger.append(new PaymentRecord("order-2", "tx-2", 200)).join();
+        }
+
+        assertThat(GroupCommitLedger.readAll(file)).extracting(PaymentRecord::getIdempotencyKey)
+                .containsExactly("order-1", "order-2");
+    }
+
+    @Test
+    void zeroFilledTailIsCutOffOnOpen() throws IOException {
+        Path file = directory.resolve("payments.ledger");
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file)) {
+            ledger.append(new PaymentRecord("order-1", "tx-1", 100)).join();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(100));
+        }
+
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file)) {
+            ledger.append(new PaymentRecord("order-2", "tx-2", 200)).join();
+        }
+
+        assertThat(GroupCommitLedger.readAll(file)).extracting(PaymentRecord::getIdempotencyKey)
+                .containsExactly("order-1", "order-2");
+    }
+
+    @Test
+    void corruptRecordBeforeTheEndFailsInsteadOfDroppingLaterRecords() throws IOException {
+        Path file = directory.resolve("payments.ledger");
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file)) {
+            ledger.append(new PaymentRecord("order-1", "tx-1", 100)).join();
+            ledger.append(new PaymentRecord("order-2", "tx-2", 200)).join();
+        }
+        long sizeBefore = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // Första byten i första postens nyckel, efter filhuvud, längd och nyckellängd
+            channel.write(ByteBuffer.wrap(new byte[]{'x'}), 4 + 4 + 2);
+        }
+
+        assertThatThrownBy(() -> GroupCommitLedger.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Betalningsjournalen är skadad vid position 4");
+        assertThatThrownBy(() -> GroupCommitLedger.readAll(file)).isInstanceOf(IOException.class);
+        assertThat(Files.size(file)).isEqualTo(sizeBefore);
+    }
+
+    @Test
+    void openFailsForFileThatIsNotALedger() throws IOException {
+        Path file = directory.resolve("payments.ledger");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5});
+
+        assertThatThrownBy(() -> GroupCommitLedger.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("Filen är ingen betalningsjournal");
+    }
+
+    @Test
+    void tooLongIdFailsOnlyThatAppend() throws IOException {
+        Path file = directory.resolve("payments.ledger");
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file)) {
+            CompletableFuture<Void> tooLong = ledger.append(new PaymentRecord("x".repeat(0x10000), "tx-1", 100));
+
+            assertThatThrownBy(tooLong::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasRootCauseMessage("Id är för långt för journalen");
+            ledger.append(new PaymentRecord("order-2", "tx-2", 200)).join();
+        }
+
+        assertThat(GroupCommitLedger.readAll(file)).extracting(PaymentRecord::getIdempotencyKey)
+                .containsExactly("order-2");
+    }
+
+    @Test
+    void appendAfterCloseFails() throws IOException {
+        GroupCommitLedger ledger = GroupCommitLedger.open(directory.resolve("payments.ledger"));
+        ledger.close();
+
+        assertThatThrownBy(() -> ledger.append(new PaymentRecord("order-1", "tx-1", 100)).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("Betalningsjournalen är stängd");
+    }
+
+    @Test
+    void paymentProcessorAcknowledgesOnlyDurablePayments() throws IOException {
+        Path file = directory.resolve("payments.ledger");
+        try (GroupCommitLedger ledger = GroupCommitLedger.open(file);
+             PaymentProcessor processor = PaymentProcessor.builder(
+                     batch -> batch.stream().map(request -> ChargeResponse.approved("tx-" + request.getIdempotencyKey())).toList(),
+                     ledger, (email, amount) -> { }).build()) {
+            List<CompletableFuture<?>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(processor.submit(new PaymentRequest("order-" + i, "user@example.com", 100)));
+            }
+            results.forEach(CompletableFuture::join);
+
+            assertThat(GroupCommitLedger.readAll(file)).hasSize(200);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InMemoryRoomRepositoryTest {
+
+    @Test
+    void findByIdReturnsSavedRoom() {
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        Room room = new Room("room1", "Stora salen");
+
+        repository.save(room);
+
+        assertThat(repository.findById("room1")).containsSame(room);
+        assertThat(repository.findById("room2")).isEmpty();
+    }
+
+    @Test
+    void findAllReturnsSameSnapshotUntilSomethingChanges() {
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        Room room = new Room("room1", "Stora salen");
+        repository.save(room);
+
+        List<Room> first = repository.findAll();
+        repository.save(room);
+
+        assertThat(repository.findAll()).isSameAs(first);
+    }
+
+    @Test
+    void findAllSortedByIdKeepsIdOrderAcrossSaves() {
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        repository.save(new Room("room3", "Rum 3"));
+        repository.save(new Room("room1", "Rum 1"));
+        repository.save(new Room("room2", "Rum 2"));
+        Room replacement = new Room("room1", "Nya rum 1");
+
+        repository.save(replacement);
+
+        assertThat(repository.findAll()).extracting(Room::getId).containsExactly("room3", "room1", "room2");
+        assertThat(repository.findAllSortedById()).extracting(Room::getId).containsExactly("room1", "room2", "room3");
+        assertThat(repository.findAllSortedById().get(0)).isSameAs(replacement);
+    }
+
+    @Test
+    void findAllIsAPointInTimeSnapshot() {
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        repository.save(new Room("room1", "Stora salen"));
+        List<Room> before = repository.findAll();
+
+        repository.save(new Room("room2", "Lilla salen"));
+
+        assertThat(before).extracting(Room::getId).containsExactly("room1");
+        assertThat(repository.findAll()).extracting(Room::getId).containsExactly("room1", "room2");
+        assertThatThrownBy(() -> before.add(new Room("room3", "Rum 3")))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void saveReplacesRoomWithSameIdInPlace() {
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        repository.save(new Room("room1", "Stora salen"));
+        repository.save(new Room("room2", "Lilla salen"));
+        Room replacement = new Room("room1", "Nya salen");
+
+        repository.save(replacement);
+
+        assertThat(repository.findAll()).extracting(Room::getName).containsExactly("Nya salen", "Lilla salen");
+    }
+
+    @Test
+    void concurrentSavesAreAllVisible() throws Exception {
+        InMemoryRoomRepository repository = new InMemoryRoomRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    repository.save(new Room("room-" + thread + "-" + i, "Rum"));
+                    assertThat(repository.findAll()).isNotEmpty();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(repository.findAll()).hasSize(2_000);
+    }
+}
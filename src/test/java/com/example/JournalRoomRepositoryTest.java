@@ -0,0 +1,193 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JournalRoomRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 2, 8, 13, 0, 15, 500);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roomsAndBookingsSurviveRestart() throws IOException {
+        Path journal = directory.resolve("rooms.journal");
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = new Room("room1", "Stora salen");
+            room.addBooking(new Booking("b1", "room1", START, START.plusHours(1)));
+            room.addBooking(new Booking("b2", "room1", START.plusHours(2), START.plusHours(3)));
+            repository.save(room);
+            repository.save(new Room("room2", "Lilla salen"));
+        }
+
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = repository.findById("room1").orElseThrow();
+            assertThat(room.getName()).isEqualTo("Stora salen");
+            assertThat(room.getBooking("b1").getStartTime()).isEqualTo(START);
+            assertThat(room.getBooking("b2").getEndTime()).isEqualTo(START.plusHours(3));
+            assertThat(repository.findAll()).extracting(Room::getId).containsExactlyInAnyOrder("room1", "room2");
+        }
+    }
+
+    @Test
+    void recurringBookingsSurviveRestartAndTruncation() throws IOException {
+        Path journal = directory.resolve("rooms.journal");
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = new Room("room1", "Stora salen");
+            RecurringBooking series = new RecurringBooking("s1", "room1", START, START.plusHours(1),
+                    RecurrenceRule.weekly(10).every(2));
+            room.addRecurringBooking(series);
+            room.addRecurringBooking(new RecurringBooking("s2", "room1", START.plusHours(2), START.plusHours(3),
+                    RecurrenceRule.daily(5)));
+            repository.save(room);
+            room.addRecurringBooking(series.endingBefore(START.plusWeeks(5)));
+            room.removeRecurringBooking("s2");
+            repository.save(room);
+        }
+
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = repository.findById("room1").orElseThrow();
+            assertThat(room.hasRecurringBooking("s2")).isFalse();
+            RecurringBooking series = room.getRecurringBooking("s1");
+            assertThat(series.getFirstStart()).isEqualTo(START);
+            assertThat(series.getRule().getInterval()).isEqualTo(2);
+            assertThat(series.getOccurrenceCount()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void saveOnlyAppendsTheBookingsThatChanged() throws IOException {
+        Path journal = directory.resolve("rooms.journal");
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = new Room("room1", "Stora salen");
+            for (int i = 0; i < 1_000; i++) {
+                room.addBooking(new Booking("b" + i, "room1", START.plusHours(2L * i), START.plusHours(2L * i + 1)));
+            }
+            repository.save(room);
+            long afterFirstSave = repository.getJournalSize();
+
+            room.addBooking(new Booking("extra", "room1", START.minusHours(2), START.minusHours(1)));
+            repository.save(room);
+            long oneBooking = repository.getJournalSize() - afterFirstSave;
+            room.archiveEndedBefore(START.plusHours(10));
+            room.removeBooking("b1");
+            repository.save(room);
+
+            assertThat(oneBooking).isLessThan(100);
+            assertThat(repository.getJournalSize() - afterFirstSave - oneBooking).isLessThan(100);
+        }
+
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = repository.findById("room1").orElseThrow();
+            assertThat(room.getBookings()).hasSize(1_000);
+            assertThat(room.hasBooking("extra")).isTrue();
+            assertThat(room.hasBooking("b1")).isFalse();
+        }
+    }
+
+    @Test
+    void storageChoiceSurvivesRestart() throws IOException {
+        Path journal = directory.resolve("rooms.journal");
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = new Room("room1", "Stora salen", BookingStorage.COMPACT);
+            room.addBooking(new Booking("b1", "room1", START, START.plusHours(1)));
+            repository.save(room);
+            repository.save(new Room("room2", "Lilla salen"));
+        }
+
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            assertThat(repository.findById("room1").orElseThrow().getStorage()).isEqualTo(BookingStorage.COMPACT);
+            assertThat(repository.findById("room1").orElseThrow().hasBooking("b1")).isTrue();
+            assertThat(repository.findById("room2").orElseThrow().getStorage()).isEqualTo(BookingStorage.TREE);
+        }
+    }
+
+    @Test
+    void cancelledBookingsAreGoneAfterRestart() throws IOException {
+        Path journal = directory.resolve("rooms.journal");
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = new Room("room1", "Stora salen");
+            room.addBooking(new Booking("b1", "room1", START, START.plusHours(1)));
+            repository.save(room);
+            room.removeBooking("b1");
+            repository.save(room);
+        }
+
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            assertThat(repository.findById("room1").orElseThrow().hasBooking("b1")).isFalse();
+        }
+    }
+
+    @Test
+    void compactionDropsCancelledBookings() throws IOException {
+        Path journal = directory.resolve("rooms.journal");
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal, 0)) {
+            Room room = new Room("room1", "Stora salen");
+            repository.save(room);
+            for (int i = 0; i < 100; i++) {
+                room.addBooking(new Booking("b" + i, "room1", START.plusHours(i), START.plusHours(i).plusMinutes(30)));
+                repository.save(room);
+                if (i % 10 != 0) {
+                    room.removeBooking("b" + i);
+                    repository.save(room);
+                }
+            }
+            long sizeBefore = repository.getJournalSize();
+
+            repository.compact();
+
+            assertThat(repository.getJournalSize()).isLessThan(sizeBefore);
+        }
+
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            assertThat(repository.findById("room1").orElseThrow().getBookings()).hasSize(10);
+        }
+    }
+
+    @Test
+    void tornTailIsIgnoredOnReplay() throws IOException {
+        Path journal = directory.resolve("rooms.journal");
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = new Room("room1", "Stora salen");
+            room.addBooking(new Booking("b1", "room1", START, START.plusHours(1)));
+            repository.save(room);
+        }
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{2, 0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            Room room = repository.findById("room1").orElseThrow();
+            assertThat(room.getBookings()).hasSize(1);
+            room.addBooking(new Booking("b2", "room1", START.plusHours(2), START.plusHours(3)));
+            repository.save(room);
+        }
+
+        try (JournalRoomRepository repository = JournalRoomRepository.open(journal)) {
+            assertThat(repository.findById("room1").orElseThrow().getBookings()).hasSize(2);
+        }
+    }
+
+    @Test
+    void openFailsForFileThatIsNotAJournal() throws IOException {
+        Path other = directory.resolve("other.txt");
+        Files.writeString(other, "inte en journal");
+
+        assertThatThrownBy(() -> JournalRoomRepository.open(other))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Filen är ingen bokningsjournal");
+        assertThat(Files.readString(other)).isEqualTo("inte en journal");
+    }
+}
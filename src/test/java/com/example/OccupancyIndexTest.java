@@ -0,0 +1,196 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class OccupancyIndexTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 2, 8, 8, 0);
+
+    @Test
+    void slotSizeMustBeWholeSeconds() {
+        assertThatThrownBy(() -> new OccupancyIndex(Duration.ofMillis(1500)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Tidslucka måste vara ett helt antal sekunder");
+    }
+
+    @Test
+    void findAvailableChecksBoundarySlotsExactly() {
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(15));
+        Room room = new Room("room1", "Stora salen");
+        room.addBooking(new Booking("b1", "room1", BASE.plusMinutes(5), BASE.plusMinutes(10)));
+        index.register(room);
+
+        assertThat(index.findAvailable(BASE.plusMinutes(11), BASE.plusMinutes(14))).containsExactly(room);
+        assertThat(index.findAvailable(BASE.plusMinutes(10), BASE.plusMinutes(14))).isEmpty();
+    }
+
+    @Test
+    void bookingRemovedKeepsSlotWhenAnotherBookingSharesIt() {
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(15));
+        Room room = new Room("room1", "Stora salen");
+        Booking first = new Booking("b1", "room1", BASE, BASE.plusMinutes(5));
+        Booking second = new Booking("b2", "room1", BASE.plusMinutes(7), BASE.plusMinutes(12));
+        room.addBooking(first);
+        room.addBooking(second);
+        index.register(room);
+
+        room.removeBooking("b1");
+        index.bookingRemoved(room, first);
+
+        assertThat(index.findAvailable(BASE.minusHours(1), BASE.plusHours(1))).isEmpty();
+        assertThat(index.findAvailable(BASE, BASE.plusMinutes(5))).containsExactly(room);
+    }
+
+    @Test
+    void discardBeforeDropsPastSlotsAndChecksEarlierQueriesExactly() {
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(15));
+        Room room = new Room("room1", "Stora salen");
+        room.addBooking(new Booking("past", "room1", BASE, BASE.plusHours(1)));
+        room.addBooking(new Booking("future", "room1", BASE.plusHours(3), BASE.plusHours(3).plusMinutes(10)));
+        index.register(room);
+        assertThat(index.getOccupiedSlotCount()).isEqualTo(6);
+
+        index.discardBefore(BASE.plusHours(2));
+        Booking late = new Booking("late", "room1", BASE.plusMinutes(20), BASE.plusMinutes(25));
+        room.addBooking(late);
+        index.bookingAdded(room, late);
+
+        assertThat(index.getOccupiedSlotCount()).isEqualTo(1);
+        assertThat(index.findAvailable(BASE.plusMinutes(30), BASE.plusMinutes(40))).isEmpty();
+        assertThat(index.findAvailable(BASE.plusHours(1).plusMinutes(30), BASE.plusHours(3).plusMinutes(5))).isEmpty();
+        assertThat(index.findAvailable(BASE.plusHours(2), BASE.plusHours(2).plusMinutes(30))).containsExactly(room);
+    }
+
+    @Test
+    void findAvailableMatchesLinearScanForRandomBookings() {
+        Random random = new Random(7);
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(15));
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Room room = new Room("room" + i, "Rum " + i);
+            rooms.add(room);
+            index.register(room);
+        }
+
+        List<Booking> active = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Room room = rooms.get(random.nextInt(rooms.size()));
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(5_000));
+            LocalDateTime end = start.plusMinutes(random.nextInt(90));
+            if (room.isAvailable(start, end)) {
+                Booking booking = new Booking("b" + i, room.getId(), start, end);
+                room.addBooking(booking);
+                index.bookingAdded(room, booking);
+                active.add(booking);
+            }
+            if (!active.isEmpty() && random.nextInt(3) == 0) {
+                Booking removed = active.remove(random.nextInt(active.size()));
+                Room owner = rooms.stream().filter(r -> r.getId().equals(removed.getRoomId())).findFirst().orElseThrow();
+                owner.removeBooking(removed.getId());
+                index.bookingRemoved(owner, removed);
+            }
+        }
+
+        for (int i = 0; i < 500; i++) {
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(5_000)).plusSeconds(random.nextInt(60));
+            LocalDateTime end = start.plusMinutes(random.nextInt(120));
+            List<Room> expected = rooms.stream()
+                    .filter(room -> room.isAvailable(start, end))
+                    .collect(Collectors.toList());
+
+            assertThat(index.findAvailable(start, end)).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void bookingSystemAnswersAvailabilityFromIndex() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = mock(RoomRepository.class);
+        Room room1 = new Room("room1", "Stora salen");
+        Room room2 = new Room("room2", "Lilla salen");
+
+        when(timeProvider.getCurrentTime()).thenReturn(BASE);
+        when(roomRepository.findAll()).thenReturn(List.of(room1, room2));
+        when(roomRepository.findById("room1")).thenReturn(Optional.of(room1));
+
+        BookingSystem system = BookingSystem.builder(timeProvider, roomRepository, mock(NotificationService.class))
+                .occupancyIndex(new OccupancyIndex(Duration.ofMinutes(15)))
+                .build();
+
+        assertThat(system.getAvailableRooms(BASE.plusHours(1), BASE.plusHours(2))).containsExactly(room1, room2);
+
+        system.bookRoom("room1", BASE.plusHours(1), BASE.plusHours(2));
+
+        assertThat(system.getAvailableRooms(BASE.plusHours(1), BASE.plusHours(2))).containsExactly(room2);
+        verify(roomRepository, times(1)).findAll();
+    }
+
+    @Test
+    void bookRecurringOnColdIndexMarksEveryOccurrence() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        RoomRepository roomRepository = new InMemoryRoomRepository();
+        Room room1 = new Room("room1", "Stora salen");
+        Room room2 = new Room("room2", "Lilla salen");
+        roomRepository.save(room1);
+        roomRepository.save(room2);
+        when(timeProvider.getCurrentTime()).thenReturn(BASE);
+        BookingSystem system = BookingSystem.builder(timeProvider, roomRepository, mock(NotificationService.class))
+                .occupancyIndex(new OccupancyIndex(Duration.ofMinutes(15)))
+                .build();
+
+        system.bookRecurring("room1", BASE.plusHours(1), BASE.plusHours(2), RecurrenceRule.weekly(4));
+
+        assertThat(system.getAvailableRooms(BASE.plusHours(1), BASE.plusHours(2))).containsExactly(room2);
+        assertThat(system.getAvailableRooms(BASE.plusWeeks(3).plusHours(1), BASE.plusWeeks(3).plusHours(2)))
+                .containsExactly(room2);
+        assertThat(system.getAvailableRooms(BASE.plusWeeks(4).plusHours(1), BASE.plusWeeks(4).plusHours(2)))
+                .containsExactly(room1, room2);
+    }
+
+    @Test
+    void registerMarksSeriesAlreadyStoredInTheRoom() {
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(15));
+        Room room = new Room("room1", "Stora salen");
+        room.addRecurringBooking(new RecurringBooking("s1", "room1", BASE, BASE.plusHours(1), RecurrenceRule.daily(5)));
+        index.register(room);
+
+        assertThat(index.findAvailable(BASE.plusDays(2).plusMinutes(20), BASE.plusDays(2).plusMinutes(40))).isEmpty();
+        assertThat(index.findAvailable(BASE.plusDays(2).plusHours(2), BASE.plusDays(2).plusHours(3)))
+                .containsExactly(room);
+    }
+
+    @Test
+    void openEndedSeriesIsMarkedUpToHorizonAndCheckedExactlyBeyondIt() {
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(15), Duration.ofDays(30));
+        Room room = new Room("room1", "Stora salen");
+        RecurringBooking series = new RecurringBooking("s1", "room1", BASE, BASE.plusHours(1),
+                RecurrenceRule.dailyUntil(LocalDateTime.of(9999, 1, 1, 0, 0)));
+        room.addRecurringBooking(series);
+        index.register(room);
+
+        assertThat(index.findAvailable(BASE.plusDays(10).plusMinutes(20), BASE.plusDays(10).plusMinutes(40))).isEmpty();
+        assertThat(index.findAvailable(BASE.plusYears(50).plusMinutes(20), BASE.plusYears(50).plusMinutes(40))).isEmpty();
+        assertThat(index.findAvailable(BASE.plusYears(50).plusHours(2), BASE.plusYears(50).plusHours(3)))
+                .containsExactly(room);
+
+        room.removeRecurringBooking("s1");
+        index.recurringBookingRemoved(room, series, 0);
+
+        assertThat(index.findAvailable(BASE.plusDays(10).plusMinutes(20), BASE.plusDays(10).plusMinutes(40)))
+                .containsExactly(room);
+        assertThat(index.findAvailable(BASE.plusYears(50).plusMinutes(20), BASE.plusYears(50).plusMinutes(40)))
+                .containsExactly(room);
+    }
+}
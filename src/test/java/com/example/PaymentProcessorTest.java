@@ -0,0 +1,330 @@
+package com.example;
+
+import com.example.payment.ChargeResponse;
+import com.example.payment.InMemoryPaymentLedger;
+import com.example.payment.PaymentGateway;
+import com.example.payment.PaymentGatewayException;
+import com.example.payment.PaymentLedger;
+import com.example.payment.PaymentNotifier;
+import com.example.payment.PaymentProcessor;
+import com.example.payment.PaymentRecord;
+import com.example.payment.PaymentRequest;
+import com.example.payment.PaymentResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PaymentProcessorTest {
+
+    /** Lokal stubbe som godkänner allt utom belopp över gränsen och minns varje sats. */
+    private static class RecordingGateway implements PaymentGateway {
+        final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        final long declineAbove;
+        volatile boolean unavailable;
+
+        RecordingGateway(long declineAbove) {
+            this.declineAbove = declineAbove;
+        }
+
+        @Override
+        public List<ChargeResponse> charge(List<PaymentRequest> batch) throws PaymentGatewayException {
+            if (unavailable) {
+                throw new PaymentGatewayException("Tidsgränsen överskreds");
+            }
+            List<String> keys = new ArrayList<>();
+            List<ChargeResponse> responses = new ArrayList<>();
+            for (PaymentRequest request : batch) {
+                keys.add(request.getIdempotencyKey());
+                responses.add(request.getAmountCents() > declineAbove
+                        ? ChargeResponse.declined("Otillräckligt saldo")
+                        : ChargeResponse.approved("tx-" + request.getIdempotencyKey()));
+            }
+            batches.add(keys);
+            return responses;
+        }
+
+        long chargeCount(String key) {
+            return batches.stream().flatMap(List::stream).filter(key::equals).count();
+        }
+    }
+
+    private static class RecordingNotifier implements PaymentNotifier {
+        final List<String> sent = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void sendPaymentConfirmation(String customerEmail, long amountCents) {
+            sent.add(customerEmail + ":" + amountCents);
+        }
+    }
+
+    @Test
+    void successfulPaymentIsRecordedAndConfirmed() {
+        RecordingGateway gateway = new RecordingGateway(Long.MAX_VALUE);
+        InMemoryPaymentLedger ledger = new InMemoryPaymentLedger();
+        RecordingNotifier notifier = new RecordingNotifier();
+
+        try (PaymentProcessor processor = PaymentProcessor.builder(gateway, ledger, notifier).build()) {
+            PaymentResult result = processor.processPayment(new PaymentRequest("order-1", "user@example.com", 19_900));
+
+            assertThat(result.isSuccess()).isTrue();
+            assertThat(result.getTransactionId()).isEqualTo("tx-order-1");
+        }
+
+        assertThat(ledger.getRecords()).extracting(PaymentRecord::getIdempotencyKey).containsExactly("order-1");
+        assertThat(notifier.sent).containsExactly("user@example.com:19900");
+    }
+
+    @Test
+    void concurrentPaymentsAreChargedInBatches() {
+        RecordingGateway gateway = new RecordingGateway(Long.MAX_VALUE);
+        InMemoryPaymentLedger ledger = new InMemoryPaymentLedger();
+        List<CompletableFuture<PaymentResult>> results = new ArrayList<>();
+
+        try (PaymentProcessor processor = PaymentProcessor.builder(gateway, ledger, new RecordingNotifier())
+                .batchSize(100)
+                .maxBatchDelay(Duration.ofMillis(20))
+                .build()) {
+            for (int i = 0; i < 1_000; i++) {
+                results.add(processor.submit(new PaymentRequest("order-" + i, "user@example.com", 100 + i)));
+            }
+            results.forEach(CompletableFuture::join);
+
+            assertThat(processor.getSucceededCount()).isEqualTo(1_000);
+            assertThat(processor.getGatewayCallCount()).isLessThan(100);
+        }
+
+        assertThat(results).allSatisfy(result -> assertThat(result.join().isSuccess()).isTrue());
+        assertThat(ledger.getRecords()).hasSize(1_000);
+        assertThat(gateway.batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(100));
+    }
+
+    @Test
+    void retryWithSameIdempotencyKeyIsNeverChargedTwice() {
+        RecordingGateway gateway = new RecordingGateway(Long.MAX_VALUE);
+        InMemoryPaymentLedger ledger = new InMemoryPaymentLedger();
+
+        try (PaymentProcessor processor = PaymentProcessor.builder(gateway, ledger, new RecordingNotifier()).build()) {
+            PaymentRequest request = new PaymentRequest("order-1", "user@example.com", 500);
+            CompletableFuture<PaymentResult> first = processor.submit(request);
+            CompletableFuture<PaymentResult> retry = processor.submit(new PaymentRequest("order-1", "user@example.com", 500));
+            PaymentResult later = processor.processPayment(request);
+
+            assertThat(retry.join().getTransactionId()).isEqualTo(first.join().getTransactionId());
+            assertThat(later.getTransactionId()).isEqualTo(first.join().getTransactionId());
+            assertThat(processor.getDuplicateCount()).isEqualTo(2);
+            assertThatThrownBy(() -> processor.submit(new PaymentRequest("order-1", "user@example.com", 600)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Idempotensnyckeln används redan för en annan betalning");
+        }
+
+        assertThat(gateway.chargeCount("order-1")).isEqualTo(1);
+        assertThat(ledger.getRecords()).hasSize(1);
+    }
+
+    @Test
+    void idempotencyWindowForgetsTheOldestResults() {
+        RecordingGateway gateway = new RecordingGateway(Long.MAX_VALUE);
+
+        try (PaymentProcessor processor = PaymentProcessor.builder(gateway, new InMemoryPaymentLedger(), new RecordingNotifier())
+                .maxRetainedResults(1)
+                .build()) {
+            processor.processPayment(new PaymentRequest("order-1", "user@example.com", 500));
+            processor.processPayment(new PaymentRequest("order-2", "user@example.com", 500));
+            processor.processPayment(new PaymentRequest("order-2", "user@example.com", 500));
+            processor.processPayment(new PaymentRequest("order-1", "user@example.com", 500));
+
+            assertThat(processor.getDuplicateCount()).isEqualTo(1);
+        }
+
+        assertThat(gateway.chargeCount("order-1")).isEqualTo(2);
+        assertThat(gateway.chargeCount("order-2")).isEqualTo(1);
+        assertThatThrownBy(() -> PaymentProcessor.builder(gateway, new InMemoryPaymentLedger(), new RecordingNotifier())
+                .idempotencyWindow(Duration.ofSeconds(-1))
+                .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Idempotensfönstret kan inte vara negativt");
+    }
+
+    @Test
+    void declinedPaymentIsNeitherRecordedNorConfirmed() {
+        InMemoryPaymentLedger ledger = new InMemoryPaymentLedger();
+        RecordingNotifier notifier = new RecordingNotifier();
+
+        try (PaymentProcessor processor = PaymentProcessor.builder(new RecordingGateway(1_000), ledger, notifier).build()) {
+            PaymentResult result = processor.processPayment(new PaymentRequest("order-1", "user@example.com", 5_000));
+
+            assertThat(result.getStatus()).isEqualTo(PaymentResult.Status.DECLINED);
+            assertThat(result.getMessage()).isEqualTo("Otillräckligt saldo");
+        }
+
+        assertThat(ledger.getRecords()).isEmpty();
+        assertThat(notifier.sent).isEmpty();
+    }
+
+    @Test
+    void gatewayErrorFailsTheBatchWithoutRecording() {
+        RecordingGateway gateway = new RecordingGateway(Long.MAX_VALUE);
+        gateway.unavailable = true;
+        InMemoryPaymentLedger ledger = new InMemoryPaymentLedger();
+
+        try (PaymentProcessor processor = PaymentProcessor.builder(gateway, ledger, new RecordingNotifier()).build()) {
+            PaymentResult result = processor.processPayment(new PaymentRequest("order-1", "user@example.com", 500));
+
+            assertThat(result.getStatus()).isEqualTo(PaymentResult.Status.FAILED);
+            assertThat(result.getMessage()).isEqualTo("Betaltjänsten svarade inte: Tidsgränsen överskreds");
+            assertThat(processor.getFailedCount()).isEqualTo(1);
+        }
+
+        assertThat(ledger.getRecords()).isEmpty();
+    }
+
+    @Test
+    void ledgerFailureIsReportedWithTheTransactionId() {
+        PaymentLedger brokenLedger = record -> CompletableFuture.failedFuture(new IllegalStateException("Disken är full"));
+
+        try (PaymentProcessor processor = PaymentProcessor
+                .builder(new RecordingGateway(Long.MAX_VALUE), brokenLedger, new RecordingNotifier())
+                .build()) {
+            PaymentResult result = processor.processPayment(new PaymentRequest("order-1", "user@example.com", 500));
+
+            assertThat(result.getStatus()).isEqualTo(PaymentResult.Status.FAILED);
+            assertThat(result.getTransactionId()).isEqualTo("tx-order-1");
+        }
+    }
+
+    @Test
+    void failingNotifierDoesNotFailThePayment() {
+        PaymentNotifier failing = (email, amount) -> {
+            throw new IllegalStateException("E-posttjänsten är nere");
+        };
+
+        try (PaymentProcessor processor = PaymentProcessor
+                .builder(new RecordingGateway(Long.MAX_VALUE), new InMemoryPaymentLedger(), failing)
+                .build()) {
+            assertThat(processor.processPayment(new PaymentRequest("order-1", "user@example.com", 500)).isSuccess()).isTrue();
+            processor.close();
+
+            assertThat(processor.getNotificationFailureCount()).isEqualTo(1);
+            assertThatThrownBy(() -> processor.submit(new PaymentRequest("order-2", "user@example.com", 500)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Betalningsprocessorn är stängd");
+        }
+    }
+
+    @Test
+    void missingGatewayResponseFailsOnlyThatPayment() {
+        PaymentGateway gateway = batch -> {
+            List<ChargeResponse> responses = new ArrayList<>();
+            for (PaymentRequest request : batch) {
+                responses.add(request.getIdempotencyKey().equals("order-2") ? null : ChargeResponse.approved("tx"));
+            }
+            return responses;
+        };
+        InMemoryPaymentLedger ledger = new InMemoryPaymentLedger();
+
+        try (PaymentProcessor processor = PaymentProcessor.builder(gateway, ledger, new RecordingNotifier())
+                .maxBatchDelay(Duration.ofMillis(50))
+                .build()) {
+            CompletableFuture<PaymentResult> first = processor.submit(new PaymentRequest("order-1", "a@example.com", 100));
+            CompletableFuture<PaymentResult> second = processor.submit(new PaymentRequest("order-2", "b@example.com", 200));
+
+            assertThat(first.join().isSuccess()).isTrue();
+            assertThat(second.join().getStatus()).isEqualTo(PaymentResult.Status.FAILED);
+        }
+
+        assertThat(ledger.getRecords()).extracting(PaymentRecord::getIdempotencyKey).containsExactly("order-1");
+    }
+
+    @Test
+    void interruptedSubmitFailsConcurrentRetryWithSameKey() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PaymentGateway blocking = batch -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return batch.stream().map(request -> ChargeResponse.approved("tx-" + request.getIdempotencyKey())).toList();
+        };
+
+        try (PaymentProcessor processor = PaymentProcessor.builder(blocking, new InMemoryPaymentLedger(), new RecordingNotifier())
+                .capacity(1)
+                .maxInFlight(1)
+                .maxBatchDelay(Duration.ZERO)
+                .build()) {
+            try {
+                // En sats hos betaltjänsten, en som väntar på plats där och en i kön
+                processor.submit(new PaymentRequest("order-1", "user@example.com", 100));
+                waitUntil(() -> processor.getGatewayCallCount() == 1);
+                processor.submit(new PaymentRequest("order-2", "user@example.com", 100));
+                Thread.sleep(50);
+                processor.submit(new PaymentRequest("order-3", "user@example.com", 100));
+
+                PaymentRequest blocked = new PaymentRequest("order-4", "user@example.com", 100);
+                Thread submitter = Thread.ofPlatform().start(() -> {
+                    try {
+                        processor.submit(blocked);
+                    } catch (IllegalStateException expected) {
+                        // Avbruten i väntan på plats i kön
+                    }
+                });
+                waitUntil(() -> submitter.getState() == Thread.State.WAITING);
+                CompletableFuture<PaymentResult> retry = processor.submit(blocked);
+
+                submitter.interrupt();
+                submitter.join();
+
+                assertThatThrownBy(() -> retry.get(5, TimeUnit.SECONDS))
+                        .isInstanceOf(ExecutionException.class)
+                        .hasRootCauseMessage("Avbröts i väntan på plats i betalningskön");
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Villkoret uppfylldes aldrig");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void closeDoesNotHangWhenSubmitRacesWithIt() throws Exception {
+        RecordingGateway gateway = new RecordingGateway(Long.MAX_VALUE);
+        for (int round = 0; round < 50; round++) {
+            PaymentProcessor processor = PaymentProcessor.builder(gateway, new InMemoryPaymentLedger(), new RecordingNotifier())
+                    .maxBatchDelay(Duration.ZERO)
+                    .build();
+            String prefix = "round-" + round + "-";
+            Thread submitter = Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    try {
+                        processor.submit(new PaymentRequest(prefix + i, "user@example.com", 100));
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                }
+            });
+
+            CompletableFuture<Void> closed = CompletableFuture.runAsync(processor::close);
+            closed.get(10, TimeUnit.SECONDS);
+            submitter.join();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RoomTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 2, 8, 8, 0);
+
+    @Test
+    void emptyRoomIsAvailable() {
+        Room room = new Room("room1", "Stora salen");
+
+        assertThat(room.isAvailable(BASE, BASE.plusHours(1))).isTrue();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void isAvailableTreatsTouchingBoundariesAsOverlap(BookingStorage storage) {
+        Room room = new Room("room1", "Stora salen", storage);
+        room.addBooking(new Booking("b1", "room1", BASE.plusHours(1), BASE.plusHours(2)));
+
+        assertThat(room.isAvailable(BASE, BASE.plusHours(1))).isFalse();
+        assertThat(room.isAvailable(BASE.plusHours(2), BASE.plusHours(3))).isFalse();
+        assertThat(room.isAvailable(BASE, BASE.plusMinutes(59))).isTrue();
+        assertThat(room.isAvailable(BASE.plusHours(2).plusMinutes(1), BASE.plusHours(3))).isTrue();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void isAvailableDetectsBookingThatSpansTheWholeQuery(BookingStorage storage) {
+        Room room = new Room("room1", "Stora salen", storage);
+        room.addBooking(new Booking("b1", "room1", BASE, BASE.plusDays(1)));
+        for (int i = 1; i < 20; i++) {
+            room.addBooking(new Booking("later" + i, "room1", BASE.plusDays(i), BASE.plusDays(i).plusHours(1)));
+        }
+
+        assertThat(room.isAvailable(BASE.plusHours(5), BASE.plusHours(6))).isFalse();
+    }
+
+    @Test
+    void bookingAcceptsMissingTimesAndNeverLooksFree() {
+        Booking booking = new Booking("b1", "room1", null, null);
+
+        assertThat(booking.getStartTime()).isNull();
+        assertThat(booking.getEndTime()).isNull();
+        assertThat(booking.overlaps(0L, 1L)).isTrue();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void roomStoresBookingsWithMissingTimesAsUnbounded(BookingStorage storage) {
+        Room room = new Room("room1", "Stora salen", storage);
+        room.addBooking(new Booking("later", "room1", BASE.plusHours(2), BASE.plusHours(3)));
+        room.addBooking(new Booking("open", "room1", null, null));
+        room.addBooking(new Booking("open-start", "room1", null, BASE));
+
+        assertThat(room.hasBooking("open")).isTrue();
+        assertThat(room.getBooking("open").getId()).isEqualTo("open");
+        assertThat(room.isAvailable(BASE.plusDays(10), BASE.plusDays(11))).isFalse();
+        assertThat(room.getBookings()).extracting(Booking::getId).containsExactly("open", "open-start", "later");
+
+        room.archiveEndedBefore(BASE.plusHours(1));
+        assertThat(room.getArchivedBookings()).extracting(Booking::getId).containsExactly("open-start");
+        assertThat(room.hasBooking("open-start")).isTrue();
+        assertThat(room.getBooking("open-start").getEndTime()).isEqualTo(BASE);
+
+        room.removeBooking("open");
+        room.removeBooking("open-start");
+        assertThat(room.getBookings()).extracting(Booking::getId).containsExactly("later");
+        assertThat(room.isAvailable(BASE.plusDays(10), BASE.plusDays(11))).isTrue();
+    }
+
+    @Test
+    void removeBookingFreesTheSlot() {
+        Room room = new Room("room1", "Stora salen");
+        room.addBooking(new Booking("b1", "room1", BASE, BASE.plusHours(1)));
+
+        room.removeBooking("b1");
+
+        assertThat(room.hasBooking("b1")).isFalse();
+        assertThat(room.isAvailable(BASE, BASE.plusHours(1))).isTrue();
+    }
+
+    @Test
+    void getBookingThrowsWhenBookingDoesNotExist() {
+        Room room = new Room("room1", "Stora salen");
+
+        assertThatThrownBy(() -> room.getBooking("missing"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Bokning finns inte");
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void isAvailableMatchesLinearScanForRandomBookings(BookingStorage storage) {
+        Random random = new Random(42);
+        Room room = new Room("room1", "Stora salen", storage);
+        List<Booking> reference = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(10_000));
+            Booking booking = new Booking("b" + i, "room1", start, start.plusMinutes(1 + random.nextInt(120)));
+            room.addBooking(booking);
+            reference.add(booking);
+            if (random.nextInt(4) == 0) {
+                Booking removed = reference.remove(random.nextInt(reference.size()));
+                room.removeBooking(removed.getId());
+            }
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(10_200) - 100);
+            LocalDateTime end = start.plusMinutes(random.nextInt(60));
+            boolean expected = reference.stream().noneMatch(booking -> booking.overlaps(start, end));
+
+            assertThat(room.isAvailable(start, end)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void compactStorageReturnsEqualBookings() {
+        Room room = new Room("room1", "Stora salen", BookingStorage.COMPACT);
+        String uuid = UUID.randomUUID().toString();
+        LocalDateTime start = BASE.plusSeconds(5).plusNanos(123_456_789);
+        room.addBooking(new Booking(uuid, "room1", start, start.plusHours(1)));
+        room.addBooking(new Booking("extern-42", "room1", BASE, BASE.plusMinutes(30)));
+
+        assertThat(room.getBookings()).extracting(Booking::getId).containsExactly("extern-42", uuid);
+        Booking booking = room.getBooking(uuid);
+        assertThat(booking.getRoomId()).isEqualTo("room1");
+        assertThat(booking.getStartTime()).isEqualTo(start);
+        assertThat(booking.getEndTime()).isEqualTo(start.plusHours(1));
+
+        room.removeBooking("extern-42");
+
+        assertThat(room.hasBooking("extern-42")).isFalse();
+        assertThat(room.isAvailable(BASE, BASE.plusSeconds(5))).isTrue();
+        assertThat(room.isAvailable(BASE, start)).isFalse();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void archivedBookingsLeaveActiveSetButStayQueryable(BookingStorage storage) {
+        Room room = new Room("room1", "Stora salen", storage);
+        room.addBooking(new Booking("past", "room1", BASE, BASE.plusHours(1)));
+        room.addBooking(new Booking("ongoing", "room1", BASE.plusHours(2), BASE.plusHours(4)));
+        room.addBooking(new Booking("future", "room1", BASE.plusHours(5), BASE.plusHours(6)));
+
+        int archived = room.archiveEndedBefore(BASE.plusHours(3));
+
+        assertThat(archived).isEqualTo(1);
+        assertThat(room.getActiveBookingCount()).isEqualTo(2);
+        assertThat(room.getArchivedBookings()).extracting(Booking::getId).containsExactly("past");
+        assertThat(room.getBookings()).extracting(Booking::getId).containsExactly("past", "ongoing", "future");
+        assertThat(room.hasBooking("past")).isTrue();
+        assertThat(room.getBooking("past").getEndTime()).isEqualTo(BASE.plusHours(1));
+        assertThat(room.isAvailable(BASE.plusMinutes(30), BASE.plusMinutes(40))).isFalse();
+        assertThat(room.isAvailable(BASE.plusHours(4).plusMinutes(1), BASE.plusHours(4).plusMinutes(30))).isTrue();
+
+        room.removeBooking("past");
+
+        assertThat(room.hasBooking("past")).isFalse();
+        assertThat(room.isAvailable(BASE.plusMinutes(30), BASE.plusMinutes(40))).isTrue();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void archivedBookingsWithSameStartAreFoundAndRemovedById(BookingStorage storage) {
+        Room room = new Room("room1", "Stora salen", storage);
+        String uuid = "123e4567-e89b-12d3-a456-426614174000";
+        room.addBooking(new Booking("a", "room1", BASE, BASE.plusMinutes(10)));
+        room.addBooking(new Booking(uuid, "room1", BASE, BASE.plusMinutes(20)));
+        room.addBooking(new Booking("c", "room1", BASE.plusMinutes(30), BASE.plusMinutes(40)));
+        room.archiveEndedBefore(BASE.plusHours(1));
+
+        assertThat(room.getBooking(uuid).getEndTime()).isEqualTo(BASE.plusMinutes(20));
+        assertThat(room.getBooking("a").getEndTime()).isEqualTo(BASE.plusMinutes(10));
+        room.removeBooking(uuid);
+        assertThat(room.hasBooking(uuid)).isFalse();
+        assertThat(room.getArchivedBookings()).extracting(Booking::getId).containsExactly("a", "c");
+        assertThat(room.snapshot().getBooking("c")).isNotNull();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void epochMillisIsAvailableMatchesLocalDateTimeCheck(BookingStorage storage) {
+        Random random = new Random(7);
+        Room room = new Room("room1", "Stora salen", storage);
+        for (int i = 0; i < 200; i++) {
+            // Delar av millisekunder prövar avrundningen åt båda hållen
+            LocalDateTime start = BASE.plusSeconds(random.nextInt(100_000)).plusNanos(random.nextInt(2_000_000));
+            room.addBooking(new Booking("b" + i, "room1", start, start.plusSeconds(1 + random.nextInt(300))));
+        }
+        room.archiveEndedBefore(BASE.plusSeconds(20_000));
+
+        for (int i = 0; i < 2_000; i++) {
+            long startMillis = BASE.toEpochSecond(ZoneOffset.UTC) * 1000 + random.nextInt(101_000_000) - 500_000;
+            long endMillis = startMillis + random.nextInt(60_000);
+
+            assertThat(room.isAvailable(startMillis, endMillis))
+                    .isEqualTo(room.isAvailable(EpochMillis.toLocalDateTime(startMillis), EpochMillis.toLocalDateTime(endMillis)));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void getBookingsOverlappingIncludesArchivedBookingsInStartOrder(BookingStorage storage) {
+        Room room = new Room("room1", "Stora salen", storage);
+        room.addBooking(new Booking("past", "room1", BASE, BASE.plusHours(3)));
+        room.addBooking(new Booking("early", "room1", BASE.minusHours(2), BASE.minusHours(1)));
+        room.addBooking(new Booking("next", "room1", BASE.plusHours(4), BASE.plusHours(5)));
+        room.addBooking(new Booking("later", "room1", BASE.plusHours(6), BASE.plusHours(7)));
+        room.archiveEndedBefore(BASE.plusHours(3).plusMinutes(1));
+
+        assertThat(room.getBookingsOverlapping(BASE.plusHours(1), BASE.plusHours(6)))
+                .extracting(Booking::getId).containsExactly("past", "next", "later");
+        assertThat(room.getBookingsOverlapping(BASE.plusHours(5).plusMinutes(1), BASE.plusHours(5).plusMinutes(2)))
+                .isEmpty();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void recurringBookingOverlapMatchesExpandedOccurrences(BookingStorage storage) {
+        Random random = new Random(11);
+        Room room = new Room("room1", "Stora salen", storage);
+        RecurringBooking weekly = new RecurringBooking("s1", "room1", BASE, BASE.plusHours(1),
+                RecurrenceRule.weekly(30));
+        RecurringBooking daily = new RecurringBooking("s2", "room1", BASE.plusHours(3), BASE.plusHours(4).plusNanos(500_000),
+                RecurrenceRule.dailyUntil(BASE.plusDays(60)).every(3));
+        room.addRecurringBooking(weekly);
+        room.addRecurringBooking(daily);
+        List<Booking> reference = new ArrayList<>();
+        for (RecurringBooking series : List.of(weekly, daily)) {
+            for (int i = 0; i < series.getOccurrenceCount(); i++) {
+                reference.add(series.occurrence(i));
+            }
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(300_000) - 1_000);
+            LocalDateTime end = start.plusMinutes(random.nextInt(120));
+            boolean expected = reference.stream().noneMatch(booking -> booking.overlaps(start, end));
+
+            assertThat(room.isAvailable(start, end)).isEqualTo(expected);
+            assertThat(room.isAvailable(EpochMillis.ceil(start), EpochMillis.floor(end))).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void seriesOverlapMatchesExpandedOccurrences() {
+        Random random = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            RecurringBooking first = randomSeries(random, "a");
+            RecurringBooking second = randomSeries(random, "b");
+            boolean expected = false;
+            for (int k = 0; k < first.getOccurrenceCount() && !expected; k++) {
+                Booking occurrence = first.occurrence(k);
+                expected = second.overlaps(occurrence.getStartTime(), occurrence.getEndTime());
+            }
+
+            assertThat(first.overlaps(second)).isEqualTo(expected);
+            assertThat(second.overlaps(first)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void recurringBookingsAreExpandedOnlyInsideTheQueriedWindow() {
+        Room room = new Room("room1", "Stora salen");
+        room.addBooking(new Booking("single", "room1", BASE.plusDays(1).plusHours(2), BASE.plusDays(1).plusHours(3)));
+        room.addRecurringBooking(new RecurringBooking("s1", "room1", BASE, BASE.plusHours(1),
+                RecurrenceRule.daily(10_000)));
+
+        assertThat(room.getBookingsOverlapping(BASE.plusDays(1), BASE.plusDays(2).minusMinutes(1)))
+                .extracting(Booking::getId).containsExactly("s1/1", "single");
+        assertThat(room.getBookings()).extracting(Booking::getId).containsExactly("single");
+        assertThat(room.isAvailable(new RecurringBooking("s2", "room1", BASE.plusHours(2), BASE.plusHours(3),
+                RecurrenceRule.daily(2)))).isFalse();
+        assertThat(room.isAvailable(new RecurringBooking("s3", "room1", BASE.plusHours(4), BASE.plusHours(5),
+                RecurrenceRule.weekly(52)))).isTrue();
+    }
+
+    @ParameterizedTest
+    @EnumSource(BookingStorage.class)
+    void snapshotKeepsBookingsAndIsIndependentOfTheRoom(BookingStorage storage) {
+        Room room = new Room("room1", "Stora salen", storage);
+        room.addBooking(new Booking("past", "room1", BASE, BASE.plusHours(1)));
+        room.addBooking(new Booking("future", "room1", BASE.plusHours(5), BASE.plusHours(6)));
+        room.addRecurringBooking(new RecurringBooking("s1", "room1", BASE.plusHours(8), BASE.plusHours(9),
+                RecurrenceRule.daily(3)));
+        room.archiveEndedBefore(BASE.plusHours(2));
+
+        Room snapshot = room.snapshot();
+        room.removeBooking("future");
+        room.addBooking(new Booking("later", "room1", BASE.plusHours(10), BASE.plusHours(11)));
+
+        assertThat(snapshot.getStorage()).isEqualTo(storage);
+        assertThat(snapshot.getBookings()).extracting(Booking::getId).containsExactly("past", "future");
+        assertThat(snapshot.getArchivedBookings()).extracting(Booking::getId).containsExactly("past");
+        assertThat(snapshot.getRecurringBookings()).extracting(RecurringBooking::getId).containsExactly("s1");
+        assertThat(snapshot.isAvailable(BASE.plusHours(10), BASE.plusHours(11))).isTrue();
+    }
+
+    @Test
+    void recurringBookingRejectsOccurrencesThatReachTheNextOne() {
+        assertThatThrownBy(() -> new RecurringBooking("s1", "room1", BASE, BASE.plusDays(1), RecurrenceRule.daily(3)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Ett tillfälle måste vara kortare än upprepningsintervallet");
+    }
+
+    private static RecurringBooking randomSeries(Random random, String id) {
+        RecurrenceRule rule = (random.nextBoolean() ? RecurrenceRule.daily(1 + random.nextInt(40))
+                : RecurrenceRule.weekly(1 + random.nextInt(10))).every(1 + random.nextInt(5));
+        LocalDateTime start = BASE.plusMinutes(random.nextInt(30 * 24 * 60));
+        return new RecurringBooking(id, "room1", start, start.plusMinutes(1 + random.nextInt(180)), rule);
+    }
+}
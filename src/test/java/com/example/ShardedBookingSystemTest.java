@@ -0,0 +1,143 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class ShardedBookingSystemTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 2, 8, 12, 0);
+
+    @Test
+    void bookingsAndCancellationsAreRoutedToTheOwningShard() throws NotificationException {
+        NotificationService notificationService = mock(NotificationService.class);
+        Room room = new Room("room7", "Sal 7");
+
+        try (ShardedBookingSystem system = systemWith(4, notificationService, room)) {
+            assertThat(system.bookRoom("room7", NOW.plusHours(1), NOW.plusHours(2))).isTrue();
+            assertThat(system.bookRoom("room7", NOW.plusHours(2), NOW.plusHours(3))).isFalse();
+
+            String bookingId = room.getBookings().get(0).getId();
+            assertThat(system.cancelBooking(bookingId)).isTrue();
+            assertThat(system.cancelBooking(bookingId)).isFalse();
+        }
+
+        assertThat(room.getBookings()).isEmpty();
+        verify(notificationService).sendBookingConfirmation(any());
+        verify(notificationService).sendCancellationConfirmation(any());
+    }
+
+    @Test
+    void getAvailableRoomsGathersFreeRoomsFromEveryShard() {
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rooms.add(new Room(String.format("room%02d", i), "Sal " + i));
+        }
+
+        try (ShardedBookingSystem system = systemWith(4, mock(NotificationService.class), rooms.toArray(new Room[0]))) {
+            system.bookRoom("room03", NOW.plusHours(1), NOW.plusHours(2));
+            system.bookRoom("room11", NOW.plusHours(1), NOW.plusHours(2));
+
+            List<Room> available = system.getAvailableRooms(NOW.plusHours(1), NOW.plusHours(2));
+
+            assertThat(available).hasSize(18);
+            assertThat(available).extracting(Room::getId).isSorted().doesNotContain("room03", "room11");
+
+            Room snapshot = available.get(0);
+            system.bookRoom(snapshot.getId(), NOW.plusHours(1), NOW.plusHours(2));
+
+            assertThat(snapshot).isNotSameAs(rooms.get(0));
+            assertThat(snapshot.isAvailable(NOW.plusHours(1), NOW.plusHours(2))).isTrue();
+        }
+    }
+
+    @Test
+    void bookRoomsReturnsResultsInRequestOrderAcrossShards() {
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            rooms.add(new Room("room" + i, "Sal " + i));
+        }
+
+        try (ShardedBookingSystem system = systemWith(3, mock(NotificationService.class), rooms.toArray(new Room[0]))) {
+            List<BookingRequest> requests = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                requests.add(new BookingRequest("room" + i, NOW.plusHours(1), NOW.plusHours(2)));
+            }
+            requests.add(new BookingRequest("room2", NOW.plusHours(1), NOW.plusHours(3)));
+            requests.add(new BookingRequest("missing", NOW.plusHours(1), NOW.plusHours(2)));
+
+            List<BookingResult> results = system.bookRooms(requests);
+
+            assertThat(results).hasSize(10);
+            for (int i = 0; i < 8; i++) {
+                assertThat(results.get(i).getStatus()).isEqualTo(BookingResult.Status.BOOKED);
+                assertThat(results.get(i).getBooking().getRoomId()).isEqualTo("room" + i);
+            }
+            assertThat(results.get(8).getStatus()).isEqualTo(BookingResult.Status.UNAVAILABLE);
+            assertThat(results.get(9).getStatus()).isEqualTo(BookingResult.Status.INVALID);
+        }
+    }
+
+    @Test
+    void concurrentBookingsOfSameSlotOnlyOneSucceeds() {
+        Room room = new Room("room1", "Stora salen");
+
+        try (ShardedBookingSystem system = systemWith(4, mock(NotificationService.class), room)) {
+            List<CompletableFuture<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                attempts.add(system.bookRoomAsync("room1", NOW.plusHours(1), NOW.plusHours(2)));
+            }
+
+            assertThat(attempts.stream().filter(CompletableFuture::join).count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void shardExceptionsReachTheCallerUnwrapped() {
+        try (ShardedBookingSystem system = systemWith(2, mock(NotificationService.class), new Room("room1", "Stora salen"))) {
+            assertThatThrownBy(() -> system.bookRoom("missing", NOW.plusHours(1), NOW.plusHours(2)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Rummet existerar inte");
+            assertThatThrownBy(() -> system.bookRoom("room1", NOW.minusHours(1), NOW.plusHours(2)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Kan inte boka tid i dåtid");
+        }
+    }
+
+    @Test
+    void idsWithoutRoomKeyAreCancelledByAskingEveryShard() {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        when(timeProvider.getCurrentTime()).thenReturn(NOW);
+        Room room = new Room("room5", "Sal 5");
+
+        try (ShardedBookingSystem system = ShardedBookingSystem.builder(timeProvider, mock(NotificationService.class))
+                .shards(3)
+                .bookingIdGenerator(BookingIdGenerator.RANDOM_UUID)
+                .build()) {
+            system.addRoom(room);
+            system.bookRoom("room5", NOW.plusHours(1), NOW.plusHours(2));
+
+            assertThat(system.cancelBooking(room.getBookings().get(0).getId())).isTrue();
+            assertThat(system.cancelBooking("missing")).isFalse();
+        }
+    }
+
+    private static ShardedBookingSystem systemWith(int shards, NotificationService notificationService, Room... rooms) {
+        TimeProvider timeProvider = mock(TimeProvider.class);
+        when(timeProvider.getCurrentTime()).thenReturn(NOW);
+        ShardedBookingSystem system = ShardedBookingSystem.builder(timeProvider, notificationService)
+                .shards(shards)
+                .build();
+        for (Room room : rooms) {
+            system.addRoom(room);
+        }
+        return system;
+    }
+}
@@ -155,4 +155,45 @@ public class ShoppingCartTest {
 
         assertThat(cart.getTotal()).isZero();
     }
+
+    @Test
+    void totalFollowsEveryEditWithoutRecomputing() {
+        ShoppingCart cart = new ShoppingCart();
+
+        cart.addItem("milk", 190);
+        cart.addItem("bread", 250);
+        cart.addItem("milk", 190);
+        cart.updateQuantity("bread", 4);
+        cart.updateQuantity("missing", 2);
+        cart.removeItem("milk");
+        cart.addItem("milk", 200);
+
+        assertThat(cart.getTotal()).isEqualTo(1200);
+    }
+
+    @Test
+    void subtotalLargerThanIntIsStillDiscountedCorrectly() {
+        ShoppingCart cart = new ShoppingCart();
+
+        cart.addItem("tv", Integer.MAX_VALUE);
+        cart.addItem("tv", Integer.MAX_VALUE);
+        cart.applyPercentageDiscount(60);
+
+        assertThat(cart.getTotal()).isEqualTo(1_717_986_917);
+
+        cart.applyPercentageDiscount(0);
+
+        assertThatThrownBy(cart::getTotal).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void addItemThatOverflowsQuantityLeavesCartUnchanged() {
+        ShoppingCart cart = new ShoppingCart();
+        cart.addItem("nail", 1);
+        cart.updateQuantity("nail", Integer.MAX_VALUE);
+
+        assertThatThrownBy(() -> cart.addItem("nail", 1)).isInstanceOf(ArithmeticException.class);
+
+        assertThat(cart.getTotal()).isEqualTo(Integer.MAX_VALUE);
+    }
 }
@@ -0,0 +1,52 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimeOrderedBookingIdGeneratorTest {
+
+    @Test
+    void idsAreStrictlyIncreasingEvenWhenClockStandsStillOrGoesBack() {
+        AtomicLong clock = new AtomicLong(1_770_000_000_000L);
+        TimeOrderedBookingIdGenerator generator = new TimeOrderedBookingIdGenerator(clock::get);
+        List<String> ids = new ArrayList<>();
+
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId("room" + (i % 7)));
+            if (i == 5_000) {
+                clock.addAndGet(-1_000);
+            }
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void idIsAVersion7UuidThatCarriesTheRoomKey() {
+        TimeOrderedBookingIdGenerator generator = new TimeOrderedBookingIdGenerator();
+
+        String id = generator.nextId("room1");
+        UUID uuid = UUID.fromString(id);
+
+        assertThat(uuid.toString()).isEqualTo(id);
+        assertThat(uuid.version()).isEqualTo(7);
+        assertThat(uuid.variant()).isEqualTo(2);
+        assertThat(generator.roomKeyOf(id)).isEqualTo(OptionalInt.of(generator.roomKeyFor("room1")));
+    }
+
+    @Test
+    void foreignIdsHaveNoRoomKey() {
+        TimeOrderedBookingIdGenerator generator = new TimeOrderedBookingIdGenerator();
+
+        assertThat(generator.roomKeyOf(UUID.randomUUID().toString())).isEmpty();
+        assertThat(generator.roomKeyOf("booking1")).isEmpty();
+        assertThat(generator.roomKeyOf(null)).isEmpty();
+    }
+}